@@ -0,0 +1,91 @@
+package com.eduprajna.Controller;
+
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.eduprajna.dto.CategoryDTO;
+import com.eduprajna.entity.Category;
+import com.eduprajna.service.CategoryService;
+
+/**
+ * Admin edits of the category hierarchy. Body: {"name": "...", "parentId": 1} (parentId optional).
+ */
+@RestController
+@RequestMapping("/api/admin/categories")
+@CrossOrigin(origins = {"http://localhost:3000", "http://127.0.0.1:3000"}, allowCredentials = "true")
+public class AdminCategoryController {
+    private static final Logger logger = LoggerFactory.getLogger(AdminCategoryController.class);
+
+    private final CategoryService categoryService;
+
+    public AdminCategoryController(CategoryService categoryService) {
+        this.categoryService = categoryService;
+    }
+
+    @PostMapping("")
+    public ResponseEntity<?> create(@RequestBody Map<String, Object> body) {
+        try {
+            Category saved = categoryService.create((String) body.get("name"), parentId(body));
+            return ResponseEntity.ok(toResponse(saved));
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (RuntimeException e) {
+            logger.error("Error creating category", e);
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        }
+    }
+
+    @PutMapping("/{id}")
+    public ResponseEntity<?> update(@PathVariable Long id, @RequestBody Map<String, Object> body) {
+        try {
+            Category saved = categoryService.update(id, (String) body.get("name"), parentId(body));
+            return ResponseEntity.ok(toResponse(saved));
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (RuntimeException e) {
+            logger.error("Error updating category {}", id, e);
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        }
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<?> delete(@PathVariable Long id) {
+        try {
+            categoryService.delete(id);
+            return ResponseEntity.noContent().build();
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (RuntimeException e) {
+            logger.error("Error deleting category {}", id, e);
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        }
+    }
+
+    private static Long parentId(Map<String, Object> body) {
+        Object value = body.get("parentId");
+        return value instanceof Number ? ((Number) value).longValue() : null;
+    }
+
+    // The committed tree is swapped in after the transaction, so answer from the saved entity
+    private static CategoryDTO toResponse(Category c) {
+        CategoryDTO dto = new CategoryDTO();
+        dto.id = c.getId();
+        dto.name = c.getName();
+        dto.parentId = c.getParent() != null ? c.getParent().getId() : null;
+        dto.path = c.getPath();
+        dto.depth = c.getDepth() != null ? c.getDepth() : 0;
+        return dto;
+    }
+}
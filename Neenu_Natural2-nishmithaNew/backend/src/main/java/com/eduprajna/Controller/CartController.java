@@ -2,7 +2,6 @@ package com.eduprajna.Controller;
 
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -15,7 +14,9 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.eduprajna.dto.CartBatchResultDTO;
 import com.eduprajna.dto.CartItemDTO;
+import com.eduprajna.dto.CartOperationDTO;
 import com.eduprajna.entity.CartItem;
 import com.eduprajna.entity.User;
 import com.eduprajna.service.CartService;
@@ -26,6 +27,7 @@ import com.eduprajna.service.UserService;
 @CrossOrigin(origins = {"http://localhost:3000", "http://127.0.0.1:3000"}, allowCredentials = "true")
 public class CartController {
     private static final Logger logger = LoggerFactory.getLogger(CartController.class);
+    private static final int MAX_BATCH_OPERATIONS = 200;
     
     private final CartService cartService;
     private final UserService userService;
@@ -41,15 +43,7 @@ public class CartController {
     }
     
     private CartItemDTO toDTO(CartItem ci) {
-        CartItemDTO dto = new CartItemDTO();
-        dto.id = ci.getId();
-        dto.productId = ci.getProduct().getId();
-        dto.name = ci.getProduct().getName();
-        dto.imageUrl = ci.getProduct().getImageUrl();
-        dto.quantity = ci.getQuantity();
-        dto.price = ci.getPriceAtAdd();
-        dto.lineTotal = (ci.getPriceAtAdd() != null ? ci.getPriceAtAdd() : 0.0) * ci.getQuantity();
-        return dto;
+        return CartService.toView(ci);
     }
 
     @GetMapping
@@ -63,9 +57,7 @@ public class CartController {
             }
             
             User user = requireUser(email);
-            List<CartItemDTO> items = cartService.getCart(user).stream()
-                .map(this::toDTO)
-                .collect(Collectors.toList());
+            List<CartItemDTO> items = cartService.getCartView(user);
             
             logger.debug("Retrieved {} cart items for user: {}", items.size(), email);
             return ResponseEntity.ok(items);
@@ -163,6 +155,34 @@ public class CartController {
         }
     }
 
+    // Several add/update/remove operations in one request and one transaction; returns the
+    // resulting cart plus the operations that were refused (the rest still apply)
+    @PostMapping("/batch")
+    public ResponseEntity<?> batch(@RequestParam("email") String email, @RequestBody List<CartOperationDTO> operations) {
+        try {
+            if (email == null || email.trim().isEmpty()) {
+                return ResponseEntity.badRequest().body("Email is required");
+            }
+            if (operations == null || operations.isEmpty()) {
+                return ResponseEntity.badRequest().body("At least one operation is required");
+            }
+            if (operations.size() > MAX_BATCH_OPERATIONS) {
+                return ResponseEntity.badRequest().body("At most " + MAX_BATCH_OPERATIONS + " operations per request");
+            }
+            User user = requireUser(email);
+            CartBatchResultDTO result = cartService.applyBatch(user, operations);
+            result.items = cartService.getCartView(user);
+            logger.info("Applied {} of {} cart operations for user: {}", result.applied, operations.size(), email);
+            return ResponseEntity.ok(result);
+        } catch (RuntimeException e) {
+            logger.error("Error applying cart batch for user: {}", email, e);
+            return ResponseEntity.status(404).body("User not found");
+        } catch (Exception e) {
+            logger.error("Error applying cart batch for user: {}", email, e);
+            return ResponseEntity.status(500).body("Internal server error while updating cart");
+        }
+    }
+
     @PostMapping("/remove")
     public ResponseEntity<?> remove(@RequestParam("email") String email, @RequestBody Map<String, Object> body) {
         try {
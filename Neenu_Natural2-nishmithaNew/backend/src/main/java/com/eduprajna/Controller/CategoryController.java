@@ -2,26 +2,45 @@ package com.eduprajna.Controller;
 
 import java.util.List;
 
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
-import com.eduprajna.entity.Category;
-import com.eduprajna.repository.CategoryRepository;
+import com.eduprajna.dto.CategoryDTO;
+import com.eduprajna.service.CategoryService;
+import com.eduprajna.service.CategoryTree;
 
+/**
+ * Read-only category endpoints, all served from the in-memory CategoryTree snapshot.
+ */
 @RestController
 @RequestMapping("/api/categories")
 @CrossOrigin(origins = {"http://localhost:3000", "http://127.0.0.1:3000"}, allowCredentials = "true")
 public class CategoryController {
-    private final CategoryRepository categoryRepository;
+    private final CategoryService categoryService;
 
-    public CategoryController(CategoryRepository categoryRepository) {
-        this.categoryRepository = categoryRepository;
+    public CategoryController(CategoryService categoryService) {
+        this.categoryService = categoryService;
     }
 
+    // Flat list, parents before their children
     @GetMapping("")
-    public List<Category> getAllCategories() {
-        return categoryRepository.findAll();
+    public List<CategoryDTO> getAllCategories() {
+        return categoryService.getTree().toFlatList();
     }
-}
\ No newline at end of file
+
+    @GetMapping("/tree")
+    public List<CategoryDTO> getCategoryTree() {
+        return categoryService.getTree().toNestedList();
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<CategoryDTO> getCategory(@PathVariable Long id) {
+        CategoryTree.Node node = categoryService.getTree().get(id);
+        if (node == null) return ResponseEntity.notFound().build();
+        return ResponseEntity.ok(CategoryTree.toDTO(node));
+    }
+}
@@ -1,24 +1,26 @@
 package com.eduprajna.Controller;
 
 import com.eduprajna.dto.CartItemDTO;
+import com.eduprajna.dto.OrderDTO;
 import com.eduprajna.dto.OrderReviewDTO;
 import com.eduprajna.entity.*;
 import com.eduprajna.repository.AddressRepository;
 import com.eduprajna.repository.CheckoutSelectionRepository;
 import com.eduprajna.service.CartService;
+import com.eduprajna.service.IdempotencyService;
 import com.eduprajna.service.OrderService;
+import com.eduprajna.service.RequestInProgressException;
+import com.eduprajna.service.StockReservationService;
 import com.eduprajna.service.UserService;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 /**
  * CheckoutController handles the multi-step checkout process
@@ -26,7 +28,9 @@ import java.util.stream.Collectors;
  * Flow:
  * 1. POST /selection - Save user's checkout selections (address, delivery, payment)
  * 2. GET /review - Get order review with all details
- * 3. POST /place-order - Place the order transactionally
+ * 3. POST /reserve - Hold the cart's stock for a limited time while the customer decides
+ * 4. POST /place-order - Place the order transactionally; an Idempotency-Key header makes
+ *    retries return the first result instead of ordering again
  */
 @RestController
 @RequestMapping("/api/checkout")
@@ -39,15 +43,20 @@ public class CheckoutController {
     private final CheckoutSelectionRepository selectionRepo;
     private final AddressRepository addressRepo;
     private final OrderService orderService;
+    private final StockReservationService reservationService;
+    private final IdempotencyService idempotencyService;
 
     public CheckoutController(UserService userService, CartService cartService, 
                             CheckoutSelectionRepository selectionRepo, AddressRepository addressRepo, 
-                            OrderService orderService) {
+                            OrderService orderService, StockReservationService reservationService,
+                            IdempotencyService idempotencyService) {
         this.userService = userService;
         this.cartService = cartService;
         this.selectionRepo = selectionRepo;
         this.addressRepo = addressRepo;
         this.orderService = orderService;
+        this.reservationService = reservationService;
+        this.idempotencyService = idempotencyService;
     }
 
     /**
@@ -189,25 +198,12 @@ public class CheckoutController {
                 return ResponseEntity.badRequest().body("No payment method selected. Please choose payment method.");
             }
 
-            // 7. Get cart items
-            List<CartItem> cart = cartService.getCart(user);
-            if (cart == null || cart.isEmpty()) {
+            // 7. Get cart items (lines and product columns in one query)
+            List<CartItemDTO> items = cartService.getCartView(user);
+            if (items.isEmpty()) {
                 return ResponseEntity.badRequest().body("Your cart is empty. Please add items before checkout.");
             }
 
-            // 8. Map cart items to DTOs
-            List<CartItemDTO> items = cart.stream().map(ci -> {
-                CartItemDTO dto = new CartItemDTO();
-                dto.id = ci.getId();
-                dto.productId = ci.getProduct().getId();
-                dto.name = ci.getProduct().getName();
-                dto.imageUrl = ci.getProduct().getImageUrl();
-                dto.quantity = ci.getQuantity();
-                dto.price = ci.getPriceAtAdd();
-                dto.lineTotal = (ci.getPriceAtAdd() != null ? ci.getPriceAtAdd() : 0.0) * ci.getQuantity();
-                return dto;
-            }).collect(Collectors.toList());
-
             // 9. Calculate totals
             double subtotal = items.stream().mapToDouble(i -> i.lineTotal).sum();
             double shippingFee = "express".equalsIgnoreCase(selection.getDeliveryOption()) ? 100.0 : 50.0;
@@ -239,46 +235,55 @@ public class CheckoutController {
         }
     }
 
+    /**
+     * Hold the stock of the current cart, replacing and extending an earlier hold.
+     * Called when the customer moves on to the final review; placing the order later keeps
+     * the held units.
+     * @return reservedUntil: when the hold lapses; placing the order after that may find it sold out
+     */
+    @PostMapping("/reserve")
+    public ResponseEntity<?> reserve(@RequestParam("email") String email) {
+        try {
+            User user = requireUser(email);
+            List<CartItemDTO> items = cartService.getCartView(user);
+            if (items.isEmpty()) {
+                return ResponseEntity.badRequest().body("Your cart is empty. Please add items before checkout.");
+            }
+            return ResponseEntity.ok(Map.of("reservedUntil", reservationService.reserve(user, items)));
+
+        } catch (IllegalArgumentException e) {
+            logger.error("Invalid request for user: {}", email, e);
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (IllegalStateException e) {
+            // Stock could not be reserved
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        } catch (RuntimeException e) {
+            logger.error("Error reserving stock for user: {}", email, e);
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        } catch (Exception e) {
+            logger.error("Unexpected error reserving stock for user: {}", email, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Internal server error");
+        }
+    }
+
 
     /**
      * Place order transactionally
-     * This endpoint finalizes the order and clears the cart
+     * This endpoint finalizes the order and clears the cart.
+     * With an Idempotency-Key, a repeat (double click, retry) gets the first order back; one
+     * sent while the first is still running waits for it.
      */
     @PostMapping("/place-order")
-    @Transactional
-    public ResponseEntity<?> placeOrder(@RequestParam("email") String email) {
+    public ResponseEntity<?> placeOrder(@RequestParam("email") String email,
+                                        @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
         try {
             logger.debug("Placing order for user: {}", email);
             
             User user = requireUser(email);
-            
-            // Validate that all checkout selections are complete
-            CheckoutSelection selection = selectionRepo.findByUser(user)
-                .orElse(null);
-            if (selection == null) {
-                return ResponseEntity.badRequest().body("No checkout selection found. Please complete checkout steps.");
-            }
-            
-            if (selection.getAddressId() == null) {
-                return ResponseEntity.badRequest().body("No address selected. Please select a delivery address.");
-            }
-            
-            if (selection.getDeliveryOption() == null || selection.getDeliveryOption().trim().isEmpty()) {
-                return ResponseEntity.badRequest().body("No delivery option selected. Please choose delivery method.");
-            }
-            
-            if (selection.getPaymentMethod() == null || selection.getPaymentMethod().trim().isEmpty()) {
-                return ResponseEntity.badRequest().body("No payment method selected. Please choose payment method.");
-            }
-            
-            // Validate cart is not empty
-            List<CartItem> cart = cartService.getCart(user);
-            if (cart == null || cart.isEmpty()) {
-                return ResponseEntity.badRequest().body("Your cart is empty. Please add items before placing order.");
-            }
-            
-            // Place the order
-            Order order = orderService.placeOrder(user);
+            OrderDTO order = idempotencyKey == null
+                ? placeValidatedOrder(user)
+                : idempotencyService.execute("order:" + user.getId(), idempotencyKey, OrderDTO.class,
+                        () -> placeValidatedOrder(user));
             
             logger.info("Order placed successfully for user: {} with order ID: {}", email, order.getId());
             return ResponseEntity.ok(order);
@@ -286,6 +291,8 @@ public class CheckoutController {
         } catch (IllegalArgumentException e) {
             logger.error("Invalid request for user: {}", email, e);
             return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (RequestInProgressException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
         } catch (RuntimeException e) {
             logger.error("Error placing order for user: {}", email, e);
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
@@ -294,6 +301,31 @@ public class CheckoutController {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Internal server error");
         }
     }
-}
-
 
+    /**
+     * Validate that all checkout selections are complete and the cart is not empty, then place the order
+     * @throws IllegalArgumentException when a checkout step is missing
+     */
+    private OrderDTO placeValidatedOrder(User user) {
+        CheckoutSelection selection = selectionRepo.findByUser(user)
+            .orElseThrow(() -> new IllegalArgumentException("No checkout selection found. Please complete checkout steps."));
+        
+        if (selection.getAddressId() == null) {
+            throw new IllegalArgumentException("No address selected. Please select a delivery address.");
+        }
+        
+        if (selection.getDeliveryOption() == null || selection.getDeliveryOption().trim().isEmpty()) {
+            throw new IllegalArgumentException("No delivery option selected. Please choose delivery method.");
+        }
+        
+        if (selection.getPaymentMethod() == null || selection.getPaymentMethod().trim().isEmpty()) {
+            throw new IllegalArgumentException("No payment method selected. Please choose payment method.");
+        }
+        
+        if (cartService.getCartView(user).isEmpty()) {
+            throw new IllegalArgumentException("Your cart is empty. Please add items before placing order.");
+        }
+        
+        return new OrderDTO(orderService.placeOrder(user));
+    }
+}
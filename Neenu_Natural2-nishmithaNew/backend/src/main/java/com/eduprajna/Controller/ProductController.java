@@ -1,44 +1,86 @@
 package com.eduprajna.Controller;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Optional;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RequestPart;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
 
+import com.eduprajna.dto.ImportReportDTO;
+import com.eduprajna.dto.ProductDeltaDTO;
+import com.eduprajna.dto.StockSyncReportDTO;
 import com.eduprajna.entity.Product;
+import com.eduprajna.service.FileResponseWriter;
+import com.eduprajna.service.ImageDerivativeService;
+import com.eduprajna.service.ImageIndexService;
+import com.eduprajna.service.ImageReferenceService;
+import com.eduprajna.service.ImageUploadService;
+import com.eduprajna.service.ProductBulkService;
 import com.eduprajna.service.ProductService;
 import com.eduprajna.service.StorageService;
+import com.eduprajna.service.UploadTooLargeException;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 
 @RestController
 @RequestMapping("/api/admin/products")
 @CrossOrigin(origins = {"http://localhost:3000", "http://127.0.0.1:3000"}, allowCredentials = "true")
 
 public class ProductController {
+    private static final String IMMUTABLE_CACHE_CONTROL = "public, max-age=31536000, immutable";
+    private static final int MAX_IMAGE_PAGE_SIZE = 200;
+
     @Autowired
     private ProductService productService;
 
     @Autowired
     private StorageService storageService;
 
+    @Autowired
+    private ProductBulkService productBulkService;
+
+    @Autowired
+    private ImageDerivativeService imageDerivativeService;
+
+    @Autowired
+    private FileResponseWriter fileResponseWriter;
+
+    @Autowired
+    private ImageReferenceService imageReferenceService;
+
+    @Autowired
+    private ImageIndexService imageIndexService;
+
+    @Autowired
+    private ImageUploadService imageUploadService;
+
     @GetMapping
-    public ResponseEntity<List<Product>> getAll() {
+    public ResponseEntity<List<Product>> getAll(@RequestParam(value = "category", required = false) String category) {
+        if (category != null && !category.isBlank()) {
+            return ResponseEntity.ok(productService.getByCategory(category));
+        }
         return ResponseEntity.ok(productService.getAll());
     }
 
@@ -57,11 +99,31 @@ public class ProductController {
         if (imageFile != null && !imageFile.isEmpty()) {
             String relativePath = storageService.store(imageFile);
             p.setImageUrl(relativePath);
+            imageReferenceService.registerUpload(relativePath);
+            imageDerivativeService.generateAsync(storageService.extractFilenameFromUrl(relativePath));
         }
         Product saved = productService.save(p);
         return ResponseEntity.ok(saved);
     }
 
+    // Bulk create/update from a CSV (header row = product field names) or NDJSON body.
+    // Rows with an id update that product, rows without one are inserted.
+    @PostMapping(value = "/import", consumes = {"text/csv", "application/x-ndjson"})
+    public ResponseEntity<ImportReportDTO> importProducts(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+            InputStream body
+    ) throws IOException {
+        String format = contentType.toLowerCase().startsWith("application/x-ndjson")
+                ? ProductBulkService.FORMAT_NDJSON : ProductBulkService.FORMAT_CSV;
+        return ResponseEntity.ok(productBulkService.importProducts(body, format));
+    }
+
+    // Partial price/stock updates from the warehouse feed; only changed rows are written
+    @PatchMapping("/stock")
+    public ResponseEntity<StockSyncReportDTO> syncStock(@RequestBody List<ProductDeltaDTO> deltas) {
+        return ResponseEntity.ok(productBulkService.applyDeltas(deltas));
+    }
+
     @PutMapping("/{id}")
     public ResponseEntity<Product> update(@PathVariable Long id, @RequestBody Product p) {
         p.setId(id);
@@ -70,41 +132,123 @@ public class ProductController {
 
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> delete(@PathVariable Long id) {
-        // Load product to get image URL before deleting DB row
-        try {
-            Product existing = productService.getById(id);
-            if (existing != null && existing.getImageUrl() != null) {
-                String filename = storageService.extractFilenameFromUrl(existing.getImageUrl());
-                if (filename != null) {
-                    storageService.delete(filename);
-                }
-            }
-        } catch (Exception ignored) {
-            // Ignore errors during image deletion; proceed to delete DB row
-        }
+        // The image file is released by reference count inside productService.delete
         productService.delete(id);
         return ResponseEntity.noContent().build();
     }
 
     // Serve uploaded images via API so frontend can display them
+    // ?w= selects a resized copy (see Product.IMAGE_WIDTHS); until it has been generated the original is sent.
+    // Sent zero-copy with Range, ETag and 304 support (FileResponseWriter).
     @GetMapping("/images/{filename:.+}")
-    public ResponseEntity<Resource> getImage(@PathVariable String filename) throws IOException {
-        Resource resource = storageService.loadAsResource(filename);
-        MediaType contentType = storageService.probeMediaType(filename);
-        return ResponseEntity.ok()
-                .header(HttpHeaders.CACHE_CONTROL, "max-age=86400, public")
-                .contentType(contentType)
-                .body(resource);
+    public void getImage(@PathVariable String filename,
+                         @RequestParam(value = "w", required = false) Integer width,
+                         HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Path file = storageService.resolvePath(filename);
+        if (!file.startsWith(storageService.getUploadRoot().normalize())) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST);
+            return;
+        }
+        // Content-addressed names never change content, so they can be cached for good
+        boolean immutable = StorageService.isContentAddressed(filename);
+        String cacheControl = immutable ? IMMUTABLE_CACHE_CONTROL : "max-age=86400, public";
+        String etag = immutable ? "\"" + filename + (width != null ? "-w" + width : "") + "\"" : null;
+        if (width != null) {
+            if (!ImageDerivativeService.isSupportedWidth(width)) {
+                response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Unsupported width");
+                return;
+            }
+            Optional<Path> derived = imageDerivativeService.find(filename, width);
+            if (derived.isPresent()) {
+                file = derived.get();
+            } else {
+                // Short lifetime for a stand-in original so the resized copy is picked up soon
+                cacheControl = "max-age=60, public";
+                etag = null;
+            }
+        }
+        try {
+            fileResponseWriter.write(request, response, file, etag, cacheControl);
+        } catch (NoSuchFileException e) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+        }
     }
 
-    // List all stored image filenames (or absolute URLs)
+    // Page through stored images (metadata index, oldest first); pass nextAfterId back as afterId
     @GetMapping("/images")
-    public ResponseEntity<List<String>> listImages() {
-        List<String> files = storageService.listAll();
-        // Convert filenames to API URLs for convenience
-        List<String> urls = files.stream()
-                .map(name -> "/api/admin/products/images/" + name)
-                .collect(Collectors.toList());
-        return ResponseEntity.ok(urls);
+    public ResponseEntity<?> listImages(
+            @RequestParam(value = "afterId", required = false) Long afterId,
+            @RequestParam(value = "limit", required = false, defaultValue = "50") int limit,
+            @RequestParam(value = "mimeType", required = false) String mimeType,
+            @RequestParam(value = "referenced", required = false) Boolean referenced) {
+        if (limit < 1 || limit > MAX_IMAGE_PAGE_SIZE) {
+            return ResponseEntity.badRequest().body("Limit must be between 1 and " + MAX_IMAGE_PAGE_SIZE);
+        }
+        return ResponseEntity.ok(imageIndexService.page(afterId, limit, mimeType, referenced));
+    }
+
+    // Streaming upload of one or more image files (any multipart field names); the body is
+    // parsed incrementally and written straight to disk, see ImageUploadService
+    @PostMapping(value = "/images", consumes = {"multipart/form-data"})
+    public ResponseEntity<?> uploadImages(HttpServletRequest request) throws IOException {
+        try {
+            return ResponseEntity.ok(imageUploadService.storeMultipart(
+                    request.getInputStream(), request.getContentType(), request.getContentLengthLong()));
+        } catch (UploadTooLargeException e) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(e.getMessage());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    // Resumable upload: open with {filename, size}, then PUT chunks with Content-Range at the reported offset
+    @PostMapping("/uploads")
+    public ResponseEntity<?> openUpload(@RequestBody Map<String, Object> body) throws IOException {
+        Object size = body.get("size");
+        if (!(size instanceof Number)) return ResponseEntity.badRequest().body("Size is required");
+        try {
+            return ResponseEntity.ok(imageUploadService.openSession((String) body.get("filename"), ((Number) size).longValue()));
+        } catch (UploadTooLargeException e) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(e.getMessage());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @GetMapping("/uploads/{id}")
+    public ResponseEntity<?> uploadStatus(@PathVariable String id) {
+        try {
+            return ResponseEntity.ok(imageUploadService.status(id));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        }
+    }
+
+    @PutMapping("/uploads/{id}")
+    public ResponseEntity<?> uploadChunk(@PathVariable String id,
+                                         @RequestHeader(value = HttpHeaders.CONTENT_RANGE, required = false) String contentRange,
+                                         InputStream body) throws IOException {
+        try {
+            return ResponseEntity.ok(imageUploadService.appendChunk(id, contentRange, body));
+        } catch (IllegalStateException e) {
+            // Out-of-order chunk: the client should re-read the offset
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        } catch (UploadTooLargeException e) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(e.getMessage());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @DeleteMapping("/uploads/{id}")
+    public ResponseEntity<Void> abortUpload(@PathVariable String id) throws IOException {
+        imageUploadService.abort(id);
+        return ResponseEntity.noContent().build();
+    }
+
+    // Reconcile the image index with the files on disk
+    @PostMapping("/images/reindex")
+    public ResponseEntity<Map<String, Integer>> reindexImages() throws IOException {
+        return ResponseEntity.ok(Map.of("files", imageIndexService.rebuildFromDisk()));
     }
 }
\ No newline at end of file
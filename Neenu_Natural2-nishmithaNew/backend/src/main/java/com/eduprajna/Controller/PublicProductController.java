@@ -0,0 +1,199 @@
+package com.eduprajna.Controller;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.eduprajna.dto.CatalogFilter;
+import com.eduprajna.dto.CatalogPageDTO;
+import com.eduprajna.dto.FacetCountsDTO;
+import com.eduprajna.dto.ProductSummaryDTO;
+import com.eduprajna.dto.SuggestionDTO;
+import com.eduprajna.service.AutocompleteService;
+import com.eduprajna.service.FacetService;
+import com.eduprajna.service.CategoryService;
+import com.eduprajna.service.CategoryTree;
+import com.eduprajna.service.ProductAttributeService;
+import com.eduprajna.service.ProductCatalogCache;
+import com.eduprajna.service.ProductSearchService;
+import com.eduprajna.service.ProductService;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Public, read-only product catalog for the storefront.
+ * Unlike /api/admin/products this never returns the whole table: pages are
+ * fetched with a keyset cursor and contain only the slim ProductSummaryDTO.
+ */
+@RestController
+@RequestMapping("/api/products")
+@CrossOrigin(origins = {"http://localhost:3000", "http://127.0.0.1:3000"}, allowCredentials = "true")
+public class PublicProductController {
+    private static final Logger logger = LoggerFactory.getLogger(PublicProductController.class);
+
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final Set<String> SORTS = Set.of(
+        CatalogFilter.SORT_ID, CatalogFilter.SORT_PRICE, CatalogFilter.SORT_PRICE_DESC);
+
+    private static final int MAX_QUERY_LENGTH = 200;
+
+    private final ProductService productService;
+    private final ProductSearchService searchService;
+    private final ProductCatalogCache catalogCache;
+    private final AutocompleteService autocompleteService;
+    private final FacetService facetService;
+    private final CategoryService categoryService;
+
+    public PublicProductController(ProductService productService, ProductSearchService searchService,
+                                   ProductCatalogCache catalogCache, AutocompleteService autocompleteService,
+                                   FacetService facetService, CategoryService categoryService) {
+        this.productService = productService;
+        this.searchService = searchService;
+        this.catalogCache = catalogCache;
+        this.autocompleteService = autocompleteService;
+        this.facetService = facetService;
+        this.categoryService = categoryService;
+    }
+
+    /**
+     * List catalog products one page at a time
+     * @param categoryId matches products in that category or any category below it
+     * @param ingredient / benefit match one normalized attribute (case and spacing insensitive)
+     * @param sort id (default), price or price_desc
+     * @param afterId id of the last product on the previous page
+     * @param afterPrice price of the last product on the previous page (price sorts only)
+     * @return Page of products and the cursor for the next page
+     */
+    @GetMapping
+    public ResponseEntity<?> getCatalog(
+            @RequestParam(value = "category", required = false) String category,
+            @RequestParam(value = "subcategory", required = false) String subcategory,
+            @RequestParam(value = "categoryId", required = false) Long categoryId,
+            @RequestParam(value = "ingredient", required = false) String ingredient,
+            @RequestParam(value = "benefit", required = false) String benefit,
+            @RequestParam(value = "inStock", required = false) Boolean inStock,
+            @RequestParam(value = "sort", required = false, defaultValue = CatalogFilter.SORT_ID) String sort,
+            @RequestParam(value = "afterId", required = false) Long afterId,
+            @RequestParam(value = "afterPrice", required = false) Double afterPrice,
+            @RequestParam(value = "limit", required = false, defaultValue = "24") int limit) {
+        if (!SORTS.contains(sort)) {
+            return ResponseEntity.badRequest().body("Invalid sort. Valid values: " + SORTS);
+        }
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest().body("Limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        if (!CatalogFilter.SORT_ID.equals(sort) && (afterPrice == null) != (afterId == null)) {
+            return ResponseEntity.badRequest().body("afterPrice and afterId must be provided together");
+        }
+
+        CatalogFilter filter = new CatalogFilter();
+        filter.category = blankToNull(category);
+        filter.subcategory = blankToNull(subcategory);
+        if (categoryId != null) {
+            CategoryTree.Node node = categoryService.getTree().get(categoryId);
+            if (node == null) {
+                return ResponseEntity.badRequest().body("Unknown categoryId: " + categoryId);
+            }
+            filter.categoryIds = node.subtreeIds();
+        }
+        filter.ingredient = ProductAttributeService.normalize(ingredient);
+        filter.benefit = ProductAttributeService.normalize(benefit);
+        filter.inStock = inStock;
+        // Storefront: hidden products are never listed
+        filter.isActive = Boolean.TRUE;
+        filter.sort = sort;
+        filter.afterId = afterId;
+        filter.afterPrice = afterPrice;
+        filter.limit = limit;
+
+        CatalogPageDTO page = productService.getCatalogPage(filter);
+        logger.debug("Catalog page sort={} afterId={} returned {} items", sort, afterId, page.items.size());
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(30, TimeUnit.SECONDS).cachePublic())
+                .body(page);
+    }
+
+    /**
+     * Full-text search over name, description, ingredients and benefits
+     * Served from the in-memory index; matched products come from the catalog cache.
+     * @param q Search text; single-typo words are still matched
+     * @param limit Maximum number of results
+     * @return Matching products, best match first
+     */
+    @GetMapping("/search")
+    public ResponseEntity<?> search(
+            @RequestParam("q") String q,
+            @RequestParam(value = "limit", required = false, defaultValue = "20") int limit) {
+        if (q == null || q.trim().isEmpty()) {
+            return ResponseEntity.badRequest().body("Query is required");
+        }
+        if (q.length() > MAX_QUERY_LENGTH) {
+            return ResponseEntity.badRequest().body("Query must be at most " + MAX_QUERY_LENGTH + " characters");
+        }
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest().body("Limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        List<ProductSummaryDTO> results = searchService.search(q, limit).stream()
+                .map(catalogCache::findById)
+                .flatMap(Optional::stream)
+                .map(ProductSummaryDTO::from)
+                .collect(Collectors.toList());
+        logger.debug("Search '{}' returned {} results", q, results.size());
+        return ResponseEntity.ok(results);
+    }
+
+    /**
+     * Typeahead suggestions (product names, categories, subcategories) for a prefix
+     * @param q What the user has typed so far
+     * @param limit Maximum suggestions (at most 10)
+     * @return Suggestions, most popular first
+     */
+    @GetMapping("/suggest")
+    public ResponseEntity<List<SuggestionDTO>> suggest(
+            @RequestParam(value = "q", required = false, defaultValue = "") String q,
+            @RequestParam(value = "limit", required = false, defaultValue = "8") int limit) {
+        if (q.length() > MAX_QUERY_LENGTH || limit < 1) {
+            return ResponseEntity.ok(List.of());
+        }
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(60, TimeUnit.SECONDS).cachePublic())
+                .body(autocompleteService.suggest(q, limit));
+    }
+
+    /**
+     * Sidebar facet counts for a filter combination, answered from in-memory bitsets
+     * @param price A price bucket label as returned in the counts, e.g. "250-500" or "2000+"
+     * @return Total matches and per-value counts for category, subcategory, price and inStock
+     */
+    @GetMapping("/facets")
+    public ResponseEntity<FacetCountsDTO> facets(
+            @RequestParam(value = "category", required = false) String category,
+            @RequestParam(value = "subcategory", required = false) String subcategory,
+            @RequestParam(value = "price", required = false) String price,
+            @RequestParam(value = "inStock", required = false) Boolean inStock) {
+        Map<String, String> filters = new HashMap<>();
+        if (blankToNull(category) != null) filters.put(FacetService.FACET_CATEGORY, category.trim());
+        if (blankToNull(subcategory) != null) filters.put(FacetService.FACET_SUBCATEGORY, subcategory.trim());
+        if (blankToNull(price) != null) filters.put(FacetService.FACET_PRICE, price.trim());
+        if (inStock != null) filters.put(FacetService.FACET_IN_STOCK, inStock.toString());
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(30, TimeUnit.SECONDS).cachePublic())
+                .body(facetService.count(filters));
+    }
+
+    private static String blankToNull(String value) {
+        return (value == null || value.trim().isEmpty()) ? null : value.trim();
+    }
+}
@@ -0,0 +1,252 @@
+package com.eduprajna.config;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.AbstractResource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.servlet.resource.HttpResource;
+import org.springframework.web.servlet.resource.ResourceResolver;
+import org.springframework.web.servlet.resource.ResourceResolverChain;
+import org.springframework.web.util.UriUtils;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * In-memory index of the built frontend, scanned once at startup.
+ *
+ * For every file it keeps the size, modification time and a content ETag, plus the
+ * precompressed .br/.gz siblings written by the frontend build (scripts/precompress.mjs).
+ * Requests are answered from the map alone: the best encoding the client accepts is chosen,
+ * fingerprinted files (Vite's assets/name-hash.ext) are cached for a year as immutable, and
+ * everything else, index.html included, is revalidated against its ETag on each use.
+ */
+public final class StaticAssetManifest {
+    private static final Logger logger = LoggerFactory.getLogger(StaticAssetManifest.class);
+
+    private static final String IMMUTABLE = "public, max-age=31536000, immutable";
+    private static final String REVALIDATE = "no-cache";
+    // Vite emits hashed assets as assets/name-XXXXXXXX.ext with an 8 character base64url hash;
+    // only that directory is hashed by the build, so a look-alike name elsewhere
+    // (asset-manifest.json) is not treated as fingerprinted
+    private static final String HASHED_DIR = "assets/";
+    private static final Pattern FINGERPRINTED = Pattern.compile(".+-[A-Za-z0-9_-]{8}\\.[a-z0-9]+");
+
+    private final Map<String, Entry> entries;
+
+    private StaticAssetManifest(Map<String, Entry> entries) {
+        this.entries = entries;
+    }
+
+    /**
+     * Index every file below the given locations; earlier locations win on duplicate paths
+     */
+    public static StaticAssetManifest scan(String... locations) {
+        long start = System.currentTimeMillis();
+        PathMatchingResourcePatternResolver resolver = new PathMatchingResourcePatternResolver();
+        Map<String, Resource> files = new HashMap<>();
+        for (String location : locations) {
+            try {
+                for (Resource root : resolver.getResources(location)) {
+                    if (!root.exists()) continue;
+                    String base = root.getURL().toString();
+                    if (!base.endsWith("/")) base += "/";
+                    for (Resource r : resolver.getResources(base + "**")) {
+                        String url = r.getURL().toString();
+                        if (url.endsWith("/") || !r.isReadable()) continue;
+                        files.putIfAbsent(UriUtils.decode(url.substring(base.length()), StandardCharsets.UTF_8), r);
+                    }
+                }
+            } catch (IOException e) {
+                logger.warn("Could not scan static location {}: {}", location, e.getMessage());
+            }
+        }
+
+        Map<String, Entry> entries = new HashMap<>();
+        for (Map.Entry<String, Resource> f : files.entrySet()) {
+            String path = f.getKey();
+            if (isVariant(path, files)) continue;
+            try {
+                entries.put(path, new Entry(path, f.getValue(), files.get(path + ".br"), files.get(path + ".gz")));
+            } catch (IOException e) {
+                logger.warn("Skipping static file {}: {}", path, e.getMessage());
+            }
+        }
+        logger.info("Static asset manifest: {} files ({} precompressed) in {} ms", entries.size(),
+                entries.values().stream().filter(e -> e.br != null || e.gzip != null).count(),
+                System.currentTimeMillis() - start);
+        return new StaticAssetManifest(Map.copyOf(entries));
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Resolver that answers from the manifest only; paths are relative to the scanned roots
+     */
+    public ResourceResolver resolver() {
+        return new ResourceResolver() {
+            @Override
+            public Resource resolveResource(HttpServletRequest request, String requestPath,
+                                            List<? extends Resource> locations, ResourceResolverChain chain) {
+                Entry entry = entries.get(requestPath);
+                if (entry == null) return null;
+                return entry.select(request == null ? null : request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+            }
+
+            @Override
+            public String resolveUrlPath(String resourcePath, List<? extends Resource> locations,
+                                         ResourceResolverChain chain) {
+                return entries.containsKey(resourcePath) ? resourcePath : null;
+            }
+        };
+    }
+
+    /**
+     * ETag for the handler's etag generator; null for resources not served from the manifest
+     */
+    public static String etagOf(Resource resource) {
+        return (resource instanceof AssetResource asset) ? asset.etag : null;
+    }
+
+    // A .br/.gz file whose uncompressed original is also present
+    private static boolean isVariant(String path, Map<String, Resource> files) {
+        return (path.endsWith(".br") && files.containsKey(path.substring(0, path.length() - 3)))
+                || (path.endsWith(".gz") && files.containsKey(path.substring(0, path.length() - 3)));
+    }
+
+    // Which of br/gzip the Accept-Encoding header allows (q=0 disables a coding)
+    static boolean accepts(String acceptEncoding, String coding) {
+        if (acceptEncoding == null) return false;
+        for (String part : acceptEncoding.split(",")) {
+            String[] tokens = part.trim().split(";");
+            if (!tokens[0].trim().equalsIgnoreCase(coding)) continue;
+            for (int i = 1; i < tokens.length; i++) {
+                String t = tokens[i].trim().toLowerCase(Locale.ROOT);
+                if (t.startsWith("q=")) {
+                    try {
+                        return Double.parseDouble(t.substring(2)) > 0;
+                    } catch (NumberFormatException e) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private static final class Entry {
+        final AssetResource identity;
+        final AssetResource br;
+        final AssetResource gzip;
+
+        Entry(String path, Resource file, Resource brFile, Resource gzFile) throws IOException {
+            String filename = path.substring(path.lastIndexOf('/') + 1);
+            boolean encoded = brFile != null || gzFile != null;
+            boolean hashed = path.startsWith(HASHED_DIR) && FINGERPRINTED.matcher(filename).matches();
+            String cacheControl = hashed ? IMMUTABLE : REVALIDATE;
+            String etag = contentHash(file);
+            this.identity = new AssetResource(file, filename, etag, null, encoded, cacheControl);
+            this.br = brFile == null ? null : new AssetResource(brFile, filename, etag + "-br", "br", true, cacheControl);
+            this.gzip = gzFile == null ? null : new AssetResource(gzFile, filename, etag + "-gz", "gzip", true, cacheControl);
+        }
+
+        AssetResource select(String acceptEncoding) {
+            if (br != null && accepts(acceptEncoding, "br")) return br;
+            if (gzip != null && accepts(acceptEncoding, "gzip")) return gzip;
+            return identity;
+        }
+    }
+
+    private static String contentHash(Resource file) throws IOException {
+        try (InputStream in = file.getInputStream()) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] buffer = new byte[8192];
+            int n;
+            while ((n = in.read(buffer)) > 0) digest.update(buffer, 0, n);
+            return HexFormat.of().formatHex(digest.digest(), 0, 12);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * One stored representation; size and dates come from the manifest, only the body is read
+     */
+    private static final class AssetResource extends AbstractResource implements HttpResource {
+        private final Resource file;
+        private final String filename;
+        private final String etag;
+        private final long length;
+        private final long lastModified;
+        private final HttpHeaders headers = new HttpHeaders();
+
+        AssetResource(Resource file, String filename, String etag, String contentEncoding,
+                      boolean varies, String cacheControl) throws IOException {
+            this.file = file;
+            this.filename = filename;
+            this.etag = etag;
+            this.length = file.contentLength();
+            this.lastModified = file.lastModified();
+            if (contentEncoding != null) headers.set(HttpHeaders.CONTENT_ENCODING, contentEncoding);
+            if (varies) headers.set(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            headers.set(HttpHeaders.CACHE_CONTROL, cacheControl);
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return file.getInputStream();
+        }
+
+        @Override
+        public boolean exists() {
+            return true;
+        }
+
+        @Override
+        public long contentLength() {
+            return length;
+        }
+
+        @Override
+        public long lastModified() {
+            return lastModified;
+        }
+
+        @Override
+        public URL getURL() throws IOException {
+            return file.getURL();
+        }
+
+        @Override
+        public String getFilename() {
+            return filename;
+        }
+
+        @Override
+        public String getDescription() {
+            return "static asset [" + filename + "] from " + file.getDescription();
+        }
+
+        @Override
+        public HttpHeaders getResponseHeaders() {
+            return headers;
+        }
+    }
+}
@@ -8,6 +8,7 @@ import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 @Configuration
 public class WebConfig implements WebMvcConfigurer {
+    private static final String[] STATIC_LOCATIONS = { "classpath:/static/", "file:/app/static/" };
 
     @Override
     public void addResourceHandlers(@NonNull ResourceHandlerRegistry registry) {
@@ -16,10 +17,14 @@ public class WebConfig implements WebMvcConfigurer {
         registry.addResourceHandler("/uploads/**")
                 .addResourceLocations("file:" + uploadDir + "/");
         
-        // Serve static frontend files (for Docker deployment)
+        // Serve static frontend files (for Docker deployment) from a manifest built once here;
+        // Cache-Control, Content-Encoding and Vary come from the manifest per file
+        StaticAssetManifest manifest = StaticAssetManifest.scan(STATIC_LOCATIONS);
         registry.addResourceHandler("/**")
-                .addResourceLocations("classpath:/static/", "file:/app/static/")
-                .setCachePeriod(31556926); // 1 year cache
+                .addResourceLocations(STATIC_LOCATIONS)
+                .setEtagGenerator(StaticAssetManifest::etagOf)
+                .resourceChain(false)
+                .addResolver(manifest.resolver());
     }
 
     @Override
@@ -0,0 +1,27 @@
+package com.eduprajna.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of a batch cart mutation: the cart afterwards plus the operations that were refused.
+ * Indexes are 0-based positions in the request's operation list.
+ */
+public class CartBatchResultDTO {
+  public int applied;
+  public int failed;
+  public List<OperationError> errors = new ArrayList<>();
+  public List<CartItemDTO> items;
+
+  public static class OperationError {
+    public int index;
+    public String productId;
+    public String message;
+
+    public OperationError(int index, String productId, String message) {
+      this.index = index;
+      this.productId = productId;
+      this.message = message;
+    }
+  }
+}
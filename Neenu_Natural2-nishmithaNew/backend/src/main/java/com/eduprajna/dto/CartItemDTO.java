@@ -8,6 +8,20 @@ public class CartItemDTO {
   public Integer quantity;
   public Double price;
   public Double lineTotal;
+
+  public CartItemDTO() {
+  }
+
+  // Constructor projection target for CartItemRepository.findCartView
+  public CartItemDTO(Long id, Long productId, String name, String imageUrl, Integer quantity, Double price) {
+    this.id = id;
+    this.productId = productId;
+    this.name = name;
+    this.imageUrl = imageUrl;
+    this.quantity = quantity;
+    this.price = price;
+    this.lineTotal = (price != null ? price : 0.0) * (quantity != null ? quantity : 0);
+  }
 }
 
 
@@ -0,0 +1,11 @@
+package com.eduprajna.dto;
+
+/**
+ * One step of a batch cart mutation: op is "add", "update" or "remove".
+ * productId accepts the same forms as /api/cart/add (a number, or strings like "2-default").
+ */
+public class CartOperationDTO {
+  public String op;
+  public String productId;
+  public Integer quantity;
+}
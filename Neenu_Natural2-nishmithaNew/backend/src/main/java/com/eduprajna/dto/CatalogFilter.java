@@ -0,0 +1,28 @@
+package com.eduprajna.dto;
+
+import java.util.List;
+
+/**
+ * Filter and keyset cursor for a catalog page request.
+ * The cursor is the sort key of the last row of the previous page
+ * (afterId for id order, afterPrice + afterId for price order).
+ */
+public class CatalogFilter {
+  public static final String SORT_ID = "id";
+  public static final String SORT_PRICE = "price";
+  public static final String SORT_PRICE_DESC = "price_desc";
+
+  public String category;
+  public String subcategory;
+  /** Category node ids to match (a whole subtree), resolved from the in-memory tree */
+  public List<Long> categoryIds;
+  /** Normalized ingredient/benefit name (see ProductAttributeService.normalize) */
+  public String ingredient;
+  public String benefit;
+  public Boolean inStock;
+  public Boolean isActive;
+  public String sort = SORT_ID;
+  public Long afterId;
+  public Double afterPrice;
+  public int limit = 24;
+}
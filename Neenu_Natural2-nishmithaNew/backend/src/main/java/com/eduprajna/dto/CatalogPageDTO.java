@@ -0,0 +1,14 @@
+package com.eduprajna.dto;
+
+import java.util.List;
+
+/**
+ * One page of the public catalog plus the cursor for the next page.
+ * nextAfterId/nextAfterPrice are null when there are no more rows.
+ */
+public class CatalogPageDTO {
+  public List<ProductSummaryDTO> items;
+  public boolean hasMore;
+  public Long nextAfterId;
+  public Double nextAfterPrice;
+}
@@ -0,0 +1,15 @@
+package com.eduprajna.dto;
+
+import java.util.List;
+
+/**
+ * A category as served by /api/categories. children is only filled for the /tree view.
+ */
+public class CategoryDTO {
+  public Long id;
+  public String name;
+  public Long parentId;
+  public String path;
+  public int depth;
+  public List<CategoryDTO> children;
+}
@@ -0,0 +1,15 @@
+package com.eduprajna.dto;
+
+import java.util.Map;
+
+/**
+ * Result of a facet query: how many active products match the filters, and for each facet
+ * how many would match if that facet's own filter were changed to each value.
+ */
+public class FacetCountsDTO {
+  public int total;
+  public Map<String, Integer> category;
+  public Map<String, Integer> subcategory;
+  public Map<String, Integer> price;
+  public Map<String, Integer> inStock;
+}
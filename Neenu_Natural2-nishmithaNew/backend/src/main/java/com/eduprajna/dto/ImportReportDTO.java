@@ -0,0 +1,26 @@
+package com.eduprajna.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of a bulk product import. Row numbers are 1-based data rows (the CSV header is not counted).
+ */
+public class ImportReportDTO {
+  public long totalRows;
+  public long inserted;
+  public long updated;
+  public long failed;
+  public boolean errorsTruncated;
+  public List<RowError> errors = new ArrayList<>();
+
+  public static class RowError {
+    public long row;
+    public String message;
+
+    public RowError(long row, String message) {
+      this.row = row;
+      this.message = message;
+    }
+  }
+}
@@ -0,0 +1,12 @@
+package com.eduprajna.dto;
+
+/**
+ * One entry of a bulk price/stock update. Null fields are left unchanged; stockQuantity
+ * counts units on hand, including those held for carts.
+ */
+public class ProductDeltaDTO {
+  public Long id;
+  public Double price;
+  public Integer stockQuantity;
+  public Boolean inStock;
+}
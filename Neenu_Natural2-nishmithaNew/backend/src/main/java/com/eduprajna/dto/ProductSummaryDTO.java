@@ -0,0 +1,52 @@
+package com.eduprajna.dto;
+
+import com.eduprajna.entity.Product;
+
+/**
+ * Slim read-only view of a Product for catalog listings.
+ * Leaves out the long text columns (description, ingredients, benefits)
+ * so list payloads stay small regardless of how the products are written up.
+ */
+public class ProductSummaryDTO {
+  public Long id;
+  public String name;
+  public Double price;
+  public Double originalPrice;
+  public String category;
+  public String subcategory;
+  public String imageUrl;
+  /** Resized copies of imageUrl (null for images not uploaded through the admin) */
+  public String thumbnailUrl;
+  public String placeholderUrl;
+  public String weight;
+  public Integer stockQuantity;
+  public Boolean inStock;
+  public Boolean isActive;
+
+  public ProductSummaryDTO() {}
+
+  // Used by JPQL/Criteria constructor projections
+  public ProductSummaryDTO(Long id, String name, Double price, Double originalPrice, String category,
+                           String subcategory, String imageUrl, String weight, Integer stockQuantity,
+                           Boolean inStock, Boolean isActive) {
+    this.id = id;
+    this.name = name;
+    this.price = price;
+    this.originalPrice = originalPrice;
+    this.category = category;
+    this.subcategory = subcategory;
+    this.imageUrl = imageUrl;
+    this.thumbnailUrl = Product.imageVariantUrl(imageUrl, Product.THUMBNAIL_WIDTH);
+    this.placeholderUrl = Product.imageVariantUrl(imageUrl, Product.PLACEHOLDER_WIDTH);
+    this.weight = weight;
+    this.stockQuantity = stockQuantity;
+    // Same rule as the wishlist/cart: an explicit flag wins, otherwise derive from quantity
+    this.inStock = (inStock != null) ? inStock : (stockQuantity == null || stockQuantity > 0);
+    this.isActive = isActive;
+  }
+
+  public static ProductSummaryDTO from(Product p) {
+    return new ProductSummaryDTO(p.getId(), p.getName(), p.getPrice(), p.getOriginalPrice(), p.getCategory(),
+        p.getSubcategory(), p.getImageUrl(), p.getWeight(), p.getStockQuantity(), p.getInStock(), p.getIsActive());
+  }
+}
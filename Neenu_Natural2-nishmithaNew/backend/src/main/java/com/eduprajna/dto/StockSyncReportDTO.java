@@ -0,0 +1,26 @@
+package com.eduprajna.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of a bulk price/stock update: every row that actually changed with its before and after values.
+ */
+public class StockSyncReportDTO {
+  public int received;
+  public int updated;
+  public int unchanged;
+  public List<Long> notFound = new ArrayList<>();
+  public List<String> errors = new ArrayList<>();
+  public List<Change> changes = new ArrayList<>();
+
+  public static class Change {
+    public Long id;
+    public Double oldPrice;
+    public Double newPrice;
+    public Integer oldStockQuantity;
+    public Integer newStockQuantity;
+    public Boolean oldInStock;
+    public Boolean newInStock;
+  }
+}
@@ -0,0 +1,20 @@
+package com.eduprajna.dto;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+/**
+ * One entry of the admin image browser.
+ */
+public class StoredImageDTO {
+  public Long id;
+  public String filename;
+  public String url;
+  public Long sizeBytes;
+  public Integer width;
+  public Integer height;
+  public String mimeType;
+  public OffsetDateTime uploadedAt;
+  public Integer refCount;
+  public List<Long> productIds;
+}
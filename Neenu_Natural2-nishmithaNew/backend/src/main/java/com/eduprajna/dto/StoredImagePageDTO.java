@@ -0,0 +1,12 @@
+package com.eduprajna.dto;
+
+import java.util.List;
+
+/**
+ * A page of stored images; pass nextAfterId back as afterId for the following page.
+ */
+public class StoredImagePageDTO {
+  public List<StoredImageDTO> items;
+  public boolean hasMore;
+  public Long nextAfterId;
+}
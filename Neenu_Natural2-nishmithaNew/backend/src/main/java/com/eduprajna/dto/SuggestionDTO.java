@@ -0,0 +1,20 @@
+package com.eduprajna.dto;
+
+/**
+ * One typeahead suggestion. Instances are built once per index rebuild and shared.
+ */
+public class SuggestionDTO {
+  public static final String TYPE_PRODUCT = "product";
+  public static final String TYPE_CATEGORY = "category";
+  public static final String TYPE_SUBCATEGORY = "subcategory";
+
+  public final String text;
+  public final String type;
+  public final Long productId; // only for product suggestions
+
+  public SuggestionDTO(String text, String type, Long productId) {
+    this.text = text;
+    this.type = type;
+    this.productId = productId;
+  }
+}
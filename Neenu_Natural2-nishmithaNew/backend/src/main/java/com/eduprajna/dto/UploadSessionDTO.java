@@ -0,0 +1,13 @@
+package com.eduprajna.dto;
+
+/**
+ * State of a resumable chunked upload; url is set once every byte has arrived.
+ */
+public class UploadSessionDTO {
+  public String id;
+  public String filename;
+  public Long size;
+  public Long offset;
+  public Boolean complete;
+  public String url;
+}
@@ -0,0 +1,11 @@
+package com.eduprajna.dto;
+
+/**
+ * One file stored by the streaming image upload.
+ */
+public class UploadedImageDTO {
+  public String field;
+  public String originalName;
+  public String url;
+  public Long sizeBytes;
+}
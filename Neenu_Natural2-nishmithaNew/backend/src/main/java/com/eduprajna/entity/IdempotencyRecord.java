@@ -0,0 +1,56 @@
+package com.eduprajna.entity;
+
+import java.time.Instant;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+/**
+ * Outcome of a request sent with an Idempotency-Key, shared by all nodes. Written with plain
+ * SQL by IdempotencyService; mapped here so the table is created.
+ */
+@Entity
+@Table(name = "idempotency_keys")
+public class IdempotencyRecord {
+    // Scope (e.g. the user id) and client key
+    @Id
+    @Column(name = "idem_key", length = 150)
+    private String key;
+
+    @Column(nullable = false, length = 20)
+    private String status;
+
+    // JSON of the response, once completed
+    @Column(columnDefinition = "TEXT")
+    private String response;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    // Run holding an IN_PROGRESS key, and until when; the run renews this while it works
+    @Column(length = 36)
+    private String owner;
+
+    @Column(name = "locked_until")
+    private Instant lockedUntil;
+
+    public String getKey() { return key; }
+    public void setKey(String key) { this.key = key; }
+
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+
+    public String getResponse() { return response; }
+    public void setResponse(String response) { this.response = response; }
+
+    public Instant getCreatedAt() { return createdAt; }
+    public void setCreatedAt(Instant createdAt) { this.createdAt = createdAt; }
+
+    public String getOwner() { return owner; }
+    public void setOwner(String owner) { this.owner = owner; }
+
+    public Instant getLockedUntil() { return lockedUntil; }
+    public void setLockedUntil(Instant lockedUntil) { this.lockedUntil = lockedUntil; }
+}
@@ -0,0 +1,44 @@
+package com.eduprajna.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+
+/**
+ * Stock units a node has taken out of product.stock_quantity for its in-memory ledger and not
+ * yet confirmed as sold or given back. Written with plain SQL by InventoryLedger; mapped here
+ * so the table is created.
+ */
+@Entity
+@Table(name = "inventory_escrow",
+       uniqueConstraints = @UniqueConstraint(name = "uk_inventory_escrow_product_node", columnNames = {"product_id", "node_id"}))
+public class InventoryEscrow {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+
+    @Column(name = "node_id", nullable = false, length = 100)
+    private String nodeId;
+
+    @Column(nullable = false)
+    private Integer units;
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Long getProductId() { return productId; }
+    public void setProductId(Long productId) { this.productId = productId; }
+
+    public String getNodeId() { return nodeId; }
+    public void setNodeId(String nodeId) { this.nodeId = nodeId; }
+
+    public Integer getUnits() { return units; }
+    public void setUnits(Integer units) { this.units = units; }
+}
@@ -0,0 +1,46 @@
+package com.eduprajna.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+
+/**
+ * Units a node's in-memory ledger sold, recorded in the order's transaction and not yet
+ * subtracted from inventory_escrow. Written with plain SQL by InventoryLedger; mapped here so
+ * the table is created.
+ */
+@Entity
+@Table(name = "inventory_ledger_sale", indexes = {
+    @Index(name = "idx_inventory_ledger_sale_node", columnList = "node_id"),
+    @Index(name = "idx_inventory_ledger_sale_product", columnList = "product_id")
+})
+public class InventoryLedgerSale {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+
+    @Column(name = "node_id", nullable = false, length = 100)
+    private String nodeId;
+
+    @Column(nullable = false)
+    private Integer units;
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Long getProductId() { return productId; }
+    public void setProductId(Long productId) { this.productId = productId; }
+
+    public String getNodeId() { return nodeId; }
+    public void setNodeId(String nodeId) { this.nodeId = nodeId; }
+
+    public Integer getUnits() { return units; }
+    public void setUnits(Integer units) { this.units = units; }
+}
@@ -1,17 +1,43 @@
 package com.eduprajna.entity;
 
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.JoinTable;
+import jakarta.persistence.ManyToMany;
+import jakarta.persistence.ManyToOne;
 import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
 
 
 @Entity
-@Table(name = "product")
+@Table(name = "product", indexes = {
+        // Keyset pagination for the public catalog: (filter columns..., sort key, id)
+        @Index(name = "idx_product_active_id", columnList = "is_active, id"),
+        @Index(name = "idx_product_category_id", columnList = "category, subcategory, id"),
+        @Index(name = "idx_product_price_id", columnList = "price, id"),
+        @Index(name = "idx_product_category_ref_id", columnList = "category_id, id")
+})
 public class Product {
+    // Resized copies generated for every uploaded image; PLACEHOLDER_WIDTH is the blur-up preview
+    public static final int[] IMAGE_WIDTHS = { 160, 480, 1024 };
+    public static final int PLACEHOLDER_WIDTH = 16;
+    public static final int THUMBNAIL_WIDTH = 480;
+    private static final String UPLOADED_IMAGE_PREFIX = "/admin/products/images/";
+
     @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
     
@@ -30,6 +56,12 @@ public class Product {
     @Column(length = 100)
     private String subcategory;
     
+    // Most specific Category node matching category/subcategory; the strings stay the API fields
+    @JsonIgnore
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "category_id")
+    private Category categoryRef;
+
     @Column(length = 500)
     private String imageUrl; // Store image as Base64 string or URL
     
@@ -43,6 +75,16 @@ public class Product {
     
     @Column(length = 1000)
     private String benefits;    // Comma-separated string
+
+    // Normalized form of ingredients/benefits for indexed filtering; derived from the two
+    // strings above on every save, which stay the API representation
+    @JsonIgnore
+    @ManyToMany
+    @JoinTable(name = "product_attributes",
+            joinColumns = @JoinColumn(name = "product_id"),
+            inverseJoinColumns = @JoinColumn(name = "attribute_id"),
+            indexes = @Index(name = "idx_product_attributes_attribute", columnList = "attribute_id, product_id"))
+    private Set<ProductAttribute> attributes = new HashSet<>();
     
     private Boolean inStock;
     
@@ -105,6 +147,14 @@ public class Product {
         this.subcategory = subcategory;
     }
 
+    public Category getCategoryRef() {
+        return categoryRef;
+    }
+
+    public void setCategoryRef(Category categoryRef) {
+        this.categoryRef = categoryRef;
+    }
+
     public String getImageUrl() {
         return imageUrl;
     }
@@ -113,6 +163,38 @@ public class Product {
         this.imageUrl = imageUrl;
     }
 
+    /**
+     * URL of a resized copy of an uploaded image, or null for external/inline images
+     */
+    public static String imageVariantUrl(String imageUrl, int width) {
+        if (imageUrl == null || !imageUrl.startsWith(UPLOADED_IMAGE_PREFIX)) return null;
+        return imageUrl + "?w=" + width;
+    }
+
+    // Width -> URL of each generated copy; empty when the image was not uploaded here
+    @Transient
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    public Map<String, String> getImageVariants() {
+        Map<String, String> variants = new LinkedHashMap<>();
+        for (int w : IMAGE_WIDTHS) {
+            String url = imageVariantUrl(imageUrl, w);
+            if (url != null) variants.put(Integer.toString(w), url);
+        }
+        return variants;
+    }
+
+    @Transient
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    public String getThumbnailUrl() {
+        return imageVariantUrl(imageUrl, THUMBNAIL_WIDTH);
+    }
+
+    @Transient
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    public String getPlaceholderUrl() {
+        return imageVariantUrl(imageUrl, PLACEHOLDER_WIDTH);
+    }
+
     public String getWeight() {
         return weight;
     }
@@ -145,6 +227,14 @@ public class Product {
         this.benefits = benefits;
     }
 
+    public Set<ProductAttribute> getAttributes() {
+        return attributes;
+    }
+
+    public void setAttributes(Set<ProductAttribute> attributes) {
+        this.attributes = attributes;
+    }
+
     public Boolean getInStock() {
         return inStock;
     }
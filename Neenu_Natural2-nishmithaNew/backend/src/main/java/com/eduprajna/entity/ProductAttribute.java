@@ -0,0 +1,76 @@
+package com.eduprajna.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+
+/**
+ * A normalized ingredient or benefit shared by many products.
+ * name is the lookup key (trimmed, lower-case, single spaces); label keeps the first spelling seen.
+ */
+@Entity
+@Table(name = "product_attribute", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_product_attribute_kind_name", columnNames = {"kind", "name"})
+})
+public class ProductAttribute {
+    public enum Kind { INGREDIENT, BENEFIT }
+
+    @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private Kind kind;
+
+    @Column(nullable = false, length = 255)
+    private String name;
+
+    @Column(nullable = false, length = 255)
+    private String label;
+
+    public ProductAttribute() {}
+
+    public ProductAttribute(Kind kind, String name, String label) {
+        this.kind = kind;
+        this.name = name;
+        this.label = label;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public void setKind(Kind kind) {
+        this.kind = kind;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public void setLabel(String label) {
+        this.label = label;
+    }
+}
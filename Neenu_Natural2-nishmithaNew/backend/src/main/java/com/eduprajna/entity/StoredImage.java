@@ -0,0 +1,70 @@
+package com.eduprajna.entity;
+
+import java.time.OffsetDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+
+/**
+ * An uploaded image file: metadata for the admin image browser and how many products point
+ * at it. The file is removed when the last referencing product lets go of it.
+ */
+@Entity
+@Table(name = "stored_images", indexes = {
+        // Keyset pages of the admin image browser, optionally filtered by type
+        @Index(name = "idx_stored_images_mime_id", columnList = "mime_type, id")
+})
+public class StoredImage {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // Name as used in the image URL (content hash + extension for new uploads)
+    @Column(nullable = false, unique = true, length = 255)
+    private String filename;
+
+    @Column(name = "ref_count", nullable = false)
+    private Integer refCount = 0;
+
+    @Column(name = "size_bytes")
+    private Long sizeBytes;
+
+    private Integer width;
+
+    private Integer height;
+
+    @Column(name = "mime_type", length = 100)
+    private String mimeType;
+
+    @Column(name = "uploaded_at", nullable = false)
+    private OffsetDateTime uploadedAt = OffsetDateTime.now();
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getFilename() { return filename; }
+    public void setFilename(String filename) { this.filename = filename; }
+
+    public Integer getRefCount() { return refCount; }
+    public void setRefCount(Integer refCount) { this.refCount = refCount; }
+
+    public Long getSizeBytes() { return sizeBytes; }
+    public void setSizeBytes(Long sizeBytes) { this.sizeBytes = sizeBytes; }
+
+    public Integer getWidth() { return width; }
+    public void setWidth(Integer width) { this.width = width; }
+
+    public Integer getHeight() { return height; }
+    public void setHeight(Integer height) { this.height = height; }
+
+    public String getMimeType() { return mimeType; }
+    public void setMimeType(String mimeType) { this.mimeType = mimeType; }
+
+    public OffsetDateTime getUploadedAt() { return uploadedAt; }
+    public void setUploadedAt(OffsetDateTime uploadedAt) { this.uploadedAt = uploadedAt; }
+}
@@ -0,0 +1,20 @@
+package com.eduprajna.event;
+
+import java.util.List;
+
+import com.eduprajna.entity.OutboxEvent;
+
+/**
+ * Consumer of one outbox event type; every bean implementing this is registered with
+ * OutboxDispatcher.
+ *
+ * Delivery is at least once: a batch is handed over again when the handler throws, or when
+ * the node dies before the batch was marked done. Handlers must therefore be idempotent.
+ * When a batch fails, its events are handed over again one at a time, so one bad event does
+ * not hold back the others.
+ */
+public interface OutboxEventHandler {
+    String eventType();
+
+    void handle(List<OutboxEvent> events);
+}
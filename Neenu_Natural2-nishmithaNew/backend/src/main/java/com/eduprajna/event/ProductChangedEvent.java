@@ -0,0 +1,58 @@
+package com.eduprajna.event;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Published whenever product rows are created, updated or deleted
+ * (admin edits, stock decrements at checkout, bulk operations).
+ * Listeners keep their in-memory views of the catalog in step with the database.
+ */
+public class ProductChangedEvent {
+    private final Set<Long> productIds;
+    private final boolean allProducts;
+    private final boolean stockOnly;
+
+    private ProductChangedEvent(Set<Long> productIds, boolean allProducts, boolean stockOnly) {
+        this.productIds = productIds;
+        this.allProducts = allProducts;
+        this.stockOnly = stockOnly;
+    }
+
+    public static ProductChangedEvent of(Long... productIds) {
+        return new ProductChangedEvent(idSet(productIds), false, false);
+    }
+
+    public static ProductChangedEvent of(Collection<Long> productIds) {
+        return of(productIds.toArray(new Long[0]));
+    }
+
+    /**
+     * For changes that only moved stock or price (orders, reservations, stock syncs);
+     * names, categories and descriptions are as they were
+     */
+    public static ProductChangedEvent stockOf(Collection<Long> productIds) {
+        return new ProductChangedEvent(idSet(productIds.toArray(new Long[0])), false, true);
+    }
+
+    /**
+     * For changes whose affected ids are not known (e.g. rows inserted in bulk)
+     */
+    public static ProductChangedEvent allProducts() {
+        return new ProductChangedEvent(Collections.emptySet(), true, false);
+    }
+
+    private static Set<Long> idSet(Long[] productIds) {
+        Set<Long> ids = new LinkedHashSet<>();
+        for (Long id : productIds) {
+            if (id != null) ids.add(id);
+        }
+        return Collections.unmodifiableSet(ids);
+    }
+
+    public Set<Long> getProductIds() { return productIds; }
+    public boolean isAllProducts() { return allProducts; }
+    public boolean isStockOnly() { return stockOnly; }
+}
@@ -0,0 +1,57 @@
+package com.eduprajna.migration;
+
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * One-time data migration: merge duplicate cart lines (same user and product, left over from
+ * concurrent adds before the unique index existed) into the oldest line, then create the
+ * unique index if schema update could not add it because of those duplicates.
+ * Idempotent - a no-op once the index exists.
+ */
+@Component
+public class CartItemDedupe implements ApplicationRunner {
+    private static final Logger logger = LoggerFactory.getLogger(CartItemDedupe.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public CartItemDedupe(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        List<Object[]> duplicates = jdbcTemplate.query(
+                "SELECT user_id, product_id, MIN(id), SUM(quantity) FROM cart_items "
+                + "GROUP BY user_id, product_id HAVING COUNT(*) > 1",
+                (rs, i) -> new Object[] { rs.getLong(1), rs.getLong(2), rs.getLong(3), rs.getLong(4) });
+        if (!duplicates.isEmpty()) {
+            transactionTemplate.executeWithoutResult(status -> {
+                for (Object[] d : duplicates) {
+                    jdbcTemplate.update("UPDATE cart_items SET quantity = ? WHERE id = ?",
+                            (int) Math.min((Long) d[3], Integer.MAX_VALUE), d[2]);
+                    jdbcTemplate.update("DELETE FROM cart_items WHERE user_id = ? AND product_id = ? AND id <> ?",
+                            d[0], d[1], d[2]);
+                }
+            });
+            logger.info("Merged duplicate cart lines for {} user/product pairs", duplicates.size());
+        }
+        try {
+            jdbcTemplate.execute("CREATE UNIQUE INDEX uk_cart_items_user_product ON cart_items (user_id, product_id)");
+            logger.info("Created unique index uk_cart_items_user_product");
+        } catch (DataAccessException e) {
+            // Already created by schema update (or by an earlier run)
+            logger.debug("Unique index on cart_items not created: {}", e.getMessage());
+        }
+    }
+}
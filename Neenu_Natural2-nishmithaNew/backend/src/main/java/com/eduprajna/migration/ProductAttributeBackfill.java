@@ -0,0 +1,26 @@
+package com.eduprajna.migration;
+
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import com.eduprajna.service.ProductAttributeService;
+
+/**
+ * One-time data migration: derive normalized ingredient/benefit attributes for products
+ * saved before the product_attribute table existed. Idempotent - once every product has
+ * its rows the lookup query returns nothing and this is a no-op.
+ */
+@Component
+public class ProductAttributeBackfill implements ApplicationRunner {
+    private final ProductAttributeService attributeService;
+
+    public ProductAttributeBackfill(ProductAttributeService attributeService) {
+        this.attributeService = attributeService;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        attributeService.backfillMissing();
+    }
+}
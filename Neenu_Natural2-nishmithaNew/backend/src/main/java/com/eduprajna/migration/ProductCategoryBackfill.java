@@ -0,0 +1,26 @@
+package com.eduprajna.migration;
+
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import com.eduprajna.service.CategoryService;
+
+/**
+ * One-time data migration: give pre-hierarchy categories a materialized path and link
+ * products to Category rows from their category/subcategory strings, creating any
+ * category that only existed as product text. Idempotent - a no-op once everything is linked.
+ */
+@Component
+public class ProductCategoryBackfill implements ApplicationRunner {
+    private final CategoryService categoryService;
+
+    public ProductCategoryBackfill(CategoryService categoryService) {
+        this.categoryService = categoryService;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        categoryService.linkUnassignedProducts();
+    }
+}
@@ -0,0 +1,29 @@
+package com.eduprajna.migration;
+
+import java.io.IOException;
+
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import com.eduprajna.service.ImageIndexService;
+
+/**
+ * One-time data migration: index the files already in the upload directory the first time
+ * the application starts with an empty stored_images table.
+ */
+@Component
+public class StoredImageBackfill implements ApplicationRunner {
+    private final ImageIndexService imageIndexService;
+
+    public StoredImageBackfill(ImageIndexService imageIndexService) {
+        this.imageIndexService = imageIndexService;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws IOException {
+        if (imageIndexService.count() == 0) {
+            imageIndexService.rebuildFromDisk();
+        }
+    }
+}
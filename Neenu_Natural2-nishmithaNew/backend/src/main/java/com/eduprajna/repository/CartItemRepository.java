@@ -1,18 +1,55 @@
 package com.eduprajna.repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.eduprajna.dto.CartItemDTO;
 import com.eduprajna.entity.CartItem;
 import com.eduprajna.entity.Product;
 import com.eduprajna.entity.User;
 
-public interface CartItemRepository extends JpaRepository<CartItem, Long> {
+public interface CartItemRepository extends JpaRepository<CartItem, Long>, CartItemRepositoryCustom {
     List<CartItem> findByUser(User user);
+
+    /**
+     * The user's cart as response rows, lines and product columns in one statement, oldest line first
+     */
+    @Query("SELECT new com.eduprajna.dto.CartItemDTO(c.id, p.id, p.name, p.imageUrl, c.quantity, c.priceAtAdd) "
+            + "FROM CartItem c JOIN c.product p WHERE c.user.id = :userId ORDER BY c.id")
+    List<CartItemDTO> findCartView(@Param("userId") Long userId);
+
+    /**
+     * The user's cart with products loaded in the same query, oldest line first
+     */
+    @Query("SELECT c FROM CartItem c JOIN FETCH c.product WHERE c.user = :user ORDER BY c.id")
+    List<CartItem> findByUserWithProduct(@Param("user") User user);
+
+    /**
+     * @return Rows of [productId, quantity, units the user holds in stock_reservations or null] for the user's cart
+     */
+    @Query("SELECT c.product.id, c.quantity, r.quantity FROM CartItem c LEFT JOIN StockReservation r "
+            + "ON r.userId = c.user.id AND r.productId = c.product.id WHERE c.user.id = :userId")
+    List<Object[]> findQuantities(@Param("userId") Long userId);
+
+    /**
+     * @return Rows of [id, productId, quantity, priceAtAdd, units held or null] for the user's cart, oldest line first
+     */
+    @Query("SELECT c.id, c.product.id, c.quantity, c.priceAtAdd, r.quantity FROM CartItem c LEFT JOIN StockReservation r "
+            + "ON r.userId = c.user.id AND r.productId = c.product.id WHERE c.user.id = :userId ORDER BY c.id")
+    List<Object[]> findLines(@Param("userId") Long userId);
+
+    /**
+     * @return Rows of [userId, productId, id] for the given users' carts
+     */
+    @Query("SELECT c.user.id, c.product.id, c.id FROM CartItem c WHERE c.user.id IN :userIds")
+    List<Object[]> findLineIds(@Param("userIds") Collection<Long> userIds);
     Optional<CartItem> findByUserAndProduct(User user, Product product);
     
     @Modifying
@@ -22,6 +59,11 @@ public interface CartItemRepository extends JpaRepository<CartItem, Long> {
     @Modifying
     @Transactional
     void deleteByProduct(Product product);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM CartItem c WHERE c.user.id = :userId AND c.product.id = :productId")
+    int deleteLine(@Param("userId") Long userId, @Param("productId") Long productId);
 }
 
 
@@ -0,0 +1,59 @@
+package com.eduprajna.repository;
+
+import java.util.Collection;
+import java.util.List;
+
+import com.eduprajna.entity.CartItem;
+
+/**
+ * Cart mutations written as single conditional statements (upserts with the stock check inline)
+ */
+public interface CartItemRepositoryCustom {
+
+    /**
+     * Add quantity to the user's line for a product, creating it if needed, only when the
+     * product is in stock and the resulting quantity does not exceed its stock. Units the user
+     * holds in stock_reservations count as stock; the statement reads them itself.
+     * @param extraStock Other units on sale that product.stock_quantity does not count (see InventoryLedger.available)
+     * @return The line with id, quantity and priceAtAdd set (user and product are not loaded),
+     *         or null when the product does not exist or the stock check failed
+     */
+    CartItem addQuantity(Long userId, Long productId, int quantity, int extraStock);
+
+    /**
+     * Set the quantity of an existing line, only when the stock allows it
+     * @param extraStock As for addQuantity
+     * @return The updated line as for addQuantity, or null when there is no such line or the stock check failed
+     */
+    CartItem setQuantity(Long userId, Long productId, int quantity, int extraStock);
+
+    /**
+     * Why a mutation was refused
+     * @return Row of [stockQuantity, inStock, current cart quantity or null, units the user holds or null],
+     *         or null when the product does not exist
+     */
+    Object[] findStockState(Long userId, Long productId);
+
+    /**
+     * Write absolute quantities for several lines in one JDBC batch, inserting missing lines
+     * @param lines Rows of [productId, quantity, priceAtAdd]; the price is only used for new lines
+     */
+    void saveLines(Long userId, List<Object[]> lines);
+
+    /**
+     * Delete several lines in one JDBC batch
+     */
+    void deleteLines(Long userId, Collection<Long> productIds);
+
+    /**
+     * Multi-user form of saveLines, for write-behind flushes
+     * @param rows Rows of [userId, productId, quantity, priceAtAdd]
+     */
+    void upsertLines(List<Object[]> rows);
+
+    /**
+     * Multi-user form of deleteLines
+     * @param rows Rows of [userId, productId]
+     */
+    void deleteLines(List<Object[]> rows);
+}
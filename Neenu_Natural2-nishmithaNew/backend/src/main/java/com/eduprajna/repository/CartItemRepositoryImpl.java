@@ -0,0 +1,175 @@
+package com.eduprajna.repository;
+
+import java.sql.DatabaseMetaData;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.eduprajna.entity.CartItem;
+
+/**
+ * Cart upserts relying on the unique (user_id, product_id) index.
+ *
+ * PostgreSQL: one INSERT ... ON CONFLICT DO UPDATE whose SELECT and conflict WHERE carry the
+ * stock check, returning the line - one round trip. MySQL has neither RETURNING nor a WHERE
+ * on ON DUPLICATE KEY UPDATE, so there the upsert and a read-back run in one short transaction
+ * (the upsert holds the row lock) and an over-stock result is rolled back.
+ *
+ * Units the user holds in stock_reservations left stock_quantity but are still theirs to buy,
+ * so every stock check joins the user's reservation row in.
+ */
+public class CartItemRepositoryImpl implements CartItemRepositoryCustom {
+    // The product with the user's reservation of it, if any; takes the user id
+    private static final String PRODUCT_AND_HOLD =
+            "product p LEFT JOIN stock_reservations r ON r.product_id = p.id AND r.user_id = ?";
+
+    // in_stock=FALSE at zero stock comes from the checkout decrement, not an admin, so units the
+    // caller counts on top of stock_quantity may still be added
+    private static final String IN_STOCK =
+            "(p.in_stock IS NULL OR p.in_stock = TRUE OR p.stock_quantity = 0) "
+            + "AND (p.stock_quantity IS NULL OR p.stock_quantity + COALESCE(r.quantity, 0) + ? >= ?)";
+
+    private static final String PG_ADD =
+            "INSERT INTO cart_items (user_id, product_id, quantity, price_at_add) "
+            + "SELECT ?, p.id, ?, COALESCE(p.price, 0) FROM " + PRODUCT_AND_HOLD + " WHERE p.id = ? AND " + IN_STOCK + " "
+            + "ON CONFLICT (user_id, product_id) DO UPDATE SET quantity = cart_items.quantity + EXCLUDED.quantity "
+            + "WHERE NOT EXISTS (SELECT 1 FROM product s LEFT JOIN stock_reservations sr "
+            + "ON sr.product_id = s.id AND sr.user_id = cart_items.user_id WHERE s.id = EXCLUDED.product_id "
+            + "AND s.stock_quantity + COALESCE(sr.quantity, 0) + ? < cart_items.quantity + EXCLUDED.quantity) "
+            + "RETURNING id, quantity, price_at_add";
+
+    private static final String MYSQL_ADD =
+            "INSERT INTO cart_items (user_id, product_id, quantity, price_at_add) "
+            + "SELECT ?, p.id, ?, COALESCE(p.price, 0) FROM " + PRODUCT_AND_HOLD + " WHERE p.id = ? AND " + IN_STOCK + " "
+            + "ON DUPLICATE KEY UPDATE cart_items.quantity = cart_items.quantity + ?";
+
+    private static final String SET =
+            "UPDATE cart_items SET quantity = ? WHERE user_id = ? AND product_id = ? "
+            + "AND EXISTS (SELECT 1 FROM " + PRODUCT_AND_HOLD + " WHERE p.id = ? AND " + IN_STOCK + ")";
+
+    private static final String PG_SAVE =
+            "INSERT INTO cart_items (user_id, product_id, quantity, price_at_add) VALUES (?, ?, ?, ?) "
+            + "ON CONFLICT (user_id, product_id) DO UPDATE SET quantity = EXCLUDED.quantity";
+
+    private static final String MYSQL_SAVE =
+            "INSERT INTO cart_items (user_id, product_id, quantity, price_at_add) VALUES (?, ?, ?, ?) "
+            + "ON DUPLICATE KEY UPDATE quantity = VALUES(quantity)";
+
+    private static final String READ_BACK =
+            "SELECT c.id, c.quantity, c.price_at_add, p.stock_quantity + COALESCE(r.quantity, 0) AS stock "
+            + "FROM cart_items c JOIN product p ON p.id = c.product_id "
+            + "LEFT JOIN stock_reservations r ON r.product_id = c.product_id AND r.user_id = c.user_id "
+            + "WHERE c.user_id = ? AND c.product_id = ?";
+
+    private static final RowMapper<CartItem> LINE = (rs, i) -> {
+        CartItem item = new CartItem();
+        item.setId(rs.getLong("id"));
+        item.setQuantity(rs.getInt("quantity"));
+        item.setPriceAtAdd(rs.getDouble("price_at_add"));
+        return item;
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean postgres;
+
+    public CartItemRepositoryImpl(JdbcTemplate jdbcTemplate, DataSource dataSource,
+                                  PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.postgres = "PostgreSQL".equals(databaseProductName(dataSource));
+    }
+
+    @Override
+    public CartItem addQuantity(Long userId, Long productId, int quantity, int extraStock) {
+        if (postgres) {
+            return first(jdbcTemplate.query(PG_ADD, LINE,
+                    userId, quantity, userId, productId, extraStock, quantity, extraStock));
+        }
+        return transactionTemplate.execute(status -> {
+            if (jdbcTemplate.update(MYSQL_ADD, userId, quantity, userId, productId, extraStock, quantity, quantity) == 0) {
+                return null;
+            }
+            List<Object[]> rows = jdbcTemplate.query(READ_BACK, (rs, i) -> new Object[] {
+                    LINE.mapRow(rs, i), rs.getObject("stock") }, userId, productId);
+            if (rows.isEmpty()) return null;
+            CartItem line = (CartItem) rows.get(0)[0];
+            Number stock = (Number) rows.get(0)[1];
+            if (stock != null && line.getQuantity() > stock.intValue() + extraStock) {
+                status.setRollbackOnly();
+                return null;
+            }
+            return line;
+        });
+    }
+
+    @Override
+    public CartItem setQuantity(Long userId, Long productId, int quantity, int extraStock) {
+        if (postgres) {
+            return first(jdbcTemplate.query(SET + " RETURNING id, quantity, price_at_add", LINE,
+                    quantity, userId, productId, userId, productId, extraStock, quantity));
+        }
+        if (jdbcTemplate.update(SET, quantity, userId, productId, userId, productId, extraStock, quantity) == 0) return null;
+        return first(jdbcTemplate.query(READ_BACK, LINE, userId, productId));
+    }
+
+    @Override
+    public Object[] findStockState(Long userId, Long productId) {
+        List<Object[]> rows = jdbcTemplate.query(
+                "SELECT p.stock_quantity, p.in_stock, c.quantity, r.quantity FROM product p "
+                + "LEFT JOIN cart_items c ON c.product_id = p.id AND c.user_id = ? "
+                + "LEFT JOIN stock_reservations r ON r.product_id = p.id AND r.user_id = ? WHERE p.id = ?",
+                (rs, i) -> new Object[] { rs.getObject(1), rs.getObject(2), rs.getObject(3), rs.getObject(4) },
+                userId, userId, productId);
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    @Override
+    public void saveLines(Long userId, List<Object[]> lines) {
+        if (lines.isEmpty()) return;
+        List<Object[]> args = new ArrayList<>(lines.size());
+        for (Object[] line : lines) args.add(new Object[] { userId, line[0], line[1], line[2] });
+        upsertLines(args);
+    }
+
+    @Override
+    public void upsertLines(List<Object[]> rows) {
+        if (rows.isEmpty()) return;
+        jdbcTemplate.batchUpdate(postgres ? PG_SAVE : MYSQL_SAVE, rows);
+    }
+
+    @Override
+    public void deleteLines(Long userId, Collection<Long> productIds) {
+        if (productIds.isEmpty()) return;
+        List<Object[]> args = new ArrayList<>(productIds.size());
+        for (Long productId : productIds) args.add(new Object[] { userId, productId });
+        deleteLines(args);
+    }
+
+    @Override
+    public void deleteLines(List<Object[]> rows) {
+        if (rows.isEmpty()) return;
+        jdbcTemplate.batchUpdate("DELETE FROM cart_items WHERE user_id = ? AND product_id = ?", rows);
+    }
+
+    private static CartItem first(List<CartItem> rows) {
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    private static String databaseProductName(DataSource dataSource) {
+        try {
+            return JdbcUtils.extractDatabaseMetaData(dataSource, DatabaseMetaData::getDatabaseProductName);
+        } catch (MetaDataAccessException e) {
+            return "unknown";
+        }
+    }
+}
@@ -1,8 +1,26 @@
 package com.eduprajna.repository;
 
+import java.util.List;
+
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
 import com.eduprajna.entity.Category;
 
 public interface CategoryRepository extends JpaRepository<Category, Long> {
-}
\ No newline at end of file
+    /**
+     * Everything the in-memory tree needs, without initializing parent proxies
+     * @return Rows of [id, name, parentId, path, depth]
+     */
+    @Query("SELECT c.id, c.name, p.id, c.path, c.depth FROM Category c LEFT JOIN c.parent p")
+    List<Object[]> findTreeRows();
+
+    /**
+     * A category and all of its descendants (prefix scan on the materialized path index)
+     */
+    List<Category> findByPathStartingWith(String pathPrefix);
+
+    boolean existsByParentId(Long parentId);
+
+    List<Category> findByPathIsNull();
+}
@@ -0,0 +1,18 @@
+package com.eduprajna.repository;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import com.eduprajna.entity.ProductAttribute;
+
+public interface ProductAttributeRepository extends JpaRepository<ProductAttribute, Long> {
+    /**
+     * Resolve a set of normalized names in one query (served by the (kind, name) unique index)
+     * @param kind Ingredient or benefit
+     * @param names Normalized names
+     * @return Attributes that already exist
+     */
+    List<ProductAttribute> findByKindAndNameIn(ProductAttribute.Kind kind, Collection<String> names);
+}
@@ -1,7 +1,97 @@
 package com.eduprajna.repository;
 
+import java.util.Collection;
+import java.util.List;
+
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.eduprajna.entity.Category;
 import com.eduprajna.entity.Product;
 
-public interface ProductRepository extends JpaRepository<Product, Long> {}
-// CategoryRepository.java, UserRepository.java, OrderRepository.java, OrderItemRepository.java
\ No newline at end of file
+public interface ProductRepository extends JpaRepository<Product, Long>, ProductRepositoryCustom {
+    List<Product> findByCategory(String category);
+
+    /**
+     * Id, name, category and subcategory of every active product, without loading the long text columns
+     */
+    @Query("SELECT p.id, p.name, p.category, p.subcategory FROM Product p WHERE p.isActive = true")
+    List<Object[]> findActiveNameRows();
+
+    /**
+     * The columns the facet engine needs for every product
+     * @return Rows of [id, category, subcategory, price, stockQuantity, inStock, isActive]
+     */
+    @Query("SELECT p.id, p.category, p.subcategory, p.price, p.stockQuantity, p.inStock, p.isActive FROM Product p")
+    List<Object[]> findFacetRows();
+
+    /**
+     * Products that have ingredient/benefit text but no normalized attribute rows yet
+     * (rows written before attributes existed, or inserted through the bulk import)
+     */
+    @Query("SELECT p.id FROM Product p WHERE (p.ingredients IS NOT NULL OR p.benefits IS NOT NULL) AND p.attributes IS EMPTY ORDER BY p.id")
+    List<Long> findIdsMissingAttributes();
+
+    /**
+     * Distinct category/subcategory strings of products not yet linked to a Category row
+     * @return Rows of [category, subcategory]
+     */
+    @Query("SELECT DISTINCT p.category, p.subcategory FROM Product p WHERE p.categoryRef IS NULL AND p.category IS NOT NULL")
+    List<Object[]> findUnlinkedCategoryPairs();
+
+    @Modifying
+    @Query("UPDATE Product p SET p.categoryRef = :ref WHERE p.categoryRef IS NULL AND p.category = :category AND p.subcategory = :subcategory")
+    int linkCategory(@Param("ref") Category ref, @Param("category") String category, @Param("subcategory") String subcategory);
+
+    @Modifying
+    @Query("UPDATE Product p SET p.categoryRef = :ref WHERE p.categoryRef IS NULL AND p.category = :category AND p.subcategory IS NULL")
+    int linkCategoryWithoutSubcategory(@Param("ref") Category ref, @Param("category") String category);
+
+    /**
+     * Rewrite the category strings of products linked to a category after it was renamed or moved
+     */
+    @Modifying
+    @Query("UPDATE Product p SET p.category = :category, p.subcategory = :subcategory WHERE p.categoryRef.id = :categoryId")
+    int relabelCategory(@Param("categoryId") Long categoryId, @Param("category") String category,
+                        @Param("subcategory") String subcategory);
+
+    /**
+     * Same for products linked to a root category; their subcategory text is left as it is
+     */
+    @Modifying
+    @Query("UPDATE Product p SET p.category = :category WHERE p.categoryRef.id = :categoryId")
+    int relabelRootCategory(@Param("categoryId") Long categoryId, @Param("category") String category);
+
+    boolean existsByCategoryRefId(Long categoryId);
+
+    boolean existsByImageUrl(String imageUrl);
+
+    /**
+     * Which products use each of the given image URLs
+     * @return Rows of [id, imageUrl]
+     */
+    @Query("SELECT p.id, p.imageUrl FROM Product p WHERE p.imageUrl IN :urls")
+    List<Object[]> findIdsByImageUrlIn(@Param("urls") Collection<String> urls);
+
+    /**
+     * Number of products per image URL, for recomputing reference counts
+     * @return Rows of [imageUrl, count]
+     */
+    @Query("SELECT p.imageUrl, COUNT(p) FROM Product p WHERE p.imageUrl IS NOT NULL GROUP BY p.imageUrl")
+    List<Object[]> countByImageUrl();
+
+    @Query("SELECT DISTINCT p.imageUrl FROM Product p WHERE p.imageUrl IS NOT NULL")
+    List<String> findDistinctImageUrls();
+
+    @Query("SELECT p.imageUrl FROM Product p WHERE p.id = :id")
+    String findImageUrlById(@Param("id") Long id);
+
+    /**
+     * stock_quantity of the product, locking its row until the transaction ends
+     */
+    @Query(value = "SELECT stock_quantity FROM product WHERE id = :id FOR UPDATE", nativeQuery = true)
+    Integer lockStockQuantity(@Param("id") Long id);
+}
+// CategoryRepository.java, UserRepository.java, OrderRepository.java, OrderItemRepository.java
@@ -0,0 +1,20 @@
+package com.eduprajna.repository;
+
+import java.util.List;
+
+import com.eduprajna.dto.CatalogFilter;
+import com.eduprajna.dto.ProductSummaryDTO;
+
+/**
+ * Custom catalog queries that Spring Data cannot derive from method names
+ */
+public interface ProductRepositoryCustom {
+
+    /**
+     * Fetch one keyset page of the catalog as slim projections.
+     * Returns up to filter.limit + 1 rows so the caller can tell whether another page exists.
+     * @param filter Filters, sort order and cursor
+     * @return Matching products ordered by the requested sort key, then id
+     */
+    List<ProductSummaryDTO> findCatalogPage(CatalogFilter filter);
+}
@@ -0,0 +1,118 @@
+package com.eduprajna.repository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.eduprajna.dto.CatalogFilter;
+import com.eduprajna.dto.ProductSummaryDTO;
+import com.eduprajna.entity.Product;
+import com.eduprajna.entity.ProductAttribute;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
+
+/**
+ * Keyset (seek) pagination for the public catalog.
+ * Only the predicates that are actually requested are added to the query, so the
+ * database can use the (filter..., sort key, id) indexes declared on Product and
+ * never has to skip over an OFFSET of earlier rows.
+ */
+public class ProductRepositoryImpl implements ProductRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @Override
+    public List<ProductSummaryDTO> findCatalogPage(CatalogFilter filter) {
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<ProductSummaryDTO> cq = cb.createQuery(ProductSummaryDTO.class);
+        Root<Product> p = cq.from(Product.class);
+
+        cq.select(cb.construct(ProductSummaryDTO.class,
+                p.get("id"), p.get("name"), p.get("price"), p.get("originalPrice"),
+                p.get("category"), p.get("subcategory"), p.get("imageUrl"), p.get("weight"),
+                p.get("stockQuantity"), p.get("inStock"), p.get("isActive")));
+
+        List<Predicate> where = new ArrayList<>();
+        if (filter.category != null) {
+            where.add(cb.equal(p.get("category"), filter.category));
+        }
+        if (filter.subcategory != null) {
+            where.add(cb.equal(p.get("subcategory"), filter.subcategory));
+        }
+        if (filter.categoryIds != null) {
+            where.add(p.get("categoryRef").get("id").in(filter.categoryIds));
+        }
+        if (filter.ingredient != null) {
+            where.add(hasAttribute(cb, cq, p, ProductAttribute.Kind.INGREDIENT, filter.ingredient));
+        }
+        if (filter.benefit != null) {
+            where.add(hasAttribute(cb, cq, p, ProductAttribute.Kind.BENEFIT, filter.benefit));
+        }
+        if (filter.isActive != null) {
+            where.add(cb.equal(p.get("isActive"), filter.isActive));
+        }
+        if (filter.inStock != null) {
+            where.add(inStockPredicate(cb, p, filter.inStock));
+        }
+
+        Path<Long> id = p.get("id");
+        Path<Double> price = p.get("price");
+        switch (filter.sort) {
+            case CatalogFilter.SORT_PRICE:
+            case CatalogFilter.SORT_PRICE_DESC: {
+                boolean desc = CatalogFilter.SORT_PRICE_DESC.equals(filter.sort);
+                // Unpriced products have no position in a price ordering
+                where.add(cb.isNotNull(price));
+                if (filter.afterPrice != null && filter.afterId != null) {
+                    // (price, id) > (afterPrice, afterId), expanded for portability
+                    where.add(desc
+                        ? cb.or(cb.lessThan(price, filter.afterPrice),
+                                cb.and(cb.equal(price, filter.afterPrice), cb.lessThan(id, filter.afterId)))
+                        : cb.or(cb.greaterThan(price, filter.afterPrice),
+                                cb.and(cb.equal(price, filter.afterPrice), cb.greaterThan(id, filter.afterId))));
+                }
+                cq.orderBy(desc ? cb.desc(price) : cb.asc(price), desc ? cb.desc(id) : cb.asc(id));
+                break;
+            }
+            default:
+                if (filter.afterId != null) {
+                    where.add(cb.greaterThan(id, filter.afterId));
+                }
+                cq.orderBy(cb.asc(id));
+        }
+
+        cq.where(where.toArray(new Predicate[0]));
+        return em.createQuery(cq)
+                .setMaxResults(filter.limit + 1)
+                .getResultList();
+    }
+
+    // id IN (products joined to the attribute): unique (kind, name) lookup, then the join table's attribute index
+    private Predicate hasAttribute(CriteriaBuilder cb, CriteriaQuery<?> cq, Root<Product> p,
+                                   ProductAttribute.Kind kind, String name) {
+        Subquery<Long> sq = cq.subquery(Long.class);
+        Root<Product> sp = sq.from(Product.class);
+        Join<Product, ProductAttribute> a = sp.join("attributes");
+        sq.select(sp.get("id")).where(cb.equal(a.get("kind"), kind), cb.equal(a.get("name"), name));
+        return p.get("id").in(sq);
+    }
+
+    // Mirrors the DTO rule: explicit inStock flag wins, otherwise stockQuantity decides (null = available)
+    private Predicate inStockPredicate(CriteriaBuilder cb, Root<Product> p, boolean inStock) {
+        Path<Boolean> flag = p.get("inStock");
+        Path<Integer> qty = p.get("stockQuantity");
+        Predicate derivedAvailable = cb.and(cb.isNull(flag), cb.or(cb.isNull(qty), cb.greaterThan(qty, 0)));
+        if (inStock) {
+            return cb.or(cb.isTrue(flag), derivedAvailable);
+        }
+        return cb.or(cb.isFalse(flag), cb.and(cb.isNull(flag), cb.lessThanOrEqualTo(qty, 0)));
+    }
+}
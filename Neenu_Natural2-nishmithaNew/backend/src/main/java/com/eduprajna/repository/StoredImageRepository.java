@@ -0,0 +1,55 @@
+package com.eduprajna.repository;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.eduprajna.entity.StoredImage;
+
+public interface StoredImageRepository extends JpaRepository<StoredImage, Long>, JpaSpecificationExecutor<StoredImage> {
+    Optional<StoredImage> findByFilename(String filename);
+
+    /**
+     * Atomically add delta to an image's reference count; never goes below zero
+     * @return Rows updated (0 when the image has no row yet, or it is already at zero)
+     */
+    @Modifying
+    @Query("UPDATE StoredImage s SET s.refCount = s.refCount + :delta WHERE s.filename = :filename AND s.refCount + :delta >= 0")
+    int adjustRefCount(@Param("filename") String filename, @Param("delta") int delta);
+
+    @Modifying
+    @Query("UPDATE StoredImage s SET s.refCount = :refCount WHERE s.filename = :filename")
+    int setRefCount(@Param("filename") String filename, @Param("refCount") int refCount);
+
+    @Modifying
+    @Query("DELETE FROM StoredImage s WHERE s.filename = :filename")
+    int deleteByFilename(@Param("filename") String filename);
+
+    /**
+     * Mark an existing image as uploaded again; waits for a concurrent delete of the row
+     * @return Rows updated (0 when the image has no row)
+     */
+    @Modifying
+    @Query("UPDATE StoredImage s SET s.uploadedAt = :now WHERE s.filename = :filename")
+    int markUploaded(@Param("filename") String filename, @Param("now") OffsetDateTime now);
+
+    /**
+     * Delete the image's row if nothing references it and it was not uploaded since the cutoff
+     * @return Rows deleted
+     */
+    @Modifying
+    @Query("DELETE FROM StoredImage s WHERE s.filename = :filename AND s.refCount <= 0 AND s.uploadedAt < :uploadedBefore")
+    int deleteUnreferenced(@Param("filename") String filename, @Param("uploadedBefore") OffsetDateTime uploadedBefore);
+
+    /**
+     * @return Rows of [filename, refCount] for every indexed image
+     */
+    @Query("SELECT s.filename, s.refCount FROM StoredImage s")
+    List<Object[]> findRefCountRows();
+}
@@ -2,8 +2,22 @@ package com.eduprajna.repository;
 
 import com.eduprajna.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.OffsetDateTime;
+import java.util.Collection;
 import java.util.Optional;
 
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmail(String email);
-}
\ No newline at end of file
+
+    /**
+     * Set total_orders from the orders table; safe to repeat, unlike an increment
+     */
+    @Modifying
+    @Query(value = "UPDATE users u SET total_orders = (SELECT COUNT(*) FROM orders o WHERE o.user_id = u.id), updated_at = :now WHERE u.id IN (:ids)",
+           nativeQuery = true)
+    int refreshTotalOrders(@Param("ids") Collection<Long> ids, @Param("now") OffsetDateTime now);
+}
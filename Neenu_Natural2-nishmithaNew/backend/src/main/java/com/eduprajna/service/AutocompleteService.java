@@ -0,0 +1,143 @@
+package com.eduprajna.service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.eduprajna.dto.SuggestionDTO;
+import com.eduprajna.event.ProductChangedEvent;
+import com.eduprajna.repository.OrderItemRepository;
+import com.eduprajna.repository.ProductRepository;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * As-you-type suggestions for product names, categories and subcategories.
+ *
+ * Suggestions live in an immutable PrefixIndex that is rebuilt off the request path from
+ * ProductRepository and swapped in with a single volatile write. Every word of a name is a
+ * key, so "powder" also finds "Ashwagandha Powder". Ranking is by units sold (categories
+ * add up their products), so a lookup is a short array walk with no database access.
+ * Catalog edits trigger a rebuild; units sold only drift, so they are picked up on a timer.
+ */
+@Service
+public class AutocompleteService {
+    private static final Logger logger = LoggerFactory.getLogger(AutocompleteService.class);
+
+    public static final int MAX_SUGGESTIONS = 10;
+
+    private final ProductRepository productRepository;
+    private final OrderItemRepository orderItemRepository;
+    private final long rebuildDelayMs;
+    private final ScheduledExecutorService rebuilder = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "autocomplete-rebuild");
+        t.setDaemon(true);
+        return t;
+    });
+    private final AtomicBoolean rebuildScheduled = new AtomicBoolean();
+
+    private volatile PrefixIndex<SuggestionDTO> index = new PrefixIndex.Builder<SuggestionDTO>(MAX_SUGGESTIONS).build();
+
+    public AutocompleteService(ProductRepository productRepository, OrderItemRepository orderItemRepository,
+                               @Value("${autocomplete.rebuild-delay-ms:2000}") long rebuildDelayMs) {
+        this.productRepository = productRepository;
+        this.orderItemRepository = orderItemRepository;
+        this.rebuildDelayMs = rebuildDelayMs;
+    }
+
+    /**
+     * Top suggestions for what the user has typed so far
+     * @param prefix Raw input; case and punctuation are ignored
+     * @param limit Maximum suggestions, capped at MAX_SUGGESTIONS
+     */
+    public List<SuggestionDTO> suggest(String prefix, int limit) {
+        String normalized = PrefixIndex.normalize(prefix);
+        if (normalized.isEmpty()) return List.of();
+        return index.lookup(normalized, Math.min(limit, MAX_SUGGESTIONS));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${autocomplete.popularity-refresh-ms:3600000}",
+            fixedDelayString = "${autocomplete.popularity-refresh-ms:3600000}")
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        Map<Long, Long> unitsSold = new HashMap<>();
+        for (Object[] row : orderItemRepository.sumQuantityByProduct()) {
+            unitsSold.put((Long) row[0], ((Number) row[1]).longValue());
+        }
+
+        List<Object[]> rows = productRepository.findActiveNameRows();
+        Map<String, Long> categoryScores = new HashMap<>();
+        Map<String, Long> subcategoryScores = new HashMap<>();
+        PrefixIndex.Builder<SuggestionDTO> builder = new PrefixIndex.Builder<>(MAX_SUGGESTIONS);
+        for (Object[] row : rows) {
+            Long id = (Long) row[0];
+            String name = (String) row[1];
+            String category = (String) row[2];
+            String subcategory = (String) row[3];
+            // +1 so unsold products still rank by their own merit rather than not at all
+            long score = unitsSold.getOrDefault(id, 0L) + 1;
+            if (name != null && !name.isBlank()) {
+                int valueId = builder.addValue(new SuggestionDTO(name, SuggestionDTO.TYPE_PRODUCT, id), score);
+                addWordKeys(builder, name, valueId);
+            }
+            if (category != null && !category.isBlank()) categoryScores.merge(category, score, Long::sum);
+            if (subcategory != null && !subcategory.isBlank()) subcategoryScores.merge(subcategory, score, Long::sum);
+        }
+        categoryScores.forEach((category, score) -> addWordKeys(builder, category,
+                builder.addValue(new SuggestionDTO(category, SuggestionDTO.TYPE_CATEGORY, null), score)));
+        subcategoryScores.forEach((subcategory, score) -> addWordKeys(builder, subcategory,
+                builder.addValue(new SuggestionDTO(subcategory, SuggestionDTO.TYPE_SUBCATEGORY, null), score)));
+
+        PrefixIndex<SuggestionDTO> built = builder.build();
+        index = built;
+        logger.debug("Autocomplete index rebuilt from {} products in {} ms: {}",
+                rows.size(), System.currentTimeMillis() - start, built);
+    }
+
+    /**
+     * Coalesce bursts of catalog edits into one rebuild after a short delay. Stock-only
+     * changes (every order, reservation and stock sync) leave names and categories alone.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        if (event.isStockOnly()) return;
+        if (rebuildScheduled.compareAndSet(false, true)) {
+            rebuilder.schedule(() -> {
+                rebuildScheduled.set(false);
+                try {
+                    rebuild();
+                } catch (Exception e) {
+                    logger.error("Autocomplete index rebuild failed; keeping the previous index", e);
+                }
+            }, rebuildDelayMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // Register the full phrase and every later word start as keys for the same suggestion
+    private static void addWordKeys(PrefixIndex.Builder<SuggestionDTO> builder, String text, int valueId) {
+        String normalized = PrefixIndex.normalize(text).trim();
+        builder.addKey(normalized, valueId);
+        for (int i = normalized.indexOf(' '); i >= 0; i = normalized.indexOf(' ', i + 1)) {
+            builder.addKey(normalized.substring(i + 1), valueId);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rebuilder.shutdownNow();
+    }
+}
@@ -0,0 +1,123 @@
+package com.eduprajna.service;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Small in-process cache with a size bound and a time-to-live.
+ * Reads are lock-free; when the size bound is exceeded the oldest inserted
+ * entries are evicted first (FIFO), and expired entries are dropped on access.
+ *
+ * A generation counter guards against a load racing with an invalidation:
+ * a value loaded before invalidate() was called is never stored afterwards.
+ */
+public final class BoundedCache<K, V> {
+
+    private static final class Entry<V> {
+        final V value;
+        final long expiresAt;
+        Entry(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private record Queued<K, V>(K key, Entry<V> entry) {}
+
+    private final Map<K, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Queued<K, V>> insertionOrder = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicLong generation = new AtomicLong();
+    private final int maxSize;
+    private final long ttlMillis;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public BoundedCache(int maxSize, long ttlMillis) {
+        if (maxSize < 1) throw new IllegalArgumentException("maxSize must be at least 1");
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * Return the cached value, loading and caching it on a miss.
+     * A null result from the loader is returned but not cached.
+     */
+    public V get(K key, Function<K, V> loader) {
+        Objects.requireNonNull(key);
+        long now = System.currentTimeMillis();
+        Entry<V> entry = entries.get(key);
+        if (entry != null) {
+            if (entry.expiresAt > now) {
+                hits.increment();
+                return entry.value;
+            }
+            if (entries.remove(key, entry)) evictions.increment();
+        }
+        misses.increment();
+        long loadGeneration = generation.get();
+        V value = loader.apply(key);
+        if (value != null) {
+            put(key, value, loadGeneration);
+        }
+        return value;
+    }
+
+    /**
+     * Store a value computed elsewhere, subject to the same size bound and time-to-live
+     */
+    public void put(K key, V value) {
+        put(Objects.requireNonNull(key), Objects.requireNonNull(value), generation.get());
+    }
+
+    private void put(K key, V value, long loadGeneration) {
+        Entry<V> entry = new Entry<>(value, System.currentTimeMillis() + ttlMillis);
+        entries.put(key, entry);
+        if (generation.get() != loadGeneration) {
+            // An invalidation ran while we were loading; the value may be stale
+            entries.remove(key, entry);
+            return;
+        }
+        insertionOrder.add(new Queued<>(key, entry));
+        queued.incrementAndGet();
+        // Queue nodes whose entry was since replaced or invalidated are stale and simply dropped;
+        // the second bound keeps the queue from growing without limit under heavy invalidation.
+        while (entries.size() > maxSize || queued.get() > 2 * maxSize) {
+            Queued<K, V> eldest = insertionOrder.poll();
+            if (eldest == null) break;
+            queued.decrementAndGet();
+            if (entries.size() > maxSize) {
+                if (entries.remove(eldest.key(), eldest.entry())) evictions.increment();
+            } else if (entries.get(eldest.key()) == eldest.entry()) {
+                insertionOrder.add(eldest);
+                queued.incrementAndGet();
+                break;
+            }
+        }
+    }
+
+    public void invalidate(K key) {
+        generation.incrementAndGet();
+        entries.remove(key);
+    }
+
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        entries.clear();
+        insertionOrder.clear();
+        queued.set(0);
+    }
+
+    public int size() { return entries.size(); }
+    public long hitCount() { return hits.sum(); }
+    public long missCount() { return misses.sum(); }
+    public long evictionCount() { return evictions.sum(); }
+}
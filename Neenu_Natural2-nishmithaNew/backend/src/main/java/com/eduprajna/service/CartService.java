@@ -1,87 +1,266 @@
 package com.eduprajna.service;
 
+import com.eduprajna.dto.CartBatchResultDTO;
+import com.eduprajna.dto.CartItemDTO;
+import com.eduprajna.dto.CartOperationDTO;
 import com.eduprajna.entity.CartItem;
 import com.eduprajna.entity.Product;
 import com.eduprajna.entity.User;
 import com.eduprajna.repository.CartItemRepository;
 import com.eduprajna.repository.ProductRepository;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Optional;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
 
 @Service
 public class CartService {
     private final CartItemRepository cartRepo;
+    private final ProductCatalogCache catalogCache;
     private final ProductRepository productRepo;
+    private final CartWriteBehindStore memoryStore;
+    private final TransactionTemplate transactionTemplate;
+    private final InventoryLedger inventoryLedger;
 
-    public CartService(CartItemRepository cartRepo, ProductRepository productRepo) {
+    public CartService(CartItemRepository cartRepo, ProductCatalogCache catalogCache, ProductRepository productRepo,
+                       CartWriteBehindStore memoryStore, TransactionTemplate transactionTemplate,
+                       InventoryLedger inventoryLedger) {
         this.cartRepo = cartRepo;
+        this.catalogCache = catalogCache;
         this.productRepo = productRepo;
+        this.memoryStore = memoryStore;
+        this.transactionTemplate = transactionTemplate;
+        this.inventoryLedger = inventoryLedger;
     }
 
     public List<CartItem> getCart(User user) {
-        return cartRepo.findByUser(user);
+        if (memoryStore.isEnabled()) return memoryStore.getCart(user);
+        return cartRepo.findByUserWithProduct(user);
     }
 
-    public CartItem addToCart(User user, Long productId, int quantity) {
-        Product product = productRepo.findById(productId).orElseThrow();
-        Integer stockQty = product.getStockQuantity();
-        boolean explicitlyOutOfStock = product.getInStock() != null && !product.getInStock();
-        if (explicitlyOutOfStock) {
-            throw new IllegalStateException("Product is out of stock");
+    /**
+     * Read model for cart and checkout responses: one query, no entities, whatever the cart size
+     */
+    public List<CartItemDTO> getCartView(User user) {
+        if (memoryStore.isEnabled()) {
+            return memoryStore.getCart(user).stream().map(CartService::toView).toList();
         }
-        if (stockQty != null && stockQty <= 0) {
-            throw new IllegalStateException("Product is out of stock");
+        return cartRepo.findCartView(user.getId());
+    }
+
+    public static CartItemDTO toView(CartItem ci) {
+        return new CartItemDTO(ci.getId(), ci.getProduct().getId(), ci.getProduct().getName(),
+                ci.getProduct().getImageUrl(), ci.getQuantity(), ci.getPriceAtAdd());
+    }
+
+    /**
+     * Apply add/update/remove operations in order, atomically. Products and the current cart
+     * are read with one query each, the outcome is computed in memory with the same rules as
+     * the single-line endpoints, and only lines that changed are written, as JDBC batches.
+     * A refused operation is reported and skipped; the others still apply.
+     */
+    public CartBatchResultDTO applyBatch(User user, List<CartOperationDTO> operations) {
+        CartBatchResultDTO result = new CartBatchResultDTO();
+        Long[] productIds = new Long[operations.size()];
+        for (int i = 0; i < operations.size(); i++) {
+            productIds[i] = parseProductId(operations.get(i).productId);
         }
-        if (quantity <= 0) {
-            throw new IllegalArgumentException("Quantity must be at least 1");
+        List<Long> distinctIds = Arrays.stream(productIds).filter(Objects::nonNull).distinct().toList();
+        Map<Long, Product> products = new HashMap<>();
+        Map<Long, Integer> ledgerStock = new HashMap<>();
+        for (Long id : distinctIds) ledgerStock.put(id, inventoryLedger.available(id));
+
+        if (memoryStore.isEnabled()) {
+            Map<Long, Double> prices = new HashMap<>();
+            for (Long id : distinctIds) {
+                catalogCache.findById(id).ifPresent(p -> {
+                    products.put(id, p);
+                    prices.put(id, p.getPrice() != null ? p.getPrice() : 0.0);
+                });
+            }
+            memoryStore.update(user.getId(), (quantities, held) -> {
+                applyOperations(operations, productIds, products, extraStock(ledgerStock, held), quantities, result);
+                return quantities;
+            }, prices);
+            return result;
         }
-        Optional<CartItem> existing = cartRepo.findByUserAndProduct(user, product);
-        CartItem item = existing.orElseGet(() -> {
-            CartItem ci = new CartItem();
-            ci.setUser(user);
-            ci.setProduct(product);
-            ci.setPriceAtAdd(product.getPrice() != null ? product.getPrice().doubleValue() : 0.0);
-            ci.setQuantity(0);
-            return ci;
+
+        transactionTemplate.executeWithoutResult(status -> {
+            for (Product p : productRepo.findAllById(distinctIds)) {
+                products.put(p.getId(), p);
+            }
+            Map<Long, Integer> before = new HashMap<>();
+            Map<Long, Integer> held = new HashMap<>();
+            for (Object[] row : cartRepo.findQuantities(user.getId())) {
+                before.put((Long) row[0], (Integer) row[1]);
+                if (row[2] != null) held.put((Long) row[0], (Integer) row[2]);
+            }
+            Map<Long, Integer> after = new HashMap<>(before);
+            Set<Long> touched = applyOperations(operations, productIds, products, extraStock(ledgerStock, held),
+                    after, result);
+
+            List<Object[]> saves = new ArrayList<>();
+            List<Long> deletes = new ArrayList<>();
+            for (Long productId : touched) {
+                Integer quantity = after.get(productId);
+                if (quantity == null) {
+                    if (before.containsKey(productId)) deletes.add(productId);
+                } else if (!quantity.equals(before.get(productId))) {
+                    Double price = products.get(productId).getPrice();
+                    saves.add(new Object[] { productId, quantity, price != null ? price : 0.0 });
+                }
+            }
+            cartRepo.saveLines(user.getId(), saves);
+            cartRepo.deleteLines(user.getId(), deletes);
         });
-        int current = item.getQuantity() == null ? 0 : item.getQuantity();
-        int newQty = current + quantity;
-        if (stockQty != null && newQty > stockQty) {
-            throw new IllegalStateException("Stock limit exceeded. Available: " + stockQty);
-        }
-        item.setQuantity(Math.max(1, newQty));
-        return cartRepo.save(item);
+        return result;
     }
 
-    public CartItem updateQuantity(User user, Long productId, int quantity) {
-        Product product = productRepo.findById(productId).orElseThrow();
-        CartItem item = cartRepo.findByUserAndProduct(user, product).orElseThrow();
-        Integer stockQty = product.getStockQuantity();
-        boolean explicitlyOutOfStock = product.getInStock() != null && !product.getInStock();
-        if (explicitlyOutOfStock) {
-            throw new IllegalStateException("Product is out of stock");
+    // Units stock_quantity does not count but this user may still put in the cart: the allotment
+    // this node's inventory ledger holds, and the user's own reservation
+    private static Map<Long, Integer> extraStock(Map<Long, Integer> ledgerStock, Map<Long, Integer> held) {
+        Map<Long, Integer> extra = new HashMap<>(ledgerStock);
+        held.forEach((id, units) -> extra.merge(id, units, Integer::sum));
+        return extra;
+    }
+
+    // Evaluate the operations against quantities (productId -> quantity), updating it in place
+    private static Set<Long> applyOperations(List<CartOperationDTO> operations, Long[] productIds,
+                                             Map<Long, Product> products, Map<Long, Integer> extraStock,
+                                             Map<Long, Integer> quantities, CartBatchResultDTO result) {
+        Set<Long> touched = new LinkedHashSet<>();
+        for (int i = 0; i < operations.size(); i++) {
+            CartOperationDTO op = operations.get(i);
+            try {
+                Long productId = productIds[i];
+                if (productId == null) throw new IllegalArgumentException("Invalid product ID format");
+                String kind = op.op == null ? "" : op.op.trim().toLowerCase(Locale.ROOT);
+                if ("remove".equals(kind)) {
+                    quantities.remove(productId);
+                } else if ("add".equals(kind) || "update".equals(kind)) {
+                    int quantity = op.quantity == null ? ("add".equals(kind) ? 1 : 0) : op.quantity;
+                    if (quantity <= 0) throw new IllegalArgumentException("Quantity must be at least 1");
+                    Product product = products.get(productId);
+                    if (product == null) throw new NoSuchElementException("Product not found: " + productId);
+                    Integer current = quantities.get(productId);
+                    if ("update".equals(kind) && current == null) {
+                        throw new NoSuchElementException("Cart item not found for product " + productId);
+                    }
+                    int target = "add".equals(kind) ? (current == null ? 0 : current) + quantity : quantity;
+                    checkStock(product, target, extraStock.getOrDefault(productId, 0));
+                    quantities.put(productId, target);
+                } else {
+                    throw new IllegalArgumentException("Unknown operation: " + op.op);
+                }
+                touched.add(productId);
+                result.applied++;
+            } catch (RuntimeException e) {
+                result.failed++;
+                result.errors.add(new CartBatchResultDTO.OperationError(i, op.productId, e.getMessage()));
+            }
         }
-        if (stockQty != null && stockQty <= 0) {
-            throw new IllegalStateException("Product is out of stock");
+        return touched;
+    }
+
+    /**
+     * Add to the user's cart in one conditional upsert; the stock check happens in the same
+     * statement, so concurrent adds can neither duplicate the line nor oversell it. The user's
+     * own reservation counts as stock: the statement (or the in-memory cart) reads it.
+     */
+    public CartItem addToCart(User user, Long productId, int quantity) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be at least 1");
         }
+        Product product = catalogCache.findById(productId).orElseThrow();
+        int extra = inventoryLedger.available(productId);
+        if (memoryStore.isEnabled()) return memoryStore.add(user, product, quantity, extra);
+        CartItem item = cartRepo.addQuantity(user.getId(), productId, quantity, extra);
+        if (item == null) throw refusal(user, productId, quantity, extra);
+        item.setUser(user);
+        item.setProduct(product);
+        return item;
+    }
+
+    public CartItem updateQuantity(User user, Long productId, int quantity) {
         if (quantity <= 0) {
             throw new IllegalArgumentException("Quantity must be at least 1");
         }
+        Product product = catalogCache.findById(productId).orElseThrow();
+        int extra = inventoryLedger.available(productId);
+        if (memoryStore.isEnabled()) return memoryStore.set(user, product, quantity, extra);
+        CartItem item = cartRepo.setQuantity(user.getId(), productId, quantity, extra);
+        if (item == null) throw refusal(user, productId, 0, extra);
+        item.setUser(user);
+        item.setProduct(product);
+        return item;
+    }
+
+    public void removeItem(User user, Long productId) {
+        catalogCache.findById(productId).orElseThrow();
+        if (memoryStore.isEnabled()) {
+            memoryStore.remove(user.getId(), productId);
+            return;
+        }
+        cartRepo.deleteLine(user.getId(), productId);
+    }
+
+    /**
+     * @param extraStock Units on sale that the product's stockQuantity does not count
+     */
+    static void checkStock(Product product, int quantity, int extraStock) {
+        Integer listed = product.getStockQuantity();
+        Integer stockQty = listed == null ? null : listed + extraStock;
+        // in_stock=FALSE at zero stock was set by the decrement, so extra units still count
+        boolean explicitlyOutOfStock = Boolean.FALSE.equals(product.getInStock()) && (listed == null || listed > 0);
+        if (explicitlyOutOfStock || (stockQty != null && stockQty <= 0)) {
+            throw new IllegalStateException("Product is out of stock");
+        }
         if (stockQty != null && quantity > stockQty) {
             throw new IllegalStateException("Stock limit exceeded. Available: " + stockQty);
         }
-        item.setQuantity(quantity);
-        return cartRepo.save(item);
     }
 
-    public void removeItem(User user, Long productId) {
-        Product product = productRepo.findById(productId).orElseThrow();
-        cartRepo.findByUserAndProduct(user, product).ifPresent(ci -> cartRepo.deleteById(ci.getId()));
+    // Numeric ids or strings like "2-default" (numeric part before the first dash), as the frontend sends them
+    private static Long parseProductId(String value) {
+        if (value == null) return null;
+        try {
+            return Long.parseLong(value.trim().split("-")[0]);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    // Only reached when a mutation was refused: look up why, for the error message
+    private RuntimeException refusal(User user, Long productId, int added, int extraStock) {
+        Object[] state = cartRepo.findStockState(user.getId(), productId);
+        if (state == null) return new NoSuchElementException("Product not found: " + productId);
+        Integer listed = state[0] == null ? null : ((Number) state[0]).intValue();
+        int held = state[3] == null ? 0 : ((Number) state[3]).intValue();
+        Integer stockQty = listed == null ? null : listed + extraStock + held;
+        boolean explicitlyOutOfStock = Boolean.FALSE.equals(state[1]) && (listed == null || listed > 0);
+        if (explicitlyOutOfStock || (stockQty != null && stockQty <= 0)) {
+            return new IllegalStateException("Product is out of stock");
+        }
+        if (added == 0 && state[2] == null) {
+            return new NoSuchElementException("Cart item not found for product " + productId);
+        }
+        return new IllegalStateException("Stock limit exceeded. Available: " + stockQty);
     }
 
     public void clearCart(User user) {
+        if (memoryStore.isEnabled()) {
+            memoryStore.clear(user.getId());
+            return;
+        }
         cartRepo.deleteByUser(user);
     }
 }
@@ -0,0 +1,427 @@
+package com.eduprajna.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.BinaryOperator;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.eduprajna.entity.CartItem;
+import com.eduprajna.entity.Product;
+import com.eduprajna.entity.User;
+import com.eduprajna.repository.CartItemRepository;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Optional write-behind cart store (cart.write-behind.enabled=true).
+ *
+ * Each user's cart is loaded once into memory and served from there; mutations only change
+ * the in-memory lines and mark them dirty, so a burst of quantity clicks ends up as a single
+ * row write. Dirty lines of all carts are flushed as JDBC batches every flush interval and at
+ * shutdown, and checkout flushes the user's cart synchronously before reading it.
+ *
+ * The memory copy is authoritative only on the node that holds it, so this mode is meant for
+ * a single instance (or sticky sessions). Carts idle past the eviction time are dropped once
+ * clean and reloaded on next use.
+ *
+ * The units the user holds in stock_reservations are loaded with the cart and kept in step by
+ * StockReservationService (see setHeld), so stock checks here never query the database.
+ */
+@Service
+public class CartWriteBehindStore {
+    private static final Logger logger = LoggerFactory.getLogger(CartWriteBehindStore.class);
+
+    private final boolean enabled;
+    private final long idleEvictionMs;
+    private final CartItemRepository cartRepo;
+    private final ProductCatalogCache catalogCache;
+    private final TransactionTemplate transactionTemplate;
+    private final Map<Long, UserCart> carts = new ConcurrentHashMap<>();
+    // Serializes flushes so an older snapshot can never overwrite a newer one
+    private final Object flushLock = new Object();
+
+    public CartWriteBehindStore(CartItemRepository cartRepo, ProductCatalogCache catalogCache,
+                                TransactionTemplate transactionTemplate,
+                                @Value("${cart.write-behind.enabled:false}") boolean enabled,
+                                @Value("${cart.write-behind.idle-eviction-minutes:30}") long idleEvictionMinutes) {
+        this.cartRepo = cartRepo;
+        this.catalogCache = catalogCache;
+        // Own transaction even when called from checkout, so a failed flush cannot doom the order
+        this.transactionTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.enabled = enabled;
+        this.idleEvictionMs = idleEvictionMinutes * 60_000L;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public List<CartItem> getCart(User user) {
+        return withCart(user.getId(), cart -> {
+            List<CartItem> items = new ArrayList<>(cart.lines.size());
+            for (Map.Entry<Long, Line> e : cart.lines.entrySet()) {
+                Optional<Product> product = catalogCache.findById(e.getKey());
+                if (product.isPresent()) items.add(toItem(user, product.get(), e.getValue()));
+            }
+            return items;
+        });
+    }
+
+    public Map<Long, Integer> quantities(Long userId) {
+        return withCart(userId, cart -> {
+            Map<Long, Integer> quantities = new HashMap<>();
+            cart.lines.forEach((productId, line) -> quantities.put(productId, line.quantity));
+            return quantities;
+        });
+    }
+
+    /**
+     * Record the user's reservation after it changed; a cart not in memory loads it with its lines
+     * @param held productId -> quantity, empty when nothing is held any more
+     */
+    public void setHeld(Long userId, Map<Long, Integer> held) {
+        if (!enabled) return;
+        UserCart cart = carts.get(userId);
+        if (cart == null) return;
+        synchronized (cart) {
+            cart.held.clear();
+            cart.held.putAll(held);
+        }
+    }
+
+    /**
+     * @param extraStock Units on sale that the product's stockQuantity does not count, besides
+     *                   the user's own reservation
+     */
+    public CartItem add(User user, Product product, int quantity, int extraStock) {
+        return withCart(user.getId(), cart -> {
+            Line line = cart.lines.get(product.getId());
+            int target = (line == null ? 0 : line.quantity) + quantity;
+            CartService.checkStock(product, target, extraStock + cart.held.getOrDefault(product.getId(), 0));
+            if (line == null) {
+                line = new Line(null, 0, product.getPrice() != null ? product.getPrice() : 0.0);
+                cart.lines.put(product.getId(), line);
+            }
+            line.quantity = target;
+            cart.dirty.add(product.getId());
+            return toItem(user, product, line);
+        });
+    }
+
+    public CartItem set(User user, Product product, int quantity, int extraStock) {
+        return withCart(user.getId(), cart -> {
+            Line line = cart.lines.get(product.getId());
+            if (line == null) throw new NoSuchElementException("Cart item not found for product " + product.getId());
+            CartService.checkStock(product, quantity, extraStock + cart.held.getOrDefault(product.getId(), 0));
+            line.quantity = quantity;
+            cart.dirty.add(product.getId());
+            return toItem(user, product, line);
+        });
+    }
+
+    public void remove(Long userId, Long productId) {
+        withCart(userId, cart -> {
+            if (cart.lines.remove(productId) != null) cart.dirty.add(productId);
+            return null;
+        });
+    }
+
+    public void clear(Long userId) {
+        withCart(userId, cart -> {
+            cart.dirty.addAll(cart.lines.keySet());
+            cart.lines.clear();
+            return null;
+        });
+    }
+
+    /**
+     * Replace the cart's quantities with what the function computes from the current ones and
+     * the units the user holds, atomically with respect to other mutations of the same cart
+     * @param prices unit price snapshot for lines that do not exist yet
+     */
+    public void update(Long userId, BinaryOperator<Map<Long, Integer>> change, Map<Long, Double> prices) {
+        withCart(userId, cart -> {
+            Map<Long, Integer> before = new HashMap<>();
+            cart.lines.forEach((productId, line) -> before.put(productId, line.quantity));
+            Map<Long, Integer> after = change.apply(new HashMap<>(before), new HashMap<>(cart.held));
+            for (Long productId : before.keySet()) {
+                if (!after.containsKey(productId)) {
+                    cart.lines.remove(productId);
+                    cart.dirty.add(productId);
+                }
+            }
+            after.forEach((productId, quantity) -> {
+                if (quantity.equals(before.get(productId))) return;
+                cart.lines.computeIfAbsent(productId, id -> new Line(null, 0, prices.getOrDefault(id, 0.0))).quantity = quantity;
+                cart.dirty.add(productId);
+            });
+            return null;
+        });
+    }
+
+    /**
+     * Write the user's pending changes now (checkout calls this before reading cart_items)
+     * @throws IllegalStateException when they could not be written; they stay pending then
+     */
+    public void flush(Long userId) {
+        if (!enabled) return;
+        UserCart cart = carts.get(userId);
+        if (cart == null) return;
+        try {
+            write(List.of(cart));
+        } catch (RuntimeException e) {
+            throw new IllegalStateException("Could not save your cart, please try again", e);
+        }
+    }
+
+    /**
+     * Drop the user's in-memory cart, e.g. after checkout emptied cart_items; reloaded on next use.
+     * Inside a transaction this happens after commit, so a reload cannot see the old rows.
+     */
+    public void forget(Long userId) {
+        if (!enabled) return;
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict(userId);
+                }
+            });
+        } else {
+            evict(userId);
+        }
+    }
+
+    private void evict(Long userId) {
+        UserCart cart = carts.remove(userId);
+        if (cart != null) {
+            synchronized (cart) {
+                cart.evicted = true;
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${cart.write-behind.flush-ms:1000}")
+    public void flushDirty() {
+        if (!enabled || carts.isEmpty()) return;
+        try {
+            write(new ArrayList<>(carts.values()));
+        } catch (RuntimeException e) {
+            logger.warn("Could not flush carts, will retry: {}", e.getMessage());
+        }
+        long cutoff = System.currentTimeMillis() - idleEvictionMs;
+        carts.values().removeIf(cart -> {
+            synchronized (cart) {
+                cart.evicted = cart.dirty.isEmpty() && cart.lastAccess < cutoff;
+                return cart.evicted;
+            }
+        });
+    }
+
+    @PreDestroy
+    public void flushAll() {
+        if (!enabled || carts.isEmpty()) return;
+        try {
+            write(new ArrayList<>(carts.values()));
+        } catch (RuntimeException e) {
+            logger.error("Could not flush in-memory carts at shutdown, their latest changes are lost: {}", e.getMessage());
+            return;
+        }
+        logger.info("Flushed {} in-memory carts at shutdown", carts.size());
+    }
+
+    /**
+     * Write the carts' dirty lines in one transaction. On failure every change is marked dirty
+     * again and the carts are retried one by one, then line by line, to find the culprit.
+     * @throws RuntimeException when a cart could not be written; its changes stay pending
+     */
+    private void write(List<UserCart> dirtyCarts) {
+        synchronized (flushLock) {
+            List<Object[]> upserts = new ArrayList<>();
+            List<Object[]> deletes = new ArrayList<>();
+            Map<UserCart, Set<Long>> taken = new LinkedHashMap<>();
+            for (UserCart cart : dirtyCarts) {
+                synchronized (cart) {
+                    if (cart.dirty.isEmpty()) continue;
+                    for (Long productId : cart.dirty) {
+                        Line line = cart.lines.get(productId);
+                        if (line == null) deletes.add(new Object[] { cart.userId, productId });
+                        else upserts.add(new Object[] { cart.userId, productId, line.quantity, line.priceAtAdd });
+                    }
+                    taken.put(cart, new LinkedHashSet<>(cart.dirty));
+                    cart.dirty.clear();
+                }
+            }
+            if (taken.isEmpty()) return;
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    cartRepo.upsertLines(upserts);
+                    cartRepo.deleteLines(deletes);
+                });
+            } catch (RuntimeException e) {
+                taken.forEach(CartWriteBehindStore::markDirty);
+                if (taken.size() == 1) {
+                    writeLineByLine(taken.keySet().iterator().next());
+                    return;
+                }
+                // Isolate the failing cart(s); the others are written all the same
+                RuntimeException failure = null;
+                for (UserCart cart : taken.keySet()) {
+                    try {
+                        write(List.of(cart));
+                    } catch (RuntimeException cartFailure) {
+                        logger.warn("Could not flush cart of user {}, will retry: {}", cart.userId, cartFailure.getMessage());
+                        if (failure == null) failure = cartFailure;
+                    }
+                }
+                if (failure != null) throw failure;
+                return;
+            }
+            fillNewLineIds(taken.keySet());
+        }
+    }
+
+    // One transaction per line. A line the database rejects as such (e.g. its product was
+    // deleted meanwhile) is dropped from the cart; any other error stops here and leaves the
+    // remaining lines pending.
+    private void writeLineByLine(UserCart cart) {
+        List<Long> productIds;
+        synchronized (cart) {
+            productIds = new ArrayList<>(cart.dirty);
+        }
+        for (Long productId : productIds) {
+            Object[] row;
+            boolean upsert;
+            synchronized (cart) {
+                if (!cart.dirty.remove(productId)) continue;
+                Line line = cart.lines.get(productId);
+                upsert = line != null;
+                row = upsert ? new Object[] { cart.userId, productId, line.quantity, line.priceAtAdd }
+                        : new Object[] { cart.userId, productId };
+            }
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    if (upsert) cartRepo.upsertLines(List.<Object[]>of(row));
+                    else cartRepo.deleteLines(List.<Object[]>of(row));
+                });
+            } catch (DataIntegrityViolationException e) {
+                logger.warn("Dropping product {} from the cart of user {}, the database rejected it: {}",
+                        productId, cart.userId, e.getMessage());
+                synchronized (cart) {
+                    if (!cart.dirty.contains(productId)) cart.lines.remove(productId);
+                }
+            } catch (RuntimeException e) {
+                synchronized (cart) {
+                    cart.dirty.add(productId);
+                }
+                throw e;
+            }
+        }
+        fillNewLineIds(Set.of(cart));
+    }
+
+    private static void markDirty(UserCart cart, Set<Long> productIds) {
+        synchronized (cart) {
+            cart.dirty.addAll(productIds);
+        }
+    }
+
+    // Rows inserted by a flush get their ids so later responses carry them
+    private void fillNewLineIds(Set<UserCart> flushed) {
+        List<Long> userIds = new ArrayList<>();
+        for (UserCart cart : flushed) {
+            synchronized (cart) {
+                if (cart.lines.values().stream().anyMatch(l -> l.id == null)) userIds.add(cart.userId);
+            }
+        }
+        if (userIds.isEmpty()) return;
+        for (Object[] row : cartRepo.findLineIds(userIds)) {
+            UserCart cart = carts.get((Long) row[0]);
+            if (cart == null) continue;
+            synchronized (cart) {
+                Line line = cart.lines.get((Long) row[1]);
+                if (line != null && line.id == null) line.id = (Long) row[2];
+            }
+        }
+    }
+
+    // Run fn under the cart's lock, retrying on a fresh copy if the cart was evicted meanwhile
+    private <T> T withCart(Long userId, Function<UserCart, T> fn) {
+        while (true) {
+            UserCart cart = cart(userId);
+            synchronized (cart) {
+                if (!cart.evicted) return fn.apply(cart);
+            }
+        }
+    }
+
+    private UserCart cart(Long userId) {
+        UserCart cart = carts.computeIfAbsent(userId, id -> {
+            UserCart loaded = new UserCart(id);
+            for (Object[] row : cartRepo.findLines(id)) {
+                loaded.lines.put((Long) row[1], new Line((Long) row[0], (Integer) row[2], (Double) row[3]));
+                if (row[4] != null) loaded.held.put((Long) row[1], (Integer) row[4]);
+            }
+            return loaded;
+        });
+        cart.lastAccess = System.currentTimeMillis();
+        return cart;
+    }
+
+    private static CartItem toItem(User user, Product product, Line line) {
+        CartItem item = new CartItem();
+        item.setId(line.id);
+        item.setUser(user);
+        item.setProduct(product);
+        item.setQuantity(line.quantity);
+        item.setPriceAtAdd(line.priceAtAdd);
+        return item;
+    }
+
+    private static final class UserCart {
+        final Long userId;
+        // productId -> line, in the order lines were added
+        final Map<Long, Line> lines = new LinkedHashMap<>();
+        final Set<Long> dirty = new LinkedHashSet<>();
+        // productId -> units the user holds in stock_reservations
+        final Map<Long, Integer> held = new HashMap<>();
+        volatile long lastAccess;
+        boolean evicted;
+
+        UserCart(Long userId) {
+            this.userId = userId;
+        }
+    }
+
+    private static final class Line {
+        Long id;
+        int quantity;
+        final double priceAtAdd;
+
+        Line(Long id, int quantity, double priceAtAdd) {
+            this.id = id;
+            this.quantity = quantity;
+            this.priceAtAdd = priceAtAdd;
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package com.eduprajna.service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.eduprajna.entity.Category;
+import com.eduprajna.event.ProductChangedEvent;
+import com.eduprajna.repository.CategoryRepository;
+import com.eduprajna.repository.ProductRepository;
+
+/**
+ * Category hierarchy: admin edits go to the database, reads come from an immutable
+ * CategoryTree snapshot that is rebuilt and swapped in after each committed change.
+ *
+ * Categories carry a materialized path ("/rootId/childId/") and products link to the most
+ * specific node matching their category/subcategory strings, so "everything under Hair Care"
+ * is one product query on category_id IN (subtree ids), with the ids taken from memory.
+ */
+@Service
+public class CategoryService {
+    private static final Logger logger = LoggerFactory.getLogger(CategoryService.class);
+
+    private final CategoryRepository categoryRepository;
+    private final ProductRepository productRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private volatile CategoryTree tree;
+
+    public CategoryService(CategoryRepository categoryRepository, ProductRepository productRepository,
+                           TransactionTemplate transactionTemplate, ApplicationEventPublisher eventPublisher) {
+        this.categoryRepository = categoryRepository;
+        this.productRepository = productRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * Current snapshot; loaded on first use, then only replaced after admin edits
+     */
+    public CategoryTree getTree() {
+        CategoryTree t = tree;
+        if (t == null) {
+            synchronized (this) {
+                t = tree;
+                if (t == null) t = reload();
+            }
+        }
+        return t;
+    }
+
+    public synchronized CategoryTree reload() {
+        CategoryTree t = new CategoryTree(categoryRepository.findTreeRows());
+        tree = t;
+        logger.debug("Category tree loaded with {} categories", t.size());
+        return t;
+    }
+
+    /**
+     * Find (or create) the node for a product's category/subcategory strings, in the caller's transaction
+     * @return Reference to the most specific matching category, or null when category is blank
+     */
+    public Category resolveOrCreate(String category, String subcategory) {
+        if (category == null || category.trim().isEmpty()) return null;
+        CategoryTree t = getTree();
+
+        CategoryTree.Node root = t.findByName(category);
+        Category rootRef = root != null ? categoryRepository.getReferenceById(root.id) : insert(category.trim(), null);
+        if (subcategory == null || subcategory.trim().isEmpty()) return rootRef;
+
+        CategoryTree.Node sub = t.findByName(subcategory);
+        if (sub == null) {
+            return insert(subcategory.trim(), rootRef);
+        }
+        // Names are unique across the whole tree; a subcategory filed under another parent keeps the product at the root
+        return root != null && root.id == (sub.parentId != null ? sub.parentId : -1)
+                ? categoryRepository.getReferenceById(sub.id) : rootRef;
+    }
+
+    @Transactional
+    public Category create(String name, Long parentId) {
+        String trimmed = requireName(name);
+        if (getTree().findByName(trimmed) != null) {
+            throw new IllegalArgumentException("Category already exists: " + trimmed);
+        }
+        Category parent = null;
+        if (parentId != null) {
+            parent = categoryRepository.findById(parentId)
+                    .orElseThrow(() -> new RuntimeException("Parent category not found: " + parentId));
+        }
+        return insert(trimmed, parent);
+    }
+
+    /**
+     * Rename and/or move a category. Moving rewrites the paths of the whole subtree, and
+     * products linked into the subtree get their category/subcategory strings relabelled.
+     */
+    @Transactional
+    public Category update(Long id, String name, Long parentId) {
+        Category c = categoryRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Category not found: " + id));
+        String trimmed = requireName(name);
+        CategoryTree.Node existing = getTree().findByName(trimmed);
+        if (existing != null && existing.id != id) {
+            throw new IllegalArgumentException("Category already exists: " + trimmed);
+        }
+        Category parent = null;
+        if (parentId != null) {
+            parent = categoryRepository.findById(parentId)
+                    .orElseThrow(() -> new RuntimeException("Parent category not found: " + parentId));
+            if (parent.getPath() != null && parent.getPath().startsWith(c.getPath())) {
+                throw new IllegalArgumentException("A category cannot be moved under itself or its descendants");
+            }
+        }
+
+        String oldPath = c.getPath();
+        c.setName(trimmed);
+        c.setParent(parent);
+        String newPath = (parent != null ? parent.getPath() : "/") + c.getId() + "/";
+        int depthDelta = (parent != null ? depthOf(parent) + 1 : 0) - depthOf(c);
+
+        List<Category> subtree = categoryRepository.findByPathStartingWith(oldPath);
+        for (Category d : subtree) {
+            d.setPath(newPath + d.getPath().substring(oldPath.length()));
+            d.setDepth(depthOf(d) + depthDelta);
+        }
+        categoryRepository.flush();
+
+        // Relabel products linked anywhere in the subtree: category is the root's name, subcategory
+        // the linked category's own name. Products linked to a root keep their subcategory text
+        // (resolveOrCreate links a subcategory filed under another parent at the root).
+        Map<Long, String> names = new HashMap<>();
+        for (Object[] row : categoryRepository.findTreeRows()) names.put((Long) row[0], (String) row[1]);
+        int relabelled = 0;
+        for (Category d : subtree) {
+            String rootName = names.get(Long.valueOf(d.getPath().substring(1).split("/")[0]));
+            relabelled += depthOf(d) == 0
+                    ? productRepository.relabelRootCategory(d.getId(), rootName)
+                    : productRepository.relabelCategory(d.getId(), rootName, d.getName());
+        }
+        if (relabelled > 0) eventPublisher.publishEvent(ProductChangedEvent.allProducts());
+
+        reloadAfterCommit();
+        return c;
+    }
+
+    @Transactional
+    public void delete(Long id) {
+        if (!categoryRepository.existsById(id)) {
+            throw new RuntimeException("Category not found: " + id);
+        }
+        if (categoryRepository.existsByParentId(id)) {
+            throw new IllegalStateException("Category has subcategories; move or delete them first");
+        }
+        if (productRepository.existsByCategoryRefId(id)) {
+            throw new IllegalStateException("Category still has products");
+        }
+        categoryRepository.deleteById(id);
+        reloadAfterCommit();
+    }
+
+    /**
+     * Give legacy categories a path and link every product that has category strings but no
+     * category_id, creating missing nodes. One short transaction per distinct pair; idempotent.
+     * @return Number of products linked
+     */
+    public int linkUnassignedProducts() {
+        transactionTemplate.executeWithoutResult(status -> {
+            List<Category> legacy = categoryRepository.findByPathIsNull();
+            for (Category c : legacy) {
+                // Rows from before the hierarchy existed are all top-level
+                c.setPath("/" + c.getId() + "/");
+                c.setDepth(0);
+            }
+            if (!legacy.isEmpty()) reloadAfterCommit();
+        });
+
+        int linked = 0;
+        for (Object[] pair : productRepository.findUnlinkedCategoryPairs()) {
+            String category = (String) pair[0];
+            String subcategory = (String) pair[1];
+            Integer n = transactionTemplate.execute(status -> {
+                Category ref = resolveOrCreate(category, subcategory);
+                if (ref == null) return 0;
+                return subcategory == null
+                        ? productRepository.linkCategoryWithoutSubcategory(ref, category)
+                        : productRepository.linkCategory(ref, category, subcategory);
+            });
+            linked += n != null ? n : 0;
+        }
+        if (linked > 0) logger.info("Linked {} products to categories", linked);
+        return linked;
+    }
+
+    private Category insert(String name, Category parent) {
+        Category c = new Category();
+        c.setName(name);
+        c.setParent(parent);
+        c = categoryRepository.save(c);
+        // IDENTITY key: the path can only be written once the id exists
+        c.setPath((parent != null ? parent.getPath() : "/") + c.getId() + "/");
+        c.setDepth(parent != null ? depthOf(parent) + 1 : 0);
+        reloadAfterCommit();
+        return c;
+    }
+
+    // The snapshot must never show uncommitted rows, so swap it only once the transaction commits
+    private void reloadAfterCommit() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    reload();
+                }
+            });
+        } else {
+            reload();
+        }
+    }
+
+    private static int depthOf(Category c) {
+        return c.getDepth() != null ? c.getDepth() : 0;
+    }
+
+    private static String requireName(String name) {
+        if (name == null || name.trim().isEmpty()) {
+            throw new IllegalArgumentException("Category name is required");
+        }
+        if (name.trim().length() > 255) {
+            throw new IllegalArgumentException("Category name exceeds 255 characters");
+        }
+        return name.trim();
+    }
+}
@@ -0,0 +1,143 @@
+package com.eduprajna.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import com.eduprajna.dto.CategoryDTO;
+
+/**
+ * Immutable snapshot of the category hierarchy. Built once from a full read of the
+ * categories table and replaced wholesale on admin edits, so readers never lock and never
+ * see a half-applied change. Every node knows the ids of its whole subtree.
+ */
+public final class CategoryTree {
+
+    public static final class Node {
+        public final long id;
+        public final String name;
+        public final Long parentId;
+        public final String path;
+        public final int depth;
+        private final List<Node> children = new ArrayList<>();
+        private List<Long> subtreeIds;
+
+        private Node(Object[] row) {
+            this.id = (Long) row[0];
+            this.name = (String) row[1];
+            this.parentId = (Long) row[2];
+            this.path = (String) row[3];
+            this.depth = row[4] != null ? (Integer) row[4] : 0;
+        }
+
+        public List<Node> children() {
+            return children;
+        }
+
+        /** This node's id and all of its descendants' */
+        public List<Long> subtreeIds() {
+            return subtreeIds;
+        }
+    }
+
+    static final CategoryTree EMPTY = new CategoryTree(List.of());
+
+    private final Map<Long, Node> byId = new HashMap<>();
+    private final Map<String, Node> byName = new HashMap<>();
+    private final List<Node> roots = new ArrayList<>();
+    private final List<CategoryDTO> flat;
+    private final List<CategoryDTO> nested;
+
+    /**
+     * @param rows [id, name, parentId, path, depth] as returned by CategoryRepository.findTreeRows
+     */
+    CategoryTree(List<Object[]> rows) {
+        for (Object[] row : rows) {
+            Node n = new Node(row);
+            byId.put(n.id, n);
+            byName.put(key(n.name), n);
+        }
+        for (Node n : byId.values()) {
+            Node parent = n.parentId != null ? byId.get(n.parentId) : null;
+            if (parent != null) parent.children.add(n); else roots.add(n);
+        }
+        Comparator<Node> byLabel = Comparator.comparing((Node n) -> n.name, String.CASE_INSENSITIVE_ORDER);
+        roots.sort(byLabel);
+        for (Node root : roots) freeze(root, byLabel);
+
+        // Response bodies are built once per snapshot, not per request
+        List<CategoryDTO> flatList = new ArrayList<>(byId.size());
+        List<CategoryDTO> nestedList = new ArrayList<>(roots.size());
+        for (Node root : roots) {
+            flatten(root, flatList);
+            nestedList.add(nested(root));
+        }
+        this.flat = Collections.unmodifiableList(flatList);
+        this.nested = Collections.unmodifiableList(nestedList);
+    }
+
+    private static List<Long> freeze(Node n, Comparator<Node> order) {
+        n.children.sort(order);
+        List<Long> ids = new ArrayList<>();
+        ids.add(n.id);
+        for (Node child : n.children) ids.addAll(freeze(child, order));
+        n.subtreeIds = Collections.unmodifiableList(ids);
+        return ids;
+    }
+
+    public Node get(Long id) {
+        return id == null ? null : byId.get(id);
+    }
+
+    public Node findByName(String name) {
+        return name == null ? null : byName.get(key(name));
+    }
+
+    public List<Node> roots() {
+        return Collections.unmodifiableList(roots);
+    }
+
+    public int size() {
+        return byId.size();
+    }
+
+    /** Depth-first, name-ordered flat list */
+    public List<CategoryDTO> toFlatList() {
+        return flat;
+    }
+
+    /** Roots with their children filled in recursively */
+    public List<CategoryDTO> toNestedList() {
+        return nested;
+    }
+
+    public static CategoryDTO toDTO(Node n) {
+        CategoryDTO dto = new CategoryDTO();
+        dto.id = n.id;
+        dto.name = n.name;
+        dto.parentId = n.parentId;
+        dto.path = n.path;
+        dto.depth = n.depth;
+        return dto;
+    }
+
+    private static void flatten(Node n, List<CategoryDTO> out) {
+        out.add(toDTO(n));
+        for (Node child : n.children) flatten(child, out);
+    }
+
+    private static CategoryDTO nested(Node n) {
+        CategoryDTO dto = toDTO(n);
+        dto.children = new ArrayList<>(n.children.size());
+        for (Node child : n.children) dto.children.add(nested(child));
+        return dto;
+    }
+
+    static String key(String name) {
+        return name.trim().toLowerCase(Locale.ROOT);
+    }
+}
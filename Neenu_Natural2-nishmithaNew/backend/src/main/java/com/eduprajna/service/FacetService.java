@@ -0,0 +1,250 @@
+package com.eduprajna.service;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.eduprajna.dto.FacetCountsDTO;
+import com.eduprajna.entity.Product;
+import com.eduprajna.event.ProductChangedEvent;
+import com.eduprajna.repository.ProductRepository;
+
+/**
+ * Facet counts for the catalog sidebar (category, subcategory, price bucket, in-stock).
+ *
+ * Each active product gets a dense ordinal and every facet value keeps a bitset (long words)
+ * of the ordinals that carry it. A query intersects the selected values and, per facet,
+ * counts each value against the intersection of the <em>other</em> facets' filters, so the
+ * sidebar can show what selecting a different value would yield. Bits are maintained
+ * incrementally from ProductChangedEvent (admin saves and checkout stock updates).
+ */
+@Service
+public class FacetService {
+    private static final Logger logger = LoggerFactory.getLogger(FacetService.class);
+
+    public static final String FACET_CATEGORY = "category";
+    public static final String FACET_SUBCATEGORY = "subcategory";
+    public static final String FACET_PRICE = "price";
+    public static final String FACET_IN_STOCK = "inStock";
+    private static final String[] FACETS = { FACET_CATEGORY, FACET_SUBCATEGORY, FACET_PRICE, FACET_IN_STOCK };
+
+    private final ProductRepository productRepository;
+    private final double[] priceEdges;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // facet name -> value -> bitset over ordinals
+    private final Map<String, Map<String, long[]>> facets = new HashMap<>();
+    private long[] active = new long[0];
+
+    // ordinal -> facet values currently set for it, in FACETS order
+    private String[][] ordinalValues = new String[1024][];
+    private final Map<Long, Integer> ordinals = new HashMap<>();
+    private final ArrayDeque<Integer> freeOrdinals = new ArrayDeque<>();
+    private int nextOrdinal;
+
+    public FacetService(ProductRepository productRepository,
+                        @Value("${facets.price-buckets:250,500,1000,2000}") double[] priceEdges) {
+        this.productRepository = productRepository;
+        this.priceEdges = priceEdges.clone();
+        Arrays.sort(this.priceEdges);
+        for (String facet : FACETS) facets.put(facet, new HashMap<>());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        List<Object[]> rows = productRepository.findFacetRows();
+        lock.writeLock().lock();
+        try {
+            facets.values().forEach(Map::clear);
+            active = new long[0];
+            ordinalValues = new String[Math.max(1024, rows.size())][];
+            ordinals.clear();
+            freeOrdinals.clear();
+            nextOrdinal = 0;
+            for (Object[] row : rows) {
+                put((Long) row[0], (String) row[1], (String) row[2], (Double) row[3],
+                        (Integer) row[4], (Boolean) row[5], (Boolean) row[6]);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.info("Facet index built for {} products in {} ms", ordinals.size(), System.currentTimeMillis() - start);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        if (event.isAllProducts()) {
+            rebuild();
+            return;
+        }
+        List<Product> changed = productRepository.findAllById(event.getProductIds());
+        lock.writeLock().lock();
+        try {
+            Set<Long> found = new HashSet<>();
+            for (Product p : changed) {
+                found.add(p.getId());
+                put(p.getId(), p.getCategory(), p.getSubcategory(), p.getPrice(),
+                        p.getStockQuantity(), p.getInStock(), p.getIsActive());
+            }
+            for (Long id : event.getProductIds()) {
+                if (!found.contains(id)) remove(id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Count active products for a filter combination
+     * @param filters facet name -> selected value; absent facets are unfiltered
+     */
+    public FacetCountsDTO count(Map<String, String> filters) {
+        lock.readLock().lock();
+        try {
+            long[][] selected = new long[FACETS.length][];
+            for (int f = 0; f < FACETS.length; f++) {
+                String value = filters.get(FACETS[f]);
+                if (value != null) {
+                    selected[f] = facets.get(FACETS[f]).getOrDefault(value, new long[0]);
+                }
+            }
+
+            FacetCountsDTO result = new FacetCountsDTO();
+            long[] all = active.clone();
+            for (long[] bits : selected) {
+                if (bits != null) andInto(all, bits);
+            }
+            result.total = cardinality(all);
+            result.category = countFacet(0, selected);
+            result.subcategory = countFacet(1, selected);
+            result.price = countFacet(2, selected);
+            result.inStock = countFacet(3, selected);
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public String priceBucket(Double price) {
+        if (price == null) return null;
+        double lower = 0;
+        for (double edge : priceEdges) {
+            if (price < edge) return formatEdge(lower) + "-" + formatEdge(edge);
+            lower = edge;
+        }
+        return formatEdge(lower) + "+";
+    }
+
+    // Counts for one facet ignore that facet's own selection (multi-select sidebar semantics)
+    private Map<String, Integer> countFacet(int facet, long[][] selected) {
+        long[] base = active.clone();
+        for (int f = 0; f < selected.length; f++) {
+            if (f != facet && selected[f] != null) andInto(base, selected[f]);
+        }
+        Map<String, Integer> counts = new TreeMap<>();
+        for (Map.Entry<String, long[]> e : facets.get(FACETS[facet]).entrySet()) {
+            int n = andCardinality(base, e.getValue());
+            if (n > 0) counts.put(e.getKey(), n);
+        }
+        return counts;
+    }
+
+    // ---- maintenance (callers hold the write lock) ----
+
+    private void put(Long id, String category, String subcategory, Double price,
+                     Integer stockQuantity, Boolean inStock, Boolean isActive) {
+        remove(id);
+        if (Boolean.FALSE.equals(isActive)) return;
+
+        int ord = freeOrdinals.isEmpty() ? nextOrdinal++ : freeOrdinals.pop();
+        if (ord >= ordinalValues.length) {
+            ordinalValues = Arrays.copyOf(ordinalValues, ordinalValues.length * 2);
+        }
+        boolean available = (inStock != null) ? inStock : (stockQuantity == null || stockQuantity > 0);
+        String[] values = { blankToNull(category), blankToNull(subcategory), priceBucket(price), Boolean.toString(available) };
+        ordinalValues[ord] = values;
+        ordinals.put(id, ord);
+        active = setBit(active, ord);
+        for (int f = 0; f < FACETS.length; f++) {
+            if (values[f] == null) continue;
+            Map<String, long[]> byValue = facets.get(FACETS[f]);
+            byValue.put(values[f], setBit(byValue.getOrDefault(values[f], new long[0]), ord));
+        }
+    }
+
+    private void remove(Long id) {
+        Integer ord = ordinals.remove(id);
+        if (ord == null) return;
+        String[] values = ordinalValues[ord];
+        clearBit(active, ord);
+        for (int f = 0; f < FACETS.length; f++) {
+            if (values[f] == null) continue;
+            Map<String, long[]> byValue = facets.get(FACETS[f]);
+            long[] bits = byValue.get(values[f]);
+            if (bits != null) {
+                clearBit(bits, ord);
+                if (cardinality(bits) == 0) byValue.remove(values[f]);
+            }
+        }
+        ordinalValues[ord] = null;
+        freeOrdinals.push(ord);
+    }
+
+    // ---- word-array bitset helpers; arrays of different lengths are zero-extended ----
+
+    private static long[] setBit(long[] bits, int index) {
+        int word = index >>> 6;
+        if (word >= bits.length) {
+            bits = Arrays.copyOf(bits, Math.max(word + 1, bits.length * 2));
+        }
+        bits[word] |= 1L << index;
+        return bits;
+    }
+
+    private static void clearBit(long[] bits, int index) {
+        int word = index >>> 6;
+        if (word < bits.length) bits[word] &= ~(1L << index);
+    }
+
+    private static void andInto(long[] target, long[] other) {
+        for (int i = 0; i < target.length; i++) {
+            target[i] &= i < other.length ? other[i] : 0L;
+        }
+    }
+
+    private static int andCardinality(long[] a, long[] b) {
+        int n = 0;
+        int len = Math.min(a.length, b.length);
+        for (int i = 0; i < len; i++) n += Long.bitCount(a[i] & b[i]);
+        return n;
+    }
+
+    private static int cardinality(long[] bits) {
+        int n = 0;
+        for (long w : bits) n += Long.bitCount(w);
+        return n;
+    }
+
+    private static String formatEdge(double edge) {
+        return edge == Math.rint(edge) ? Long.toString((long) edge) : Double.toString(edge);
+    }
+
+    private static String blankToNull(String value) {
+        return (value == null || value.trim().isEmpty()) ? null : value.trim();
+    }
+}
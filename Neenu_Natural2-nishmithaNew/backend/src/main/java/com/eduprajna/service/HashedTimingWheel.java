@@ -0,0 +1,93 @@
+package com.eduprajna.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Hashed timing wheel: keys with a deadline, found again when it passes.
+ *
+ * The wheel has a power-of-two number of buckets, each covering one tick; a key goes into the
+ * bucket of its deadline tick modulo the wheel size and is only due once that tick is reached,
+ * so deadlines further away than one turn simply wait a number of rounds. Scheduling and
+ * cancelling are O(1), and advancing the wheel only looks at the buckets of the ticks passed.
+ * Deadlines have tick granularity and are never reported early. Each key has at most one
+ * deadline; scheduling it again replaces the old one.
+ */
+final class HashedTimingWheel<K> {
+    private final long tickMs;
+    private final long startMs;
+    private final int mask;
+    private final List<Set<Timeout<K>>> buckets;
+    private final Map<K, Timeout<K>> timeouts = new HashMap<>();
+    private long currentTick;
+
+    HashedTimingWheel(long tickMs, int wheelSize, long startMs) {
+        if (tickMs < 1) throw new IllegalArgumentException("Tick must be at least 1 ms");
+        int size = Integer.highestOneBit(Math.max(1, wheelSize - 1)) << 1;
+        this.tickMs = tickMs;
+        this.startMs = startMs;
+        this.mask = size - 1;
+        this.buckets = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) buckets.add(new LinkedHashSet<>());
+    }
+
+    synchronized void schedule(K key, long deadlineMs) {
+        cancel(key);
+        // Round up so the key is never due before its deadline, and never in a tick already passed
+        long tick = Math.max(currentTick + 1, Math.floorDiv(deadlineMs - startMs + tickMs - 1, tickMs));
+        Timeout<K> timeout = new Timeout<>(key, tick);
+        timeouts.put(key, timeout);
+        buckets.get((int) (tick & mask)).add(timeout);
+    }
+
+    synchronized boolean cancel(K key) {
+        Timeout<K> timeout = timeouts.remove(key);
+        if (timeout == null) return false;
+        buckets.get((int) (timeout.tick & mask)).remove(timeout);
+        return true;
+    }
+
+    /**
+     * Move the wheel up to the given time
+     * @return Keys whose deadline has passed, removed from the wheel
+     */
+    synchronized List<K> advance(long nowMs) {
+        long target = Math.floorDiv(nowMs - startMs, tickMs);
+        List<K> expired = new ArrayList<>();
+        if (target <= currentTick) return expired;
+        // After a long pause every bucket has been passed at least once; visit each only once
+        long steps = Math.min(target - currentTick, buckets.size());
+        for (long i = 1; i <= steps; i++) {
+            Iterator<Timeout<K>> it = buckets.get((int) ((currentTick + i) & mask)).iterator();
+            while (it.hasNext()) {
+                Timeout<K> timeout = it.next();
+                if (timeout.tick <= target) {
+                    it.remove();
+                    timeouts.remove(timeout.key);
+                    expired.add(timeout.key);
+                }
+            }
+        }
+        currentTick = target;
+        return expired;
+    }
+
+    synchronized int size() {
+        return timeouts.size();
+    }
+
+    private static final class Timeout<K> {
+        final K key;
+        final long tick;
+
+        Timeout(K key, long tick) {
+            this.key = key;
+            this.tick = tick;
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package com.eduprajna.service;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Runs a request at most once per Idempotency-Key and replays its response to repeats.
+ *
+ * Completed responses are kept in a bounded in-memory cache backed by the idempotency_keys
+ * table, so a repeat is answered without touching anything else, on any node. A repeat that
+ * arrives while the first request is still running waits for its result: in-process through
+ * the shared future, across nodes by polling the row. The first request claims the key with
+ * an insert and stores its response in the same transaction as its own work, so a key can
+ * never be completed without the work or the work committed without the key. A request that
+ * fails gives the key up again, so the client may retry it.
+ *
+ * A claim is a lease held by one run (owner) and renewed by a heartbeat while the run works.
+ * Only a lease that ran out, because its node died, can be taken over, and storing the
+ * response is conditional on still owning the claim: a run that stalled past its lease and
+ * was taken over rolls its work back instead of committing a second order.
+ */
+@Service
+public class IdempotencyService {
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyService.class);
+
+    public static final int MAX_KEY_LENGTH = 100;
+
+    private static final String IN_PROGRESS = "IN_PROGRESS";
+    private static final String COMPLETED = "COMPLETED";
+    private static final long POLL_MS = 100;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final BoundedCache<String, Object> completed;
+    private final Map<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    // Keys this node is running -> owner of the claim, for the heartbeat
+    private final Map<String, String> claimed = new ConcurrentHashMap<>();
+    private final long waitMs;
+    private final Duration lease;
+    private final Duration retention;
+
+    public IdempotencyService(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate, ObjectMapper objectMapper,
+                              @Value("${idempotency.cache-size:10000}") int cacheSize,
+                              @Value("${idempotency.retention-hours:24}") long retentionHours,
+                              @Value("${idempotency.wait-ms:10000}") long waitMs,
+                              @Value("${idempotency.lease-seconds:30}") long leaseSeconds) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.completed = new BoundedCache<>(cacheSize, Duration.ofHours(retentionHours).toMillis());
+        this.waitMs = waitMs;
+        this.lease = Duration.ofSeconds(leaseSeconds);
+        this.retention = Duration.ofHours(retentionHours);
+    }
+
+    /**
+     * Run the action once for this key, or return the response of the run that already happened
+     * @param scope Owner of the key (e.g. "order:" + userId); the same key in another scope is unrelated
+     * @throws IllegalArgumentException when the key is blank or too long
+     * @throws RequestInProgressException when another run with the key is still going after the wait time
+     */
+    public <T> T execute(String scope, String key, Class<T> type, Supplier<T> action) {
+        if (key == null || key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Idempotency-Key must be 1 to " + MAX_KEY_LENGTH + " characters");
+        }
+        String id = scope + ":" + key;
+        Object done = completed.get(id, k -> findCompleted(k, type));
+        if (done != null) return type.cast(done);
+
+        CompletableFuture<Object> mine = new CompletableFuture<>();
+        CompletableFuture<Object> running = inFlight.putIfAbsent(id, mine);
+        if (running != null) return type.cast(await(running));
+        try {
+            T result = runOnce(id, type, action);
+            mine.complete(result);
+            return result;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(id, mine);
+        }
+    }
+
+    private <T> T runOnce(String id, Class<T> type, Supplier<T> action) {
+        String owner = UUID.randomUUID().toString();
+        long deadline = System.currentTimeMillis() + waitMs;
+        while (!claim(id, owner)) {
+            List<Object[]> rows = jdbcTemplate.query(
+                    "SELECT status, response FROM idempotency_keys WHERE idem_key = ?",
+                    (rs, i) -> new Object[] { rs.getString(1), rs.getString(2) }, id);
+            if (rows.isEmpty()) continue; // given up by a failed run just now; claim again
+            Object[] row = rows.get(0);
+            if (COMPLETED.equals(row[0])) {
+                T result = fromJson((String) row[1], type);
+                completed.put(id, result);
+                return result;
+            }
+            // The lease ran out: its node died and its work rolled back, take the key over
+            Timestamp now = Timestamp.from(Instant.now());
+            if (jdbcTemplate.update("UPDATE idempotency_keys SET owner = ?, locked_until = ? "
+                            + "WHERE idem_key = ? AND status = ? AND COALESCE(locked_until, created_at) < ?",
+                    owner, Timestamp.from(now.toInstant().plus(lease)), id, IN_PROGRESS, now) == 1) {
+                logger.warn("Took over idempotency key {} after its lease ran out", id);
+                break;
+            }
+            if (System.currentTimeMillis() > deadline) {
+                throw new RequestInProgressException();
+            }
+            sleep();
+        }
+
+        claimed.put(id, owner);
+        try {
+            T result = transactionTemplate.execute(status -> {
+                T r = action.get();
+                if (jdbcTemplate.update("UPDATE idempotency_keys SET status = ?, response = ?, locked_until = NULL "
+                                + "WHERE idem_key = ? AND owner = ? AND status = ?",
+                        COMPLETED, toJson(r), id, owner, IN_PROGRESS) == 0) {
+                    // Stalled past the lease and taken over: the other run's outcome stands
+                    throw new IllegalStateException("This request took too long and was retried; check your orders before trying again");
+                }
+                return r;
+            });
+            completed.put(id, result);
+            return result;
+        } catch (RuntimeException e) {
+            jdbcTemplate.update("DELETE FROM idempotency_keys WHERE idem_key = ? AND owner = ? AND status = ?",
+                    id, owner, IN_PROGRESS);
+            throw e;
+        } finally {
+            claimed.remove(id, owner);
+        }
+    }
+
+    private boolean claim(String id, String owner) {
+        Instant now = Instant.now();
+        try {
+            return jdbcTemplate.update("INSERT INTO idempotency_keys (idem_key, status, owner, locked_until, created_at) "
+                    + "VALUES (?, ?, ?, ?, ?)", id, IN_PROGRESS, owner, Timestamp.from(now.plus(lease)), Timestamp.from(now)) == 1;
+        } catch (DataIntegrityViolationException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Renew the leases of the runs on this node, well before they run out
+     */
+    @Scheduled(fixedDelayString = "${idempotency.heartbeat-ms:10000}")
+    public void heartbeat() {
+        if (claimed.isEmpty()) return;
+        Timestamp until = Timestamp.from(Instant.now().plus(lease));
+        List<Object[]> args = new ArrayList<>(claimed.size());
+        claimed.forEach((id, owner) -> args.add(new Object[] { until, id, owner, IN_PROGRESS }));
+        try {
+            jdbcTemplate.batchUpdate("UPDATE idempotency_keys SET locked_until = ? WHERE idem_key = ? AND owner = ? AND status = ?", args);
+        } catch (RuntimeException e) {
+            logger.warn("Could not renew idempotency key leases: {}", e.getMessage());
+        }
+    }
+
+    private Object await(CompletableFuture<Object> running) {
+        try {
+            return running.get(waitMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            // The first run failed; report the same failure
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new RequestInProgressException();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the request with this Idempotency-Key");
+        }
+    }
+
+    private <T> T findCompleted(String id, Class<T> type) {
+        List<String> rows = jdbcTemplate.queryForList(
+                "SELECT response FROM idempotency_keys WHERE idem_key = ? AND status = ?", String.class, id, COMPLETED);
+        return rows.isEmpty() ? null : fromJson(rows.get(0), type);
+    }
+
+    @Scheduled(fixedDelayString = "${idempotency.purge-ms:3600000}")
+    public void purgeExpired() {
+        int removed = jdbcTemplate.update("DELETE FROM idempotency_keys WHERE status = ? AND created_at < ?",
+                COMPLETED, Timestamp.from(Instant.now().minus(retention)));
+        if (removed > 0) logger.debug("Purged {} expired idempotency keys", removed);
+    }
+
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not store response for idempotent replay", e);
+        }
+    }
+
+    private <T> T fromJson(String json, Class<T> type) {
+        try {
+            return objectMapper.readValue(json, type);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not read stored idempotent response", e);
+        }
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(POLL_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the request with this Idempotency-Key");
+        }
+    }
+}
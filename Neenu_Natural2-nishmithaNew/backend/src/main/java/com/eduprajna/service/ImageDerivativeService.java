@@ -0,0 +1,239 @@
+package com.eduprajna.service;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.eduprajna.entity.Product;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Generates resized copies (Product.IMAGE_WIDTHS plus a tiny placeholder) of uploaded
+ * images with JDK ImageIO, on a small bounded pool so uploads never wait for resizing.
+ *
+ * Copies live in a "derived" folder next to the originals (sharded like them) as
+ * {name}_w{width}.jpg (or .png when the source has transparency). A copy that is missing when requested, e.g. for images
+ * uploaded before this existed or when the queue was full, is scheduled again and the
+ * original is served meanwhile. Originals that could not be decoded or resized are remembered
+ * for a while and simply served as they are, instead of being decoded again on every request.
+ */
+@Service
+public class ImageDerivativeService {
+    private static final Logger logger = LoggerFactory.getLogger(ImageDerivativeService.class);
+
+    private static final float JPEG_QUALITY = 0.82f;
+    private static final float PLACEHOLDER_QUALITY = 0.3f;
+
+    private final StorageService storageService;
+    private final ThreadPoolExecutor executor;
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+    // Originals whose generation failed (negative cache)
+    private final BoundedCache<String, Boolean> failed;
+
+    public ImageDerivativeService(StorageService storageService,
+                                  @Value("${images.derivative-threads:2}") int threads,
+                                  @Value("${images.derivative-queue:100}") int queueSize,
+                                  @Value("${images.derivative-failure-ttl-hours:24}") long failureTtlHours) {
+        this.storageService = storageService;
+        this.failed = new BoundedCache<>(10_000, TimeUnit.HOURS.toMillis(failureTtlHours));
+        AtomicInteger n = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueSize), r -> {
+                    Thread t = new Thread(r, "image-derivatives-" + n.incrementAndGet());
+                    t.setDaemon(true);
+                    t.setPriority(Thread.NORM_PRIORITY - 1);
+                    return t;
+                });
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    public static boolean isSupportedWidth(int width) {
+        if (width == Product.PLACEHOLDER_WIDTH) return true;
+        for (int w : Product.IMAGE_WIDTHS) {
+            if (w == width) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Queue generation of every copy of a stored original; never blocks the caller
+     */
+    public void generateAsync(String filename) {
+        if (filename == null || hasFailed(filename) || !inFlight.add(filename)) return;
+        try {
+            executor.execute(() -> {
+                try {
+                    if (!generate(filename)) failed.put(filename, Boolean.TRUE);
+                } finally {
+                    inFlight.remove(filename);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Queue full: drop it, the next request for a missing copy schedules it again
+            inFlight.remove(filename);
+            logger.debug("Derivative queue full, skipped {}", filename);
+        }
+    }
+
+    /**
+     * Path of an already generated copy; schedules generation when it does not exist yet,
+     * unless generation failed for this original recently
+     */
+    public Optional<Path> find(String filename, int width) {
+        for (String ext : new String[] { "jpg", "png" }) {
+            Path p = derivedPath(filename, width, ext);
+            if (Files.isRegularFile(p)) return Optional.of(p);
+        }
+        generateAsync(filename);
+        return Optional.empty();
+    }
+
+    public void deleteDerivatives(String filename) {
+        failed.invalidate(filename);
+        for (int w : allWidths()) {
+            for (String ext : new String[] { "jpg", "png" }) {
+                try {
+                    Files.deleteIfExists(derivedPath(filename, w, ext));
+                } catch (IOException e) {
+                    logger.warn("Could not delete derivative of {}: {}", filename, e.getMessage());
+                }
+            }
+        }
+    }
+
+    private boolean hasFailed(String filename) {
+        return failed.get(filename, k -> null) != null;
+    }
+
+    /**
+     * @return false when the original could not be decoded or a copy could not be written
+     */
+    boolean generate(String filename) {
+        long start = System.currentTimeMillis();
+        Path original = storageService.resolvePath(filename);
+        try {
+            BufferedImage source = ImageIO.read(original.toFile());
+            if (source == null) {
+                logger.debug("Not an image ImageIO can decode: {}", filename);
+                return false;
+            }
+            boolean alpha = source.getColorModel().hasAlpha();
+            String ext = alpha ? "png" : "jpg";
+            Files.createDirectories(derivedPath(filename, Product.PLACEHOLDER_WIDTH, ext).getParent());
+
+            // Largest first, each step downscaled from the previous one: cheaper, and halving
+            // steps keep bilinear filtering from aliasing
+            BufferedImage current = source;
+            int[] widths = allWidths();
+            for (int i = widths.length - 1; i >= 0; i--) {
+                int width = Math.min(widths[i], source.getWidth());
+                current = scaleTo(current, width, alpha);
+                float quality = widths[i] == Product.PLACEHOLDER_WIDTH ? PLACEHOLDER_QUALITY : JPEG_QUALITY;
+                write(current, derivedPath(filename, widths[i], ext), ext, quality);
+            }
+            logger.debug("Generated derivatives of {} in {} ms", filename, System.currentTimeMillis() - start);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Derivative generation failed for {}: {}", filename, e.getMessage());
+            return false;
+        }
+    }
+
+    private static BufferedImage scaleTo(BufferedImage src, int width, boolean alpha) {
+        BufferedImage current = src;
+        int type = alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        int w = current.getWidth();
+        do {
+            w = Math.max(width, w / 2);
+            int h = Math.max(1, (int) Math.round((double) src.getHeight() * w / src.getWidth()));
+            BufferedImage next = new BufferedImage(w, h, type);
+            Graphics2D g = next.createGraphics();
+            try {
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                g.drawImage(current, 0, 0, w, h, null);
+            } finally {
+                g.dispose();
+            }
+            current = next;
+        } while (w > width);
+        return current;
+    }
+
+    // Write to a temp file and move into place so readers never see a partial image
+    private static void write(BufferedImage img, Path target, String ext, float quality) throws IOException {
+        Path tmp = Files.createTempFile(target.getParent(), ".tmp-", "." + ext);
+        try {
+            if ("jpg".equals(ext)) {
+                Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName("jpeg");
+                ImageWriter writer = writers.next();
+                try (OutputStream out = Files.newOutputStream(tmp);
+                     ImageOutputStream ios = ImageIO.createImageOutputStream(out)) {
+                    writer.setOutput(ios);
+                    ImageWriteParam param = writer.getDefaultWriteParam();
+                    param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                    param.setCompressionQuality(quality);
+                    param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+                    writer.write(null, new IIOImage(img, null, null), param);
+                } finally {
+                    writer.dispose();
+                }
+            } else {
+                ImageIO.write(img, "png", tmp.toFile());
+            }
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private Path derivedDir() {
+        return storageService.getUploadRoot().resolve("derived");
+    }
+
+    private Path derivedPath(String filename, int width, String ext) {
+        int dot = filename.lastIndexOf('.');
+        String base = dot > 0 ? filename.substring(0, dot) : filename;
+        Path dir = StorageService.isContentAddressed(filename)
+                ? StorageService.shardDir(derivedDir(), filename) : derivedDir();
+        return dir.resolve(base + "_w" + width + "." + ext);
+    }
+
+    private static int[] allWidths() {
+        int[] widths = new int[Product.IMAGE_WIDTHS.length + 1];
+        widths[0] = Product.PLACEHOLDER_WIDTH;
+        System.arraycopy(Product.IMAGE_WIDTHS, 0, widths, 1, Product.IMAGE_WIDTHS.length);
+        return widths;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,181 @@
+package com.eduprajna.service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.eduprajna.repository.ProductRepository;
+import com.eduprajna.repository.StoredImageRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Mark-and-sweep removal of image files no product references (replaced images, uploads
+ * whose product save failed, anything the reference counts missed).
+ *
+ * Mark: every Product.imageUrl. Sweep: originals on disk that are unmarked and older than the
+ * grace period, deleted in small batches with a pause in between so disk and database load
+ * stay low. Each candidate is re-checked against the database just before deletion, so an
+ * image attached after the mark phase survives. A job_locks lease keeps it to one node.
+ */
+@Service
+public class ImageGarbageCollector {
+    private static final Logger logger = LoggerFactory.getLogger(ImageGarbageCollector.class);
+    private static final String LOCK_NAME = "image-gc";
+    private static final Duration LEASE = Duration.ofMinutes(10);
+
+    private final StorageService storageService;
+    private final ImageDerivativeService imageDerivativeService;
+    private final ProductRepository productRepository;
+    private final StoredImageRepository storedImageRepository;
+    private final JobLockService jobLockService;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration gracePeriod;
+    private final int batchSize;
+    private final long batchPauseMs;
+    private final Counter reclaimedBytes;
+    private final Counter deletedFiles;
+
+    public ImageGarbageCollector(StorageService storageService, ImageDerivativeService imageDerivativeService,
+                                 ProductRepository productRepository, StoredImageRepository storedImageRepository,
+                                 JobLockService jobLockService, TransactionTemplate transactionTemplate,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${images.gc.grace-hours:24}") long graceHours,
+                                 @Value("${images.gc.batch-size:100}") int batchSize,
+                                 @Value("${images.gc.batch-pause-ms:200}") long batchPauseMs) {
+        this.storageService = storageService;
+        this.imageDerivativeService = imageDerivativeService;
+        this.productRepository = productRepository;
+        this.storedImageRepository = storedImageRepository;
+        this.jobLockService = jobLockService;
+        this.transactionTemplate = transactionTemplate;
+        this.gracePeriod = Duration.ofHours(graceHours);
+        this.batchSize = batchSize;
+        this.batchPauseMs = batchPauseMs;
+        this.reclaimedBytes = Counter.builder("images.gc.reclaimed").baseUnit("bytes")
+                .description("Bytes freed by deleting unreferenced images").register(meterRegistry);
+        this.deletedFiles = Counter.builder("images.gc.deleted")
+                .description("Unreferenced image files deleted").register(meterRegistry);
+    }
+
+    @Scheduled(cron = "${images.gc.cron:0 30 3 * * *}")
+    public void run() {
+        if (!jobLockService.tryAcquire(LOCK_NAME, LEASE)) {
+            logger.debug("Image GC skipped: another node holds the lease");
+            return;
+        }
+        try {
+            collect();
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Image GC failed: {}", e.getMessage(), e);
+        } finally {
+            jobLockService.release(LOCK_NAME);
+        }
+    }
+
+    /**
+     * @return Bytes reclaimed
+     */
+    long collect() throws IOException {
+        long start = System.currentTimeMillis();
+        Instant cutoff = Instant.now().minus(gracePeriod);
+
+        // Mark
+        Set<String> referenced = new HashSet<>();
+        for (String url : productRepository.findDistinctImageUrls()) {
+            if (url.startsWith(StorageService.IMAGE_URL_PREFIX)) referenced.add(storageService.extractFilenameFromUrl(url));
+        }
+
+        // Sweep candidates: unmarked originals and abandoned temp files, all past the grace period
+        Path root = storageService.getUploadRoot();
+        if (!Files.isDirectory(root)) return 0;
+        List<Path> candidates = new ArrayList<>();
+        try (Stream<Path> paths = Files.walk(root, 4)) {
+            paths.filter(Files::isRegularFile).forEach(p -> {
+                String name = p.getFileName().toString();
+                boolean temp = name.startsWith(".upload-") || name.startsWith(".tmp-");
+                boolean original = !temp && p.equals(storageService.resolvePath(name));
+                if ((temp || (original && !referenced.contains(name))) && olderThan(p, cutoff)) {
+                    candidates.add(p);
+                }
+            });
+        }
+
+        long reclaimed = 0;
+        int deleted = 0;
+        for (int i = 0; i < candidates.size(); i += batchSize) {
+            if (i > 0) {
+                if (!jobLockService.renew(LOCK_NAME, LEASE)) {
+                    logger.warn("Image GC lost its lease; stopping after {} files", deleted);
+                    break;
+                }
+                try {
+                    Thread.sleep(batchPauseMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            for (Path p : candidates.subList(i, Math.min(i + batchSize, candidates.size()))) {
+                long size = sweep(p, cutoff);
+                if (size >= 0) {
+                    reclaimed += size;
+                    deleted++;
+                }
+            }
+        }
+        reclaimedBytes.increment(reclaimed);
+        deletedFiles.increment(deleted);
+        logger.info("Image GC: {} referenced, {} candidates, {} deleted, {} bytes reclaimed in {} ms",
+                referenced.size(), candidates.size(), deleted, reclaimed, System.currentTimeMillis() - start);
+        return reclaimed;
+    }
+
+    // Delete one candidate; returns its size, or -1 when it was kept or already gone
+    private long sweep(Path p, Instant cutoff) {
+        String name = p.getFileName().toString();
+        try {
+            // Re-uploaded since the walk (a dedupe hit refreshes the modification time)
+            if (!olderThan(p, cutoff)) return -1;
+            long size = Files.size(p);
+            if (name.startsWith(".")) {
+                Files.deleteIfExists(p);
+                return size;
+            }
+            // Re-check: the image may have been attached since the mark phase
+            if (productRepository.existsByImageUrl(StorageService.IMAGE_URL_PREFIX + name)) return -1;
+            Integer refCount = storedImageRepository.findByFilename(name).map(s -> s.getRefCount()).orElse(0);
+            if (refCount > 0) return -1;
+            transactionTemplate.executeWithoutResult(status -> storedImageRepository.deleteByFilename(name));
+            Files.deleteIfExists(p);
+            imageDerivativeService.deleteDerivatives(name);
+            return size;
+        } catch (IOException | RuntimeException e) {
+            logger.debug("Image GC could not delete {}: {}", p, e.getMessage());
+            return -1;
+        }
+    }
+
+    private static boolean olderThan(Path p, Instant cutoff) {
+        try {
+            return Files.getLastModifiedTime(p).toInstant().isBefore(cutoff);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+}
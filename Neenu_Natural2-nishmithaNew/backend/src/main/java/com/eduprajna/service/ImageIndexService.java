@@ -0,0 +1,241 @@
+package com.eduprajna.service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.eduprajna.dto.StoredImageDTO;
+import com.eduprajna.dto.StoredImagePageDTO;
+import com.eduprajna.entity.StoredImage;
+import com.eduprajna.repository.ProductRepository;
+import com.eduprajna.repository.StoredImageRepository;
+
+import jakarta.persistence.criteria.Predicate;
+
+/**
+ * Persisted index of stored images (stored_images table) behind the admin image browser.
+ *
+ * Rows are written when an upload is registered and removed with the file, so listing never
+ * touches the disk. rebuildFromDisk() reconciles the table with the upload directory, walking
+ * the shard directories in parallel and reading only image headers for dimensions.
+ */
+@Service
+public class ImageIndexService {
+    private static final Logger logger = LoggerFactory.getLogger(ImageIndexService.class);
+    private static final int SAVE_BATCH = 500;
+
+    private final StoredImageRepository storedImageRepository;
+    private final ProductRepository productRepository;
+    private final StorageService storageService;
+    private final FileResponseWriter fileResponseWriter;
+    private final TransactionTemplate transactionTemplate;
+    private final int walkerThreads;
+
+    public ImageIndexService(StoredImageRepository storedImageRepository, ProductRepository productRepository,
+                             StorageService storageService, FileResponseWriter fileResponseWriter,
+                             TransactionTemplate transactionTemplate,
+                             @Value("${images.index-walker-threads:4}") int walkerThreads) {
+        this.storedImageRepository = storedImageRepository;
+        this.productRepository = productRepository;
+        this.storageService = storageService;
+        this.fileResponseWriter = fileResponseWriter;
+        this.transactionTemplate = transactionTemplate;
+        this.walkerThreads = walkerThreads;
+    }
+
+    /**
+     * Build a (not yet saved) row for a stored file from its size, type and image header
+     */
+    public StoredImage describe(String filename) {
+        StoredImage img = new StoredImage();
+        img.setFilename(filename);
+        img.setMimeType(fileResponseWriter.mediaType(filename).toString());
+        Path path = storageService.resolvePath(filename);
+        try {
+            BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+            img.setSizeBytes(attrs.size());
+            img.setUploadedAt(OffsetDateTime.ofInstant(attrs.lastModifiedTime().toInstant(), ZoneOffset.UTC));
+        } catch (IOException e) {
+            return img;
+        }
+        // Dimensions come from the header; the pixels are never decoded
+        try (ImageInputStream in = ImageIO.createImageInputStream(path.toFile())) {
+            Iterator<ImageReader> readers = in == null ? null : ImageIO.getImageReaders(in);
+            if (readers != null && readers.hasNext()) {
+                ImageReader reader = readers.next();
+                try {
+                    reader.setInput(in, true, true);
+                    img.setWidth(reader.getWidth(0));
+                    img.setHeight(reader.getHeight(0));
+                } finally {
+                    reader.dispose();
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.debug("Could not read image header of {}: {}", filename, e.getMessage());
+        }
+        return img;
+    }
+
+    /**
+     * One keyset page of stored images, oldest first
+     * @param mimeType Only this type (e.g. image/png) when not null
+     * @param referenced true = used by a product, false = unused, null = all
+     */
+    @Transactional(readOnly = true)
+    public StoredImagePageDTO page(Long afterId, int limit, String mimeType, Boolean referenced) {
+        Specification<StoredImage> spec = (root, query, cb) -> {
+            List<Predicate> where = new ArrayList<>();
+            if (afterId != null) where.add(cb.greaterThan(root.get("id"), afterId));
+            if (mimeType != null) where.add(cb.equal(root.get("mimeType"), mimeType));
+            if (referenced != null) {
+                where.add(referenced ? cb.greaterThan(root.get("refCount"), 0) : cb.equal(root.get("refCount"), 0));
+            }
+            return cb.and(where.toArray(new Predicate[0]));
+        };
+        List<StoredImage> rows = storedImageRepository.findBy(spec,
+                q -> q.sortBy(Sort.by("id")).limit(limit + 1).all());
+
+        StoredImagePageDTO page = new StoredImagePageDTO();
+        page.hasMore = rows.size() > limit;
+        if (page.hasMore) rows = rows.subList(0, limit);
+
+        // Referencing products for the whole page in one query
+        Map<String, List<Long>> productIds = new HashMap<>();
+        List<String> urls = rows.stream().map(r -> StorageService.IMAGE_URL_PREFIX + r.getFilename()).collect(Collectors.toList());
+        if (!urls.isEmpty()) {
+            for (Object[] row : productRepository.findIdsByImageUrlIn(urls)) {
+                productIds.computeIfAbsent((String) row[1], k -> new ArrayList<>()).add((Long) row[0]);
+            }
+        }
+
+        page.items = new ArrayList<>(rows.size());
+        for (StoredImage r : rows) {
+            StoredImageDTO dto = new StoredImageDTO();
+            dto.id = r.getId();
+            dto.filename = r.getFilename();
+            dto.url = StorageService.IMAGE_URL_PREFIX + r.getFilename();
+            dto.sizeBytes = r.getSizeBytes();
+            dto.width = r.getWidth();
+            dto.height = r.getHeight();
+            dto.mimeType = r.getMimeType();
+            dto.uploadedAt = r.getUploadedAt();
+            dto.refCount = r.getRefCount();
+            dto.productIds = productIds.getOrDefault(dto.url, List.of());
+            page.items.add(dto);
+        }
+        if (page.hasMore) page.nextAfterId = rows.get(rows.size() - 1).getId();
+        return page;
+    }
+
+    /**
+     * Reconcile stored_images with the upload directory: index files that have no row,
+     * drop rows whose file is gone and recompute reference counts from product rows.
+     * @return Number of files on disk
+     */
+    public int rebuildFromDisk() throws IOException {
+        long start = System.currentTimeMillis();
+        Path root = storageService.getUploadRoot();
+        if (!Files.isDirectory(root)) return 0;
+
+        // Top-level entries: legacy files plus up to 256 shard directories, walked in parallel
+        List<Path> topLevel;
+        try (Stream<Path> s = Files.list(root)) {
+            topLevel = s.filter(p -> !p.getFileName().toString().equals("derived")).collect(Collectors.toList());
+        }
+        Map<String, Integer> known = new HashMap<>();
+        for (Object[] row : storedImageRepository.findRefCountRows()) known.put((String) row[0], (Integer) row[1]);
+        ForkJoinPool pool = new ForkJoinPool(walkerThreads);
+        List<String> onDisk;
+        List<StoredImage> missing;
+        try {
+            onDisk = pool.submit(() -> topLevel.parallelStream()
+                    .flatMap(ImageIndexService::originalsUnder)
+                    .filter(p -> p.equals(storageService.resolvePath(p.getFileName().toString())))
+                    .map(p -> p.getFileName().toString())
+                    .collect(Collectors.toList())).get();
+            missing = pool.submit(() -> onDisk.parallelStream()
+                    .filter(name -> !known.containsKey(name))
+                    .map(this::describe)
+                    .collect(Collectors.toList())).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Image index rebuild interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Image index rebuild failed", e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+
+        for (int i = 0; i < missing.size(); i += SAVE_BATCH) {
+            List<StoredImage> batch = missing.subList(i, Math.min(i + SAVE_BATCH, missing.size()));
+            transactionTemplate.executeWithoutResult(status -> storedImageRepository.saveAll(batch));
+        }
+        Set<String> present = new HashSet<>(onDisk);
+        List<String> gone = known.keySet().stream().filter(name -> !present.contains(name)).collect(Collectors.toList());
+        transactionTemplate.executeWithoutResult(status -> {
+            for (String name : gone) storedImageRepository.findByFilename(name).ifPresent(storedImageRepository::delete);
+            Map<String, Integer> counts = new HashMap<>();
+            for (Object[] row : productRepository.countByImageUrl()) {
+                String url = (String) row[0];
+                if (url.startsWith(StorageService.IMAGE_URL_PREFIX)) {
+                    counts.put(storageService.extractFilenameFromUrl(url), ((Long) row[1]).intValue());
+                }
+            }
+            // Only rows whose count drifted (e.g. through bulk imports) are written
+            for (String name : onDisk) {
+                int actual = counts.getOrDefault(name, 0);
+                if (actual != known.getOrDefault(name, 0)) storedImageRepository.setRefCount(name, actual);
+            }
+        });
+        logger.info("Image index rebuilt in {} ms: {} files, {} added, {} removed",
+                System.currentTimeMillis() - start, onDisk.size(), missing.size(), gone.size());
+        return onDisk.size();
+    }
+
+    public long count() {
+        return storedImageRepository.count();
+    }
+
+    // A legacy file itself, or every file two levels below a shard directory
+    private static Stream<Path> originalsUnder(Path entry) {
+        if (Files.isRegularFile(entry)) {
+            return entry.getFileName().toString().startsWith(".") ? Stream.empty() : Stream.of(entry);
+        }
+        if (!Files.isDirectory(entry)) return Stream.empty();
+        List<Path> files = new ArrayList<>();
+        try (Stream<Path> s = Files.walk(entry, 2)) {
+            s.filter(Files::isRegularFile).forEach(files::add);
+        } catch (IOException e) {
+            logger.warn("Could not walk {}: {}", entry, e.getMessage());
+        }
+        return files.stream();
+    }
+}
@@ -0,0 +1,148 @@
+package com.eduprajna.service;
+
+import java.nio.file.Files;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.Objects;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.eduprajna.entity.StoredImage;
+import com.eduprajna.repository.ProductRepository;
+import com.eduprajna.repository.StoredImageRepository;
+
+/**
+ * Reference counts for uploaded images, maintained from ProductService.save/delete.
+ *
+ * An image file is deleted once its count reaches zero and no product row still points at
+ * its URL (the second check covers references written outside JPA, e.g. bulk imports).
+ * Files are only removed after the transaction commits.
+ *
+ * Deleting and re-uploading the same content are serialized on the image's row: the delete
+ * is a conditional DELETE that skips rows uploaded within the GC grace period, and the file
+ * goes while that DELETE still holds the row lock. A re-upload marks the row as uploaded now,
+ * waiting for such a delete, and finds out if the file went meanwhile.
+ */
+@Service
+public class ImageReferenceService {
+    private static final Logger logger = LoggerFactory.getLogger(ImageReferenceService.class);
+
+    private final StoredImageRepository storedImageRepository;
+    private final ProductRepository productRepository;
+    private final StorageService storageService;
+    private final ImageDerivativeService imageDerivativeService;
+    private final ImageIndexService imageIndexService;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration gracePeriod;
+
+    public ImageReferenceService(StoredImageRepository storedImageRepository, ProductRepository productRepository,
+                                 StorageService storageService, ImageDerivativeService imageDerivativeService,
+                                 ImageIndexService imageIndexService, TransactionTemplate transactionTemplate,
+                                 @Value("${images.gc.grace-hours:24}") long graceHours) {
+        this.storedImageRepository = storedImageRepository;
+        this.productRepository = productRepository;
+        this.storageService = storageService;
+        this.imageDerivativeService = imageDerivativeService;
+        this.imageIndexService = imageIndexService;
+        // Own transactions: they also run after the caller's transaction has committed
+        this.transactionTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.gracePeriod = Duration.ofHours(graceHours);
+    }
+
+    /**
+     * Record a freshly stored upload with no references yet (idempotent for re-uploads)
+     * @throws IllegalStateException when the file was deleted as unreferenced while it was
+     *         being uploaded again; uploading it once more stores it anew
+     */
+    public void registerUpload(String imageUrl) {
+        String filename = uploadedFilename(imageUrl);
+        if (filename == null) return;
+        transactionTemplate.executeWithoutResult(status -> {
+            if (storedImageRepository.markUploaded(filename, OffsetDateTime.now()) > 0) return;
+            if (!Files.exists(storageService.resolvePath(filename))) {
+                throw new IllegalStateException("The image was removed while it was being uploaded; please upload it again");
+            }
+            try {
+                storedImageRepository.save(newRow(filename, 0));
+            } catch (DataIntegrityViolationException e) {
+                // Same content registered concurrently; the existing row is equivalent
+            }
+        });
+    }
+
+    /**
+     * A product's image changed from oldUrl to newUrl (either may be null); caller's transaction
+     */
+    public void replace(String oldUrl, String newUrl) {
+        if (Objects.equals(oldUrl, newUrl)) return;
+        acquire(newUrl);
+        release(oldUrl);
+    }
+
+    public void acquire(String imageUrl) {
+        String filename = uploadedFilename(imageUrl);
+        if (filename == null) return;
+        if (storedImageRepository.adjustRefCount(filename, 1) == 0) {
+            // Uploaded before reference counting existed
+            storedImageRepository.save(newRow(filename, 1));
+        }
+    }
+
+    public void release(String imageUrl) {
+        String filename = uploadedFilename(imageUrl);
+        if (filename == null) return;
+        storedImageRepository.adjustRefCount(filename, -1);
+        StoredImage row = storedImageRepository.findByFilename(filename).orElse(null);
+        if (row != null && row.getRefCount() > 0) return;
+        if (productRepository.existsByImageUrl(imageUrl)) return;
+        // No row: uploaded before reference counting existed, left to the image GC
+        if (row == null) return;
+        runAfterCommit(() -> deleteIfUnreferenced(imageUrl, filename));
+    }
+
+    // The file goes only if this removed the row, and before the row lock is released
+    private void deleteIfUnreferenced(String imageUrl, String filename) {
+        transactionTemplate.executeWithoutResult(status -> {
+            if (productRepository.existsByImageUrl(imageUrl)) return;
+            OffsetDateTime uploadedBefore = OffsetDateTime.now().minus(gracePeriod);
+            if (storedImageRepository.deleteUnreferenced(filename, uploadedBefore) == 0) return;
+            storageService.delete(filename);
+            imageDerivativeService.deleteDerivatives(filename);
+            logger.debug("Deleted unreferenced image {}", filename);
+        });
+    }
+
+    private StoredImage newRow(String filename, int refCount) {
+        StoredImage img = imageIndexService.describe(filename);
+        img.setRefCount(refCount);
+        return img;
+    }
+
+    // Only images served from our upload directory are counted; external URLs are ignored
+    private String uploadedFilename(String imageUrl) {
+        if (imageUrl == null || !imageUrl.startsWith(StorageService.IMAGE_URL_PREFIX)) return null;
+        return storageService.extractFilenameFromUrl(imageUrl);
+    }
+
+    private static void runAfterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -0,0 +1,282 @@
+package com.eduprajna.service;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import com.eduprajna.dto.UploadSessionDTO;
+import com.eduprajna.dto.UploadedImageDTO;
+
+/**
+ * Large and parallel image uploads without heap buffering.
+ *
+ * Multipart bodies are parsed incrementally (MultipartStreamReader) and each file part is
+ * streamed to a temp file while being hashed, then moved to its content-addressed name.
+ * Per-file and per-request byte limits are enforced while reading, before anything is kept.
+ *
+ * Resumable uploads: a session is opened with the file's name and size, chunks are PUT in
+ * order at the offset the server reports, and the file is stored once the last byte arrives.
+ * A chunk that fails midway is rolled back, so the client simply resends it. Sessions live
+ * in memory; after a restart or a day of inactivity the client starts over, and the image
+ * garbage collector removes the abandoned partial file.
+ */
+@Service
+public class ImageUploadService {
+    private static final Logger logger = LoggerFactory.getLogger(ImageUploadService.class);
+    private static final Pattern CONTENT_RANGE = Pattern.compile("bytes (\\d+)-(\\d+)/(\\d+|\\*)");
+
+    private final StorageService storageService;
+    private final ImageReferenceService imageReferenceService;
+    private final ImageDerivativeService imageDerivativeService;
+    private final long maxFileBytes;
+    private final long maxRequestBytes;
+    private final Duration sessionTtl;
+    private final Map<String, UploadSession> sessions = new ConcurrentHashMap<>();
+
+    public ImageUploadService(StorageService storageService, ImageReferenceService imageReferenceService,
+                              ImageDerivativeService imageDerivativeService,
+                              @Value("${images.upload.max-file-size:50MB}") DataSize maxFileSize,
+                              @Value("${images.upload.max-request-size:500MB}") DataSize maxRequestSize,
+                              @Value("${images.upload.session-ttl-hours:24}") long sessionTtlHours) {
+        this.storageService = storageService;
+        this.imageReferenceService = imageReferenceService;
+        this.imageDerivativeService = imageDerivativeService;
+        this.maxFileBytes = maxFileSize.toBytes();
+        this.maxRequestBytes = maxRequestSize.toBytes();
+        this.sessionTtl = Duration.ofHours(sessionTtlHours);
+    }
+
+    /**
+     * Store every file part of a multipart/form-data body; other fields are skipped
+     * @param contentLength declared body length, or -1 when unknown
+     */
+    public List<UploadedImageDTO> storeMultipart(InputStream body, String contentType, long contentLength)
+            throws IOException {
+        String boundary = MultipartStreamReader.boundaryOf(contentType);
+        if (boundary == null) throw new IllegalArgumentException("Expected a multipart body with a boundary");
+        if (contentLength > maxRequestBytes) throw new UploadTooLargeException("Request", maxRequestBytes);
+
+        MultipartStreamReader reader = new MultipartStreamReader(new LimitedInputStream(body, maxRequestBytes), boundary);
+        List<UploadedImageDTO> stored = new ArrayList<>();
+        MultipartStreamReader.Part part;
+        while ((part = reader.next()) != null) {
+            if (!part.isFile() || part.filename.isEmpty()) continue;
+            CountingInputStream in = new CountingInputStream(part.body);
+            String url = storageService.store(in, part.filename, maxFileBytes);
+            registered(url);
+            UploadedImageDTO dto = new UploadedImageDTO();
+            dto.field = part.name;
+            dto.originalName = part.filename;
+            dto.url = url;
+            dto.sizeBytes = in.count;
+            stored.add(dto);
+        }
+        return stored;
+    }
+
+    public UploadSessionDTO openSession(String filename, long size) throws IOException {
+        if (size <= 0) throw new IllegalArgumentException("Size must be positive");
+        if (size > maxFileBytes) throw new UploadTooLargeException("File", maxFileBytes);
+        String id = UUID.randomUUID().toString().replace("-", "");
+        Path root = storageService.getUploadRoot();
+        Files.createDirectories(root);
+        // Same prefix as other upload temp files so the garbage collector reclaims abandoned ones
+        Path file = root.resolve(".upload-" + id + ".part");
+        Files.createFile(file);
+        UploadSession session = new UploadSession(id, filename, size, file);
+        sessions.put(id, session);
+        return session.toDTO();
+    }
+
+    public UploadSessionDTO status(String id) {
+        return session(id).toDTO();
+    }
+
+    /**
+     * Append one chunk
+     * @param contentRange "bytes start-end/total"; start must equal the current offset
+     */
+    public UploadSessionDTO appendChunk(String id, String contentRange, InputStream body) throws IOException {
+        UploadSession session = session(id);
+        Matcher m = contentRange == null ? null : CONTENT_RANGE.matcher(contentRange.trim());
+        if (m == null || !m.matches()) throw new IllegalArgumentException("Content-Range must be bytes start-end/total");
+        long start = Long.parseLong(m.group(1));
+        long end = Long.parseLong(m.group(2));
+        if (!"*".equals(m.group(3)) && Long.parseLong(m.group(3)) != session.size) {
+            throw new IllegalArgumentException("Total does not match the session size " + session.size);
+        }
+        if (end < start || end >= session.size) throw new IllegalArgumentException("Chunk range outside the file");
+
+        synchronized (session) {
+            if (session.url != null) return session.toDTO();
+            if (start != session.offset) {
+                throw new IllegalStateException("Expected offset " + session.offset + " but got " + start);
+            }
+            session.touched = Instant.now();
+            try (FileChannel out = FileChannel.open(session.file, StandardOpenOption.WRITE)) {
+                out.position(session.offset);
+                // A chunk is all-or-nothing: on failure file and digest go back to the chunk start
+                MessageDigest snapshot = cloneDigest(session.digest);
+                try {
+                    session.offset += StorageService.transfer(body, out, session.digest, end - start + 1);
+                } catch (IOException | RuntimeException e) {
+                    out.truncate(session.offset);
+                    session.digest = snapshot;
+                    throw e;
+                }
+            }
+            if (session.offset == session.size) {
+                String filename = HexFormat.of().formatHex(session.digest.digest()) + StorageService.extensionOf(session.filename);
+                storageService.moveIntoPlace(session.file, filename);
+                Files.deleteIfExists(session.file);
+                session.url = StorageService.IMAGE_URL_PREFIX + filename;
+                registered(session.url);
+            }
+            return session.toDTO();
+        }
+    }
+
+    public void abort(String id) throws IOException {
+        UploadSession session = sessions.remove(id);
+        if (session == null) return;
+        synchronized (session) {
+            Files.deleteIfExists(session.file);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${images.upload.session-sweep-ms:3600000}")
+    public void expireSessions() {
+        Instant cutoff = Instant.now().minus(sessionTtl);
+        sessions.values().removeIf(s -> {
+            if (s.touched.isAfter(cutoff)) return false;
+            try {
+                Files.deleteIfExists(s.file);
+            } catch (IOException e) {
+                logger.debug("Could not delete partial upload {}: {}", s.file, e.getMessage());
+            }
+            return true;
+        });
+    }
+
+    private UploadSession session(String id) {
+        UploadSession session = sessions.get(id);
+        if (session == null) throw new IllegalArgumentException("Unknown or expired upload: " + id);
+        return session;
+    }
+
+    private static MessageDigest cloneDigest(MessageDigest digest) {
+        try {
+            return (MessageDigest) digest.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void registered(String url) {
+        imageReferenceService.registerUpload(url);
+        imageDerivativeService.generateAsync(storageService.extractFilenameFromUrl(url));
+    }
+
+    private static final class UploadSession {
+        final String id;
+        final String filename;
+        final long size;
+        final Path file;
+        MessageDigest digest = StorageService.sha256();
+        long offset;
+        String url;
+        volatile Instant touched = Instant.now();
+
+        UploadSession(String id, String filename, long size, Path file) {
+            this.id = id;
+            this.filename = filename;
+            this.size = size;
+            this.file = file;
+        }
+
+        UploadSessionDTO toDTO() {
+            UploadSessionDTO dto = new UploadSessionDTO();
+            dto.id = id;
+            dto.filename = filename;
+            dto.size = size;
+            dto.offset = offset;
+            dto.complete = url != null;
+            dto.url = url;
+            return dto;
+        }
+    }
+
+    // Rejects the whole request body once it passes the limit
+    private static final class LimitedInputStream extends FilterInputStream {
+        private final long limit;
+        private long read;
+
+        LimitedInputStream(InputStream in, long limit) {
+            super(in);
+            this.limit = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) count(1);
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) count(n);
+            return n;
+        }
+
+        private void count(int n) throws UploadTooLargeException {
+            read += n;
+            if (read > limit) throw new UploadTooLargeException("Request", limit);
+        }
+    }
+
+    private static final class CountingInputStream extends FilterInputStream {
+        long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) count++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) count += n;
+            return n;
+        }
+    }
+}
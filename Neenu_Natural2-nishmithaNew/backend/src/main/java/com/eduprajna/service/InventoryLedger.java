@@ -0,0 +1,459 @@
+package com.eduprajna.service;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.eduprajna.event.ProductChangedEvent;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Optional in-memory stock ledger for flash sales (inventory.ledger.enabled=true), covering
+ * only the hot SKUs listed in inventory.ledger.products.
+ *
+ * Checkout admits or refuses each line from memory instead of updating the product row, so a
+ * hot SKU no longer serializes every order on one row lock. The ledger only ever hands out
+ * units it has already taken from product.stock_quantity: when a product runs dry locally it
+ * claims an allotment with a guarded decrement, and records the claim in inventory_escrow in the
+ * same transaction. Claimed units are still on sale, so a claim leaves in_stock alone; the cart
+ * adds available(productId) to product.stock_quantity, the catalog cache adds escrowedUnits,
+ * and writers that set the stock outright subtract them (InventoryService.heldUnits).
+ *
+ * Each product's units are spread over striped counters a cache line apart; a reservation
+ * takes from its thread's stripe and borrows from the others when that one is short. Every
+ * sale is journaled in inventory_ledger_sale within the order's transaction (an insert, so no
+ * row is contended). Journaled sales and allotments that have gone idle are settled in one
+ * batched transaction per flush interval, and everything left is given back at shutdown.
+ *
+ * The escrow is kept under a stable node id (inventory.ledger.node-id, the host name by
+ * default) guarded by a job lock, so after a crash the restarted node settles its journal and
+ * gives the rest of its escrow back before it serves again.
+ */
+@Service
+public class InventoryLedger {
+    private static final Logger logger = LoggerFactory.getLogger(InventoryLedger.class);
+
+    // Longs per stripe: keeps neighbouring counters on separate 64 byte cache lines
+    private static final int PAD = 8;
+
+    private static final Duration LEASE = Duration.ofMinutes(5);
+
+    // Neither touches in_stock: claimed units are still on sale, so the flag stays as it was
+    private static final String CLAIM =
+            "UPDATE product SET stock_quantity = stock_quantity - ? WHERE id = ? AND stock_quantity >= ?";
+    private static final String GIVE_BACK =
+            "UPDATE product SET stock_quantity = stock_quantity + ? WHERE id = ?";
+    private static final String ESCROW_ADD =
+            "UPDATE inventory_escrow SET units = units + ? WHERE product_id = ? AND node_id = ?";
+    private static final String ESCROW_SUBTRACT =
+            "UPDATE inventory_escrow SET units = units - ? WHERE product_id = ? AND node_id = ?";
+    private static final String RECORD_SALE =
+            "INSERT INTO inventory_ledger_sale (product_id, node_id, units) VALUES (?, ?, ?)";
+    // One statement, so a settlement committing meanwhile is seen entirely or not at all
+    private static final String ESCROWED =
+            "SELECT e.product_id, SUM(e.units) - COALESCE((SELECT SUM(s.units) FROM inventory_ledger_sale s "
+            + "WHERE s.product_id = e.product_id), 0) FROM inventory_escrow e WHERE e.product_id IN (:ids) "
+            + "GROUP BY e.product_id";
+
+    private final boolean enabled;
+    private final Set<Long> products;
+    private final int stripes;
+    private final int allotment;
+    private final long idleReturnMs;
+    private final String nodeId;
+    private final String lockName;
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final JobLockService jobLockService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Map<Long, ProductLedger> ledgers = new ConcurrentHashMap<>();
+    // Journal rows committed since the last settlement; 0 lets an idle flush skip the database
+    private final AtomicLong unsettledSales = new AtomicLong();
+    private volatile long leaseRenewedAt;
+    // Serializes settlements so a flush and the shutdown drain cannot interleave
+    private final Object flushLock = new Object();
+
+    public InventoryLedger(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                           JobLockService jobLockService, ApplicationEventPublisher eventPublisher,
+                           @Value("${inventory.ledger.enabled:false}") boolean enabled,
+                           @Value("${inventory.ledger.products:}") long[] products,
+                           @Value("${inventory.ledger.stripes:8}") int stripes,
+                           @Value("${inventory.ledger.allotment:50}") int allotment,
+                           @Value("${inventory.ledger.idle-return-seconds:60}") long idleReturnSeconds,
+                           @Value("${inventory.ledger.node-id:}") String nodeId) {
+        if (stripes < 1) throw new IllegalArgumentException("inventory.ledger.stripes must be at least 1");
+        if (allotment < 1) throw new IllegalArgumentException("inventory.ledger.allotment must be at least 1");
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        // Claims commit on their own: the units are in memory whether or not the order that
+        // triggered the claim goes through
+        this.transactionTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.jobLockService = jobLockService;
+        this.eventPublisher = eventPublisher;
+        this.nodeId = !nodeId.isBlank() ? nodeId.trim() : enabled ? hostName() : "";
+        this.lockName = "inventory-ledger:" + this.nodeId;
+        this.enabled = enabled;
+        this.products = Arrays.stream(products).boxed().collect(Collectors.toUnmodifiableSet());
+        this.stripes = stripes;
+        this.allotment = allotment;
+        this.idleReturnMs = idleReturnSeconds * 1000L;
+    }
+
+    /**
+     * Whether checkout takes this product's stock from the ledger
+     */
+    public boolean covers(Long productId) {
+        return enabled && products.contains(productId);
+    }
+
+    /**
+     * Reserve every line or none; only for products the ledger covers. The sale is journaled in the caller's transaction; if that
+     * rolls back, the units go back to the ledger.
+     * @param quantities productId -> quantity; repeated products must already be summed
+     * @return Ids whose stock was insufficient (nothing was taken); empty on success
+     */
+    public List<Long> reserve(Map<Long, Integer> quantities) {
+        SortedMap<Long, Integer> ordered = new TreeMap<>(quantities);
+        List<Map.Entry<ProductLedger, Integer>> taken = new ArrayList<>(ordered.size());
+        for (Map.Entry<Long, Integer> e : ordered.entrySet()) {
+            ProductLedger ledger = ledgers.computeIfAbsent(e.getKey(), ProductLedger::new);
+            if (!take(ledger, e.getValue())) {
+                for (Map.Entry<ProductLedger, Integer> t : taken) t.getKey().give(t.getValue());
+                return List.of(e.getKey());
+            }
+            taken.add(Map.entry(ledger, e.getValue()));
+        }
+
+        List<Object[]> sales = new ArrayList<>(taken.size());
+        for (Map.Entry<ProductLedger, Integer> t : taken) {
+            sales.add(new Object[] { t.getKey().productId, nodeId, t.getValue() });
+        }
+        try {
+            jdbcTemplate.batchUpdate(RECORD_SALE, sales);
+        } catch (RuntimeException ex) {
+            for (Map.Entry<ProductLedger, Integer> t : taken) t.getKey().give(t.getValue());
+            throw ex;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            unsettledSales.addAndGet(sales.size());
+            return List.of();
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    unsettledSales.addAndGet(sales.size());
+                    return;
+                }
+                for (Map.Entry<ProductLedger, Integer> t : taken) t.getKey().give(t.getValue());
+            }
+        });
+        return List.of();
+    }
+
+    /**
+     * Units of the product this node holds and has not sold; product.stock_quantity no longer
+     * counts them, so the cart adds them back when it checks stock
+     */
+    public int available(Long productId) {
+        if (!enabled) return 0;
+        ProductLedger ledger = ledgers.get(productId);
+        return ledger == null ? 0 : (int) ledger.total();
+    }
+
+    /**
+     * Units of each product that any node holds in escrow and has not sold: on sale, but no
+     * longer in product.stock_quantity. Reads the database, whether or not the ledger is on.
+     * @return productId -> units; products without escrow are absent
+     */
+    public Map<Long, Integer> escrowedUnits(Collection<Long> productIds) {
+        Map<Long, Integer> escrowed = new HashMap<>();
+        if (productIds.isEmpty()) return escrowed;
+        namedJdbcTemplate.query(ESCROWED, new MapSqlParameterSource("ids", productIds), rs -> {
+            int units = rs.getInt(2);
+            if (units > 0) escrowed.put(rs.getLong(1), units);
+        });
+        return escrowed;
+    }
+
+    private boolean take(ProductLedger ledger, int quantity) {
+        ledger.lastUsed = System.currentTimeMillis();
+        if (ledger.take(quantity)) return true;
+        synchronized (ledger) {
+            // Another thread may have claimed while this one waited
+            if (ledger.take(quantity)) return true;
+            int claimed = claim(ledger.productId, Math.max(allotment, quantity));
+            if (claimed == 0) return false;
+            ledger.fill(claimed);
+        }
+        return ledger.take(quantity);
+    }
+
+    /**
+     * Move units from the product row into this node's escrow, all of them or, when fewer are
+     * left, whatever remains
+     * @return Units claimed; 0 when the product is sold out
+     */
+    private int claim(Long productId, int wanted) {
+        Integer claimed = transactionTemplate.execute(status -> {
+            int amount = wanted;
+            if (jdbcTemplate.update(CLAIM, amount, productId, amount) == 0) {
+                List<Integer> rest = jdbcTemplate.queryForList(
+                        "SELECT stock_quantity FROM product WHERE id = ? FOR UPDATE", Integer.class, productId);
+                amount = rest.isEmpty() || rest.get(0) == null ? 0 : rest.get(0);
+                if (amount <= 0 || jdbcTemplate.update(CLAIM, amount, productId, amount) == 0) return 0;
+            }
+            if (jdbcTemplate.update(ESCROW_ADD, amount, productId, nodeId) == 0) {
+                jdbcTemplate.update("INSERT INTO inventory_escrow (product_id, node_id, units) VALUES (?, ?, ?)",
+                        productId, nodeId, amount);
+            }
+            return amount;
+        });
+        return claimed == null ? 0 : claimed;
+    }
+
+    /**
+     * Group commit: journaled sales leave the escrow, and allotments unused for the idle period
+     * go back to their product rows, all in one transaction
+     */
+    @Scheduled(fixedDelayString = "${inventory.ledger.flush-ms:500}")
+    public void flush() {
+        if (!enabled) return;
+        renewLease();
+        if (ledgers.isEmpty()) return;
+        settle(System.currentTimeMillis() - idleReturnMs);
+    }
+
+    @PreDestroy
+    public void returnAll() {
+        if (!enabled) return;
+        if (!ledgers.isEmpty()) {
+            settle(Long.MAX_VALUE);
+            jdbcTemplate.update("DELETE FROM inventory_escrow WHERE node_id = ? AND units = 0", nodeId);
+        }
+        jobLockService.release(lockName);
+    }
+
+    private void settle(long idleBefore) {
+        synchronized (flushLock) {
+            List<ProductLedger> all = new ArrayList<>(ledgers.values());
+            all.sort(Comparator.comparing(l -> l.productId));
+            List<Object[]> returned = new ArrayList<>();
+            long[] returnedUnits = new long[all.size()];
+            for (int i = 0; i < all.size(); i++) {
+                ProductLedger ledger = all.get(i);
+                if (ledger.lastUsed < idleBefore) {
+                    returnedUnits[i] = ledger.drain();
+                    if (returnedUnits[i] > 0) returned.add(new Object[] { returnedUnits[i], ledger.productId });
+                }
+            }
+            long sales = unsettledSales.getAndSet(0);
+            if (sales == 0 && returned.isEmpty()) return;
+
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    if (sales > 0) settleSales();
+                    if (!returned.isEmpty()) {
+                        jdbcTemplate.batchUpdate(GIVE_BACK, returned);
+                        List<Object[]> escrow = new ArrayList<>(returned.size());
+                        for (Object[] r : returned) escrow.add(new Object[] { r[0], r[1], nodeId });
+                        jdbcTemplate.batchUpdate(ESCROW_SUBTRACT, escrow);
+                    }
+                });
+                if (!returned.isEmpty()) {
+                    List<Long> ids = new ArrayList<>(returned.size());
+                    for (Object[] r : returned) ids.add((Long) r[1]);
+                    eventPublisher.publishEvent(ProductChangedEvent.stockOf(ids));
+                    logger.debug("Returned idle stock allotments for {} products", returned.size());
+                }
+            } catch (RuntimeException e) {
+                // Nothing was written; keep the counts for the next round
+                unsettledSales.addAndGet(sales);
+                for (int i = 0; i < all.size(); i++) {
+                    if (returnedUnits[i] > 0) all.get(i).fill((int) returnedUnits[i]);
+                }
+                logger.warn("Inventory ledger flush failed, will retry: {}", e.getMessage());
+            }
+        }
+    }
+
+    // Subtract this node's journaled sales from its escrow and drop the journal rows read;
+    // only this node settles its rows, under flushLock, so rows committed meanwhile wait
+    private void settleSales() {
+        Map<Long, Long> sold = new TreeMap<>();
+        List<Object[]> settled = new ArrayList<>();
+        jdbcTemplate.query("SELECT id, product_id, units FROM inventory_ledger_sale WHERE node_id = ?", rs -> {
+            settled.add(new Object[] { rs.getLong(1) });
+            sold.merge(rs.getLong(2), rs.getLong(3), Long::sum);
+        }, nodeId);
+        if (settled.isEmpty()) return;
+        List<Object[]> escrow = new ArrayList<>(sold.size());
+        sold.forEach((productId, units) -> escrow.add(new Object[] { units, productId, nodeId }));
+        jdbcTemplate.batchUpdate(ESCROW_SUBTRACT, escrow);
+        jdbcTemplate.batchUpdate("DELETE FROM inventory_ledger_sale WHERE id = ?", settled);
+    }
+
+    /**
+     * Take this node id's lease, then settle what a previous run under the same id left behind
+     * (it crashed, or it would have given everything back): its journaled sales, then the rest
+     * of its escrow back to the product rows. Escrow of other node ids is only reported. Runs
+     * before the web server accepts requests, so nothing has been claimed under the id yet.
+     * @throws IllegalStateException when another running instance uses the same node id
+     */
+    @PostConstruct
+    public void reclaimEscrow() {
+        if (!enabled) return;
+        if (!jobLockService.tryAcquire(lockName, LEASE)) {
+            throw new IllegalStateException("Another instance holds inventory ledger node id " + nodeId
+                    + "; give each instance its own inventory.ledger.node-id");
+        }
+        leaseRenewedAt = System.currentTimeMillis();
+        if (products.isEmpty()) {
+            logger.warn("inventory.ledger.enabled is set but inventory.ledger.products lists no products; "
+                    + "checkout takes all stock from the product rows");
+        }
+        synchronized (flushLock) {
+            Long returned = transactionTemplate.execute(status -> {
+                settleSales();
+                List<Object[]> left = jdbcTemplate.query(
+                        "SELECT units, product_id FROM inventory_escrow WHERE node_id = ? AND units > 0 ORDER BY product_id",
+                        (rs, i) -> new Object[] { rs.getLong(1), rs.getLong(2) }, nodeId);
+                if (!left.isEmpty()) jdbcTemplate.batchUpdate(GIVE_BACK, left);
+                jdbcTemplate.update("DELETE FROM inventory_escrow WHERE node_id = ?", nodeId);
+                return left.stream().mapToLong(r -> (Long) r[0]).sum();
+            });
+            if (returned != null && returned > 0) {
+                logger.warn("Gave back {} stock units left in inventory_escrow by the previous run of node {}", returned, nodeId);
+            }
+        }
+
+        List<Object[]> foreign = jdbcTemplate.query(
+                "SELECT node_id, SUM(units) FROM inventory_escrow WHERE node_id <> ? AND units > 0 GROUP BY node_id",
+                (rs, i) -> new Object[] { rs.getString(1), rs.getLong(2) }, nodeId);
+        for (Object[] row : foreign) {
+            logger.info("Node {} holds {} stock units in inventory_escrow; if that node is gone for good, "
+                    + "start an instance with inventory.ledger.node-id={} to settle and give them back", row[0], row[1], row[0]);
+        }
+    }
+
+    // Keep the node id's lease while running; renewed at half its length
+    private void renewLease() {
+        long now = System.currentTimeMillis();
+        if (now - leaseRenewedAt < LEASE.toMillis() / 2) return;
+        try {
+            if (jobLockService.renew(lockName, LEASE) || jobLockService.tryAcquire(lockName, LEASE)) {
+                leaseRenewedAt = now;
+            } else {
+                logger.error("Lost the lease on inventory ledger node id {} to another instance; "
+                        + "each instance needs its own inventory.ledger.node-id", nodeId);
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Could not renew the lease on inventory ledger node id {}, will retry: {}", nodeId, e.getMessage());
+        }
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            throw new IllegalStateException("Cannot determine the host name; set inventory.ledger.node-id", e);
+        }
+    }
+
+    /**
+     * Units of one product held by this node, in striped counters
+     */
+    private final class ProductLedger {
+        final Long productId;
+        final AtomicLongArray cells = new AtomicLongArray(stripes * PAD);
+        volatile long lastUsed = System.currentTimeMillis();
+
+        ProductLedger(Long productId) {
+            this.productId = productId;
+        }
+
+        int home() {
+            return (int) (Thread.currentThread().threadId() % stripes) * PAD;
+        }
+
+        // Take from the home stripe, borrowing from the others when it is short
+        boolean take(int quantity) {
+            int home = home();
+            long v = cells.get(home);
+            if (v >= quantity && cells.compareAndSet(home, v, v - quantity)) return true;
+            long got = 0;
+            for (int i = 0; i < stripes && got < quantity; i++) {
+                got += takeUpTo((home + i * PAD) % (stripes * PAD), quantity - got);
+            }
+            if (got == quantity) return true;
+            if (got > 0) cells.addAndGet(home, got);
+            return false;
+        }
+
+        private long takeUpTo(int cell, long wanted) {
+            while (true) {
+                long v = cells.get(cell);
+                if (v <= 0) return 0;
+                long t = Math.min(v, wanted);
+                if (cells.compareAndSet(cell, v, v - t)) return t;
+            }
+        }
+
+        void give(int quantity) {
+            cells.addAndGet(home(), quantity);
+        }
+
+        // Spread a fresh allotment over all stripes
+        void fill(int units) {
+            int share = units / stripes;
+            for (int i = 0; i < stripes; i++) {
+                int add = share + (i < units % stripes ? 1 : 0);
+                if (add > 0) cells.addAndGet(i * PAD, add);
+            }
+        }
+
+        long total() {
+            long total = 0;
+            for (int i = 0; i < stripes; i++) total += cells.get(i * PAD);
+            return total;
+        }
+
+        long drain() {
+            long total = 0;
+            for (int i = 0; i < stripes; i++) total += cells.getAndSet(i * PAD, 0);
+            return total;
+        }
+    }
+}
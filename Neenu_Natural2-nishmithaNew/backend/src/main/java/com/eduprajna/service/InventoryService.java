@@ -0,0 +1,130 @@
+package com.eduprajna.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+
+/**
+ * Stock changes made by checkout.
+ *
+ * Each line is a guarded UPDATE that only succeeds while enough stock is left, so concurrent
+ * checkouts of the last units cannot both win and nothing is clamped silently. Rows are
+ * updated in ascending id order so two orders touching the same products always lock them
+ * in the same order and cannot deadlock. Callers run inside the order transaction, so a
+ * failed line rolls back the lines before it.
+ *
+ * With inventory.ledger.enabled, lines for the products it covers are reserved from
+ * InventoryLedger instead, which only touches the product rows when it needs a new allotment.
+ *
+ * Stock counts from outside (admin edits, imports, the warehouse feed) are units on hand.
+ * Units held for carts or in ledger escrow already left stock_quantity, so those writers
+ * subtract heldUnits.
+ */
+@Service
+public class InventoryService {
+    // in_stock is assigned first: MySQL evaluates SET left to right, PostgreSQL uses the old row;
+    // both then compute it from the stock before this decrement
+    private static final String DECREMENT =
+            "UPDATE product SET in_stock = CASE WHEN stock_quantity > ? THEN TRUE ELSE FALSE END, "
+            + "stock_quantity = stock_quantity - ? WHERE id = ? AND stock_quantity >= ?";
+
+    // Returned units put the product back on sale, unless an admin took it off sale: FALSE with
+    // stock left was set by hand, FALSE at zero stock by the decrement above
+    private static final String RESTORE =
+            "UPDATE product SET in_stock = CASE WHEN in_stock = FALSE AND stock_quantity > 0 THEN FALSE ELSE TRUE END, "
+            + "stock_quantity = stock_quantity + ? WHERE id = ?";
+
+    private static final String HELD =
+            "SELECT product_id, SUM(quantity) FROM stock_reservations WHERE product_id IN (:ids) GROUP BY product_id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final InventoryLedger ledger;
+
+    public InventoryService(JdbcTemplate jdbcTemplate, InventoryLedger ledger) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.ledger = ledger;
+    }
+
+    /**
+     * Units of each product taken out of stock_quantity but not sold yet: cart reservations
+     * plus unsold ledger escrow. Call with the product rows locked, so no hold is taken from or
+     * given back to the rows before the write.
+     * @return productId -> units; products without holds are absent
+     */
+    public Map<Long, Integer> heldUnits(Collection<Long> productIds) {
+        if (productIds.isEmpty()) return new HashMap<>();
+        // Escrow first: a ledger-backed reservation committing in between is then counted
+        // twice (too little stock written) rather than not at all
+        Map<Long, Integer> held = ledger.escrowedUnits(productIds);
+        namedJdbcTemplate.query(HELD, new MapSqlParameterSource("ids", productIds), rs -> {
+            int units = rs.getInt(2);
+            if (units > 0) held.merge(rs.getLong(1), units, Integer::sum);
+        });
+        return held;
+    }
+
+    /**
+     * Stock_quantity for a count of units on hand: what is left after the holds
+     */
+    public static Integer onShelf(Integer onHand, Map<Long, Integer> held, Long productId) {
+        if (onHand == null) return null;
+        return Math.max(0, onHand - held.getOrDefault(productId, 0));
+    }
+
+    /**
+     * Take stock for every line in one JDBC batch
+     * @param quantities productId -> quantity; repeated products must already be summed
+     * @return Ids whose stock was insufficient (nothing was taken for those); empty on success
+     */
+    public List<Long> decrementStock(Map<Long, Integer> quantities) {
+        SortedMap<Long, Integer> ordered = new TreeMap<>(quantities);
+        Map<Long, Integer> ledgered = new HashMap<>();
+        ordered.keySet().removeIf(id -> {
+            if (!ledger.covers(id)) return false;
+            ledgered.put(id, quantities.get(id));
+            return true;
+        });
+        List<Long> failed = decrementRows(ordered);
+        // A ledger refusal leaves the row decrements to the caller's rollback
+        if (!failed.isEmpty() || ledgered.isEmpty()) return failed;
+        return ledger.reserve(ledgered);
+    }
+
+    private List<Long> decrementRows(SortedMap<Long, Integer> ordered) {
+        if (ordered.isEmpty()) return new ArrayList<>();
+        List<Object[]> args = new ArrayList<>(ordered.size());
+        for (Map.Entry<Long, Integer> e : ordered.entrySet()) {
+            args.add(new Object[] { e.getValue(), e.getValue(), e.getKey(), e.getValue() });
+        }
+        int[] counts = jdbcTemplate.batchUpdate(DECREMENT, args);
+        List<Long> failed = new ArrayList<>();
+        int i = 0;
+        for (Long productId : ordered.keySet()) {
+            if (counts[i++] == 0) failed.add(productId);
+        }
+        return failed;
+    }
+
+    /**
+     * Give back stock taken earlier (released reservations), in the same id order as decrements
+     * @param quantities productId -> quantity
+     */
+    public void restoreStock(Map<Long, Integer> quantities) {
+        List<Object[]> args = new ArrayList<>(quantities.size());
+        for (Map.Entry<Long, Integer> e : new TreeMap<>(quantities).entrySet()) {
+            if (e.getValue() > 0) args.add(new Object[] { e.getValue(), e.getKey() });
+        }
+        if (!args.isEmpty()) jdbcTemplate.batchUpdate(RESTORE, args);
+    }
+}
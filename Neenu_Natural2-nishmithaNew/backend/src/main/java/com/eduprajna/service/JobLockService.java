@@ -0,0 +1,68 @@
+package com.eduprajna.service;
+
+import java.lang.management.ManagementFactory;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+/**
+ * Time-limited leases in the job_locks table so that scheduled jobs run on one node at a time.
+ *
+ * A lease is taken with a single conditional UPDATE (free or expired, or already ours), so two
+ * nodes can never both succeed. A holder that dies simply lets the lease expire; long jobs
+ * renew it between batches and stop when renewal fails.
+ */
+@Service
+public class JobLockService {
+    private final JdbcTemplate jdbcTemplate;
+    private final String nodeId;
+
+    public JobLockService(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.nodeId = ManagementFactory.getRuntimeMXBean().getName() + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    /**
+     * Identifier of this instance, as written to locked_by
+     */
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * @return true when this node now holds the lease for the given duration
+     */
+    public boolean tryAcquire(String name, Duration lease) {
+        Instant now = Instant.now();
+        int updated = jdbcTemplate.update(
+                "UPDATE job_locks SET locked_by = ?, locked_until = ? WHERE name = ? AND (locked_until < ? OR locked_by = ?)",
+                nodeId, Timestamp.from(now.plus(lease)), name, Timestamp.from(now), nodeId);
+        if (updated == 1) return true;
+        try {
+            return jdbcTemplate.update("INSERT INTO job_locks (name, locked_by, locked_until) VALUES (?, ?, ?)",
+                    name, nodeId, Timestamp.from(now.plus(lease))) == 1;
+        } catch (DataIntegrityViolationException e) {
+            // Row exists and another node holds an unexpired lease
+            return false;
+        }
+    }
+
+    /**
+     * Extend a lease this node holds
+     * @return false when the lease was lost (expired and taken over); the job should stop
+     */
+    public boolean renew(String name, Duration lease) {
+        return jdbcTemplate.update("UPDATE job_locks SET locked_until = ? WHERE name = ? AND locked_by = ?",
+                Timestamp.from(Instant.now().plus(lease)), name, nodeId) == 1;
+    }
+
+    public void release(String name) {
+        jdbcTemplate.update("UPDATE job_locks SET locked_until = ? WHERE name = ? AND locked_by = ?",
+                Timestamp.from(Instant.now()), name, nodeId);
+    }
+}
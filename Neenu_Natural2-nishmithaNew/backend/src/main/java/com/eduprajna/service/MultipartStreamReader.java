@@ -0,0 +1,204 @@
+package com.eduprajna.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * Incremental multipart/form-data parser: parts are handed out one at a time as streams over
+ * the request body, so nothing is buffered beyond one fixed-size window. A part's body must be
+ * consumed (or is skipped) before the next part is read.
+ */
+final class MultipartStreamReader {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_HEADER_BYTES = 8 * 1024;
+
+    private final InputStream in;
+    private final byte[] delimiter;
+    private final byte[] buf;
+    private int head;
+    private int tail;
+    private boolean eof;
+    private boolean finished;
+    private PartStream current;
+
+    MultipartStreamReader(InputStream in, String boundary) {
+        this.in = in;
+        this.delimiter = ("\r\n--" + boundary).getBytes(StandardCharsets.ISO_8859_1);
+        this.buf = new byte[BUFFER_SIZE + delimiter.length];
+        // Pretend the body starts with CRLF so the first boundary matches the same delimiter
+        buf[0] = '\r';
+        buf[1] = '\n';
+        tail = 2;
+    }
+
+    /**
+     * Boundary parameter of a multipart Content-Type header, or null
+     */
+    static String boundaryOf(String contentType) {
+        if (contentType == null || !contentType.toLowerCase(Locale.ROOT).startsWith("multipart/")) return null;
+        for (String param : contentType.split(";")) {
+            String p = param.trim();
+            if (p.regionMatches(true, 0, "boundary=", 0, 9)) {
+                String value = p.substring(9);
+                if (value.length() > 1 && value.startsWith("\"") && value.endsWith("\"")) {
+                    value = value.substring(1, value.length() - 1);
+                }
+                return value.isEmpty() ? null : value;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return The next part, or null after the closing boundary
+     */
+    Part next() throws IOException {
+        if (current != null) {
+            current.skipRest();
+            current = null;
+        } else if (!finished) {
+            // Preamble before the first boundary
+            new PartStream().skipRest();
+        }
+        if (finished) return null;
+
+        // After a delimiter comes "--" (end of body) or CRLF and the part headers
+        if (!ensure(2)) throw new IOException("Multipart body ended unexpectedly");
+        if (buf[head] == '-' && buf[head + 1] == '-') {
+            finished = true;
+            return null;
+        }
+        readLine();
+
+        Part part = new Part();
+        int headerBytes = 0;
+        String line;
+        while (!(line = readLine()).isEmpty()) {
+            headerBytes += line.length();
+            if (headerBytes > MAX_HEADER_BYTES) throw new IOException("Multipart headers too large");
+            int colon = line.indexOf(':');
+            if (colon < 0) continue;
+            String name = line.substring(0, colon).trim().toLowerCase(Locale.ROOT);
+            String value = line.substring(colon + 1).trim();
+            if ("content-disposition".equals(name)) {
+                part.name = dispositionParam(value, "name");
+                part.filename = dispositionParam(value, "filename");
+            } else if ("content-type".equals(name)) {
+                part.contentType = value;
+            }
+        }
+        current = new PartStream();
+        part.body = current;
+        return part;
+    }
+
+    static final class Part {
+        String name;
+        String filename;
+        String contentType;
+        InputStream body;
+
+        boolean isFile() {
+            return filename != null;
+        }
+    }
+
+    private final class PartStream extends InputStream {
+        private boolean done;
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (done) return -1;
+            if (len == 0) return 0;
+            ensure(delimiter.length);
+            int found = indexOfDelimiter();
+            int available;
+            if (found >= 0) {
+                available = found - head;
+                if (available == 0) {
+                    head += delimiter.length;
+                    done = true;
+                    return -1;
+                }
+            } else if (eof) {
+                throw new IOException("Multipart body ended without a closing boundary");
+            } else {
+                // The tail may hold the start of a delimiter; keep it for the next read
+                available = tail - head - (delimiter.length - 1);
+            }
+            int n = Math.min(len, available);
+            System.arraycopy(buf, head, b, off, n);
+            head += n;
+            return n;
+        }
+
+        void skipRest() throws IOException {
+            byte[] scratch = new byte[8192];
+            while (read(scratch, 0, scratch.length) >= 0) {
+                // discard
+            }
+        }
+    }
+
+    private int indexOfDelimiter() {
+        int last = tail - delimiter.length;
+        outer:
+        for (int i = head; i <= last; i++) {
+            for (int j = 0; j < delimiter.length; j++) {
+                if (buf[i + j] != delimiter[j]) continue outer;
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    // Fill until at least n bytes are buffered; false when the stream ends first
+    private boolean ensure(int n) throws IOException {
+        while (tail - head < n && !eof) {
+            if (head > 0) {
+                System.arraycopy(buf, head, buf, 0, tail - head);
+                tail -= head;
+                head = 0;
+            }
+            int r = in.read(buf, tail, buf.length - tail);
+            if (r < 0) eof = true;
+            else tail += r;
+        }
+        return tail - head >= n;
+    }
+
+    private String readLine() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        while (true) {
+            if (!ensure(1)) throw new IOException("Multipart headers ended unexpectedly");
+            byte c = buf[head++];
+            if (c == '\n') break;
+            if (c != '\r') sb.append((char) (c & 0xff));
+            if (sb.length() > MAX_HEADER_BYTES) throw new IOException("Multipart header line too long");
+        }
+        // Header values are UTF-8 in practice (browsers send raw UTF-8 file names)
+        return new String(sb.toString().getBytes(StandardCharsets.ISO_8859_1), StandardCharsets.UTF_8);
+    }
+
+    private static String dispositionParam(String disposition, String param) {
+        for (String p : disposition.split(";")) {
+            String t = p.trim();
+            int eq = t.indexOf('=');
+            if (eq < 0 || !t.substring(0, eq).trim().equalsIgnoreCase(param)) continue;
+            String value = t.substring(eq + 1).trim();
+            if (value.length() > 1 && value.startsWith("\"") && value.endsWith("\"")) {
+                value = value.substring(1, value.length() - 1);
+            }
+            return value;
+        }
+        return null;
+    }
+}
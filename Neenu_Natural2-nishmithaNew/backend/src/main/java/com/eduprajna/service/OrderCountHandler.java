@@ -0,0 +1,51 @@
+package com.eduprajna.service;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.eduprajna.entity.OutboxEvent;
+import com.eduprajna.event.OutboxEventHandler;
+import com.eduprajna.repository.UserRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Keeps users.total_orders in step with placed orders, off the checkout path. The count is
+ * recomputed rather than incremented, so redelivered events do no harm.
+ */
+@Service
+public class OrderCountHandler implements OutboxEventHandler {
+    private final UserRepository userRepo;
+    private final ObjectMapper objectMapper;
+
+    public OrderCountHandler(UserRepository userRepo, ObjectMapper objectMapper) {
+        this.userRepo = userRepo;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public String eventType() {
+        return OutboxService.ORDER_PLACED;
+    }
+
+    @Override
+    @Transactional
+    public void handle(List<OutboxEvent> events) {
+        Set<Long> userIds = new TreeSet<>();
+        for (OutboxEvent event : events) {
+            try {
+                JsonNode userId = objectMapper.readTree(event.getPayload()).get("userId");
+                if (userId != null && userId.canConvertToLong()) userIds.add(userId.asLong());
+            } catch (JsonProcessingException e) {
+                throw new IllegalArgumentException("Unreadable OrderPlaced payload in outbox event " + event.getId(), e);
+            }
+        }
+        if (!userIds.isEmpty()) userRepo.refreshTotalOrders(userIds, OffsetDateTime.now());
+    }
+}
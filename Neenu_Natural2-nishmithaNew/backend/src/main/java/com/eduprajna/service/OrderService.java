@@ -1,13 +1,17 @@
 package com.eduprajna.service;
 
 import com.eduprajna.entity.*;
+import com.eduprajna.event.ProductChangedEvent;
 import com.eduprajna.repository.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
@@ -22,16 +26,23 @@ public class OrderService {
     private final CartItemRepository cartRepo;
     private final CheckoutSelectionRepository selectionRepo;
     private final AddressRepository addressRepo;
-    private final com.eduprajna.repository.ProductRepository productRepo;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CartWriteBehindStore cartStore;
+    private final StockReservationService reservationService;
+    private final OutboxService outboxService;
 
     public OrderService(OrderRepository orderRepo, CartItemRepository cartRepo, 
                        CheckoutSelectionRepository selectionRepo, AddressRepository addressRepo,
-                       com.eduprajna.repository.ProductRepository productRepo) {
+                       ApplicationEventPublisher eventPublisher, CartWriteBehindStore cartStore,
+                       StockReservationService reservationService, OutboxService outboxService) {
         this.orderRepo = orderRepo;
         this.cartRepo = cartRepo;
         this.selectionRepo = selectionRepo;
         this.addressRepo = addressRepo;
-        this.productRepo = productRepo;
+        this.eventPublisher = eventPublisher;
+        this.cartStore = cartStore;
+        this.reservationService = reservationService;
+        this.outboxService = outboxService;
     }
 
     /**
@@ -43,24 +54,33 @@ public class OrderService {
     public Order placeOrder(User user) {
         logger.debug("Placing order for user: {}", user.getEmail());
         
-        // 1. Get cart items
-        List<CartItem> cart = cartRepo.findByUser(user);
+        // 1. Get cart items (pending in-memory cart changes are written first)
+        cartStore.flush(user.getId());
+        List<CartItem> cart = cartRepo.findByUserWithProduct(user);
         if (cart.isEmpty()) {
             throw new IllegalStateException("Cart is empty");
         }
         logger.debug("Found {} items in cart for user: {}", cart.size(), user.getEmail());
         
-        // 1b. Validate stock availability for all items before proceeding
+        // 1b. Take the stock: units reserved at review are kept, the rest is taken with guarded
+        // decrements; fails the whole order if any line is short
+        Map<Long, Integer> quantities = new HashMap<>();
         for (CartItem ci : cart) {
             Product product = ci.getProduct();
-            int available = product.getStockQuantity() != null ? product.getStockQuantity() : 0;
             int qty = ci.getQuantity() != null ? ci.getQuantity() : 0;
             if (qty <= 0) {
                 throw new IllegalStateException("Invalid quantity for product: " + product.getName());
             }
-            if (available < qty) {
-                throw new IllegalStateException("Insufficient stock for product: " + product.getName());
-            }
+            quantities.merge(product.getId(), qty, Integer::sum);
+        }
+        List<Long> shortIds = reservationService.consume(user, quantities);
+        if (!shortIds.isEmpty()) {
+            String names = cart.stream()
+                .filter(ci -> shortIds.contains(ci.getProduct().getId()))
+                .map(ci -> ci.getProduct().getName())
+                .distinct()
+                .collect(Collectors.joining(", "));
+            throw new IllegalStateException("Insufficient stock for product: " + names);
         }
         
         // 2. Get checkout selection
@@ -107,18 +127,12 @@ public class OrderService {
             orderItem.setProduct(cartItem.getProduct());
             orderItem.setQuantity(cartItem.getQuantity());
             orderItem.setPrice(cartItem.getPriceAtAdd());
-            
-            // Decrement stock for the purchased product
-            Product product = cartItem.getProduct();
-            int available = product.getStockQuantity() != null ? product.getStockQuantity() : 0;
-            int qty = cartItem.getQuantity() != null ? cartItem.getQuantity() : 0;
-            int newQty = Math.max(available - qty, 0);
-            product.setStockQuantity(newQty);
-            product.setInStock(newQty > 0);
-            productRepo.save(product);
             return orderItem;
         }).collect(Collectors.toList());
         order.setItems(orderItems);
+        eventPublisher.publishEvent(ProductChangedEvent.stockOf(cart.stream()
+            .map(ci -> ci.getProduct().getId())
+            .collect(Collectors.toList())));
         
         // 8. Save order
         Order savedOrder = orderRepo.save(order);
@@ -126,10 +140,15 @@ public class OrderService {
         
         // 9. Clear cart after successful order creation
         cartRepo.deleteByUser(user);
+        cartStore.forget(user.getId());
         logger.info("Cart cleared for user: {}", user.getEmail());
         
-        // 10. Update user's order count
-        user.incrementTotalOrders();
+        // 10. Follow-up work (user's order count, ...) is delivered after commit by OutboxDispatcher
+        Map<String, Object> placed = new HashMap<>();
+        placed.put("orderId", savedOrder.getId());
+        placed.put("userId", user.getId());
+        placed.put("total", savedOrder.getTotal());
+        outboxService.publish(OutboxService.ORDER_PLACED, savedOrder.getId(), placed);
         
         return savedOrder;
     }
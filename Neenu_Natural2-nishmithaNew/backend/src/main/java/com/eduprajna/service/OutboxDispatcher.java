@@ -0,0 +1,238 @@
+package com.eduprajna.service;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.eduprajna.entity.OutboxEvent;
+import com.eduprajna.event.OutboxEventHandler;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Delivers outbox_event rows to the registered OutboxEventHandler beans.
+ *
+ * Each poll claims a batch of due events with SELECT ... FOR UPDATE SKIP LOCKED and pushes
+ * their next_attempt_at out by a lease, in one short transaction; other nodes polling at the
+ * same time skip the locked rows and then see them as not due. Handlers run outside that
+ * transaction, one call per event type. Delivered events get processed_at. When a call
+ * fails, its events are handed over one at a time, so a single bad event does not fail its
+ * batch-mates; the ones that still fail are retried with exponential backoff, and parked with
+ * parked_at and last_error once they reach max-attempts. Events of a node that died while
+ * handling them come due again when the lease runs out. Full batches are followed by another
+ * poll right away.
+ *
+ * Metrics: outbox.pending and outbox.lag (age of the oldest undelivered event, parked ones
+ * excluded), outbox.parked, plus outbox.delivery.delay, outbox.delivered, outbox.failed and
+ * outbox.parked.events per event type.
+ */
+@Service
+public class OutboxDispatcher {
+    private static final Logger logger = LoggerFactory.getLogger(OutboxDispatcher.class);
+
+    private static final int MAX_ROUNDS_PER_POLL = 10;
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, OutboxEventHandler> handlers = new HashMap<>();
+    private final int batchSize;
+    private final Duration lease;
+    private final Duration retryBase;
+    private final Duration retryMax;
+    private final Duration retention;
+    private final int maxAttempts;
+    private final AtomicLong pending = new AtomicLong();
+    private final AtomicLong lagSeconds = new AtomicLong();
+    private final AtomicLong parked = new AtomicLong();
+
+    public OutboxDispatcher(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                            MeterRegistry meterRegistry, List<OutboxEventHandler> handlers,
+                            @Value("${outbox.batch-size:100}") int batchSize,
+                            @Value("${outbox.lease-seconds:60}") long leaseSeconds,
+                            @Value("${outbox.retry-base-seconds:5}") long retryBaseSeconds,
+                            @Value("${outbox.retry-max-seconds:3600}") long retryMaxSeconds,
+                            @Value("${outbox.max-attempts:10}") int maxAttempts,
+                            @Value("${outbox.retention-hours:72}") long retentionHours) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.meterRegistry = meterRegistry;
+        for (OutboxEventHandler handler : handlers) {
+            OutboxEventHandler previous = this.handlers.put(handler.eventType(), handler);
+            if (previous != null) {
+                throw new IllegalStateException("Two outbox handlers for event type " + handler.eventType());
+            }
+        }
+        this.batchSize = batchSize;
+        this.lease = Duration.ofSeconds(leaseSeconds);
+        this.retryBase = Duration.ofSeconds(retryBaseSeconds);
+        this.retryMax = Duration.ofSeconds(retryMaxSeconds);
+        this.retention = Duration.ofHours(retentionHours);
+        this.maxAttempts = maxAttempts;
+        Gauge.builder("outbox.pending", pending, AtomicLong::get)
+                .description("Outbox events not yet delivered").register(meterRegistry);
+        Gauge.builder("outbox.lag", lagSeconds, AtomicLong::get).baseUnit("seconds")
+                .description("Age of the oldest undelivered outbox event").register(meterRegistry);
+        Gauge.builder("outbox.parked", parked, AtomicLong::get)
+                .description("Outbox events given up after too many failed attempts").register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.poll-ms:1000}")
+    public void poll() {
+        for (int round = 0; round < MAX_ROUNDS_PER_POLL; round++) {
+            List<OutboxEvent> batch = claim();
+            if (!batch.isEmpty()) dispatch(batch);
+            if (batch.size() < batchSize) break;
+        }
+        updateLag();
+    }
+
+    private List<OutboxEvent> claim() {
+        return transactionTemplate.execute(status -> {
+            Timestamp now = Timestamp.from(Instant.now());
+            List<OutboxEvent> events = jdbcTemplate.query(
+                    "SELECT id, event_type, aggregate_id, payload, created_at, attempts FROM outbox_event "
+                    + "WHERE processed_at IS NULL AND parked_at IS NULL AND next_attempt_at <= ? ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED",
+                    (rs, i) -> {
+                        OutboxEvent e = new OutboxEvent();
+                        e.setId(rs.getLong(1));
+                        e.setEventType(rs.getString(2));
+                        long aggregateId = rs.getLong(3);
+                        e.setAggregateId(rs.wasNull() ? null : aggregateId);
+                        e.setPayload(rs.getString(4));
+                        e.setCreatedAt(rs.getTimestamp(5).toInstant());
+                        e.setAttempts(rs.getInt(6));
+                        return e;
+                    }, now, batchSize);
+            if (!events.isEmpty()) {
+                Timestamp leasedUntil = Timestamp.from(now.toInstant().plus(lease));
+                List<Object[]> args = new ArrayList<>(events.size());
+                for (OutboxEvent e : events) args.add(new Object[] { leasedUntil, e.getId() });
+                jdbcTemplate.batchUpdate("UPDATE outbox_event SET next_attempt_at = ? WHERE id = ?", args);
+            }
+            return events;
+        });
+    }
+
+    private void dispatch(List<OutboxEvent> batch) {
+        Map<String, List<OutboxEvent>> byType = new LinkedHashMap<>();
+        for (OutboxEvent e : batch) byType.computeIfAbsent(e.getEventType(), t -> new ArrayList<>()).add(e);
+
+        List<Object[]> done = new ArrayList<>();
+        List<Object[]> failed = new ArrayList<>();
+        List<Object[]> given = new ArrayList<>();
+        for (Map.Entry<String, List<OutboxEvent>> group : byType.entrySet()) {
+            String type = group.getKey();
+            List<OutboxEvent> events = group.getValue();
+            OutboxEventHandler handler = handlers.get(type);
+            List<OutboxEvent> delivered = new ArrayList<>();
+            Map<OutboxEvent, String> errors = new LinkedHashMap<>();
+            if (handler == null) {
+                for (OutboxEvent e : events) errors.put(e, "No handler for event type " + type);
+            } else {
+                String error = deliver(handler, events);
+                if (error == null) {
+                    delivered.addAll(events);
+                } else if (events.size() == 1) {
+                    errors.put(events.get(0), error);
+                } else {
+                    // Find the bad event(s): the others are delivered all the same
+                    for (OutboxEvent e : events) {
+                        String single = deliver(handler, List.of(e));
+                        if (single == null) delivered.add(e);
+                        else errors.put(e, single);
+                    }
+                }
+            }
+
+            Instant now = Instant.now();
+            if (!delivered.isEmpty()) {
+                Timer delay = Timer.builder("outbox.delivery.delay").tag("type", type)
+                        .description("Time from recording an outbox event to its delivery").register(meterRegistry);
+                for (OutboxEvent e : delivered) {
+                    done.add(new Object[] { Timestamp.from(now), e.getId() });
+                    delay.record(Duration.between(e.getCreatedAt(), now));
+                }
+                meterRegistry.counter("outbox.delivered", "type", type).increment(delivered.size());
+            }
+            if (errors.isEmpty()) continue;
+            int parkedNow = 0;
+            for (Map.Entry<OutboxEvent, String> f : errors.entrySet()) {
+                OutboxEvent e = f.getKey();
+                String error = f.getValue();
+                if (error.length() > MAX_ERROR_LENGTH) error = error.substring(0, MAX_ERROR_LENGTH);
+                if (e.getAttempts() + 1 >= maxAttempts) {
+                    given.add(new Object[] { Timestamp.from(now), error, e.getId() });
+                    parkedNow++;
+                } else {
+                    failed.add(new Object[] { Timestamp.from(now.plus(backoff(e.getAttempts()))), error, e.getId() });
+                }
+            }
+            logger.warn("Outbox delivery of {} of {} {} events failed ({} parked after {} attempts), first error: {}",
+                    errors.size(), events.size(), type, parkedNow, maxAttempts, errors.values().iterator().next());
+            meterRegistry.counter("outbox.failed", "type", type).increment(errors.size());
+            if (parkedNow > 0) meterRegistry.counter("outbox.parked.events", "type", type).increment(parkedNow);
+        }
+        if (!done.isEmpty()) {
+            jdbcTemplate.batchUpdate("UPDATE outbox_event SET processed_at = ?, attempts = attempts + 1, last_error = NULL WHERE id = ?", done);
+        }
+        if (!failed.isEmpty()) {
+            jdbcTemplate.batchUpdate("UPDATE outbox_event SET next_attempt_at = ?, attempts = attempts + 1, last_error = ? WHERE id = ?", failed);
+        }
+        if (!given.isEmpty()) {
+            jdbcTemplate.batchUpdate("UPDATE outbox_event SET parked_at = ?, attempts = attempts + 1, last_error = ? WHERE id = ?", given);
+        }
+    }
+
+    // null when delivered, otherwise the error
+    private static String deliver(OutboxEventHandler handler, List<OutboxEvent> events) {
+        try {
+            handler.handle(events);
+            return null;
+        } catch (RuntimeException e) {
+            return e.getClass().getSimpleName() + ": " + e.getMessage();
+        }
+    }
+
+    // base * 2^attempts, capped
+    private Duration backoff(int attempts) {
+        Duration delay = retryBase.multipliedBy(1L << Math.min(attempts, 20));
+        return delay.compareTo(retryMax) > 0 ? retryMax : delay;
+    }
+
+    private void updateLag() {
+        // Parked events stay unprocessed; they are counted apart and do not make the lag grow
+        jdbcTemplate.query("SELECT SUM(CASE WHEN parked_at IS NULL THEN 1 ELSE 0 END), "
+                + "MIN(CASE WHEN parked_at IS NULL THEN created_at END), "
+                + "SUM(CASE WHEN parked_at IS NULL THEN 0 ELSE 1 END) FROM outbox_event WHERE processed_at IS NULL", rs -> {
+            pending.set(rs.getLong(1));
+            Timestamp oldest = rs.getTimestamp(2);
+            lagSeconds.set(oldest == null ? 0 : Math.max(0, Duration.between(oldest.toInstant(), Instant.now()).toSeconds()));
+            parked.set(rs.getLong(3));
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.purge-ms:3600000}")
+    public void purgeDelivered() {
+        int removed = jdbcTemplate.update("DELETE FROM outbox_event WHERE processed_at < ?",
+                Timestamp.from(Instant.now().minus(retention)));
+        if (removed > 0) logger.debug("Purged {} delivered outbox events", removed);
+    }
+}
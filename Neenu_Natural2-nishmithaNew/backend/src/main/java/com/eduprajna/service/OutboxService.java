@@ -0,0 +1,45 @@
+package com.eduprajna.service;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Records side effects in outbox_event inside the caller's transaction: the event exists
+ * exactly when the change that caused it committed. OutboxDispatcher delivers it afterwards.
+ */
+@Service
+public class OutboxService {
+    public static final String ORDER_PLACED = "OrderPlaced";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    public OutboxService(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * @param payload Serialized as JSON
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void publish(String eventType, Long aggregateId, Object payload) {
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Outbox payload is not serializable: " + e.getMessage(), e);
+        }
+        Timestamp now = Timestamp.from(Instant.now());
+        jdbcTemplate.update("INSERT INTO outbox_event (event_type, aggregate_id, payload, created_at, attempts, next_attempt_at) "
+                + "VALUES (?, ?, ?, ?, 0, ?)", eventType, aggregateId, json, now, now);
+    }
+}
@@ -0,0 +1,249 @@
+package com.eduprajna.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * Immutable radix tree over normalized keys, flattened into primitive arrays.
+ *
+ * Every node stores its edge label as a slice of one shared char array, its children as a
+ * contiguous, label-sorted range of node ids, and a precomputed slice of the best K values
+ * in its subtree (highest score first). A lookup walks at most prefix-length characters,
+ * binary-searching children by first character, and returns a view of that slice.
+ */
+final class PrefixIndex<T> {
+
+    private final char[] labels;
+    private final int[] labelStart;
+    private final int[] labelLength;
+    private final int[] firstChild;
+    private final int[] childCount;
+    private final int[] topStart;
+    private final int[] topLength;
+    private final int[] top;
+    private final List<T> values;
+
+    private PrefixIndex(char[] labels, int[] labelStart, int[] labelLength, int[] firstChild, int[] childCount,
+                        int[] topStart, int[] topLength, int[] top, List<T> values) {
+        this.labels = labels;
+        this.labelStart = labelStart;
+        this.labelLength = labelLength;
+        this.firstChild = firstChild;
+        this.childCount = childCount;
+        this.topStart = topStart;
+        this.topLength = topLength;
+        this.top = top;
+        this.values = values;
+    }
+
+    /**
+     * Lower-case and collapse every run of non-alphanumeric characters to one space.
+     * Keys and lookups must both go through this.
+     */
+    static String normalize(String text) {
+        if (text == null) return "";
+        StringBuilder sb = new StringBuilder(text.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                if (pendingSpace && sb.length() > 0) sb.append(' ');
+                sb.append(Character.toLowerCase(c));
+                pendingSpace = false;
+            } else {
+                pendingSpace = true;
+            }
+        }
+        // Keep a trailing separator so "neem " only matches keys that continue with another word
+        if (pendingSpace && sb.length() > 0) sb.append(' ');
+        return sb.toString();
+    }
+
+    /**
+     * Best values for keys starting with the given normalized prefix
+     * @return Unmodifiable view, at most limit entries, best first
+     */
+    List<T> lookup(String prefix, int limit) {
+        int node = 0;
+        int i = 0;
+        while (i < prefix.length()) {
+            int child = findChild(node, prefix.charAt(i));
+            if (child < 0) return List.of();
+            int start = labelStart[child];
+            int len = labelLength[child];
+            int j = 0;
+            while (j < len && i < prefix.length()) {
+                if (labels[start + j] != prefix.charAt(i)) return List.of();
+                j++;
+                i++;
+            }
+            node = child;
+        }
+        int from = topStart[node];
+        int count = Math.min(limit, topLength[node]);
+        return new TopView(from, count);
+    }
+
+    private int findChild(int node, char c) {
+        int lo = firstChild[node];
+        int hi = lo + childCount[node] - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            char label = labels[labelStart[mid]];
+            if (label < c) lo = mid + 1;
+            else if (label > c) hi = mid - 1;
+            else return mid;
+        }
+        return -1;
+    }
+
+    int nodeCount() {
+        return firstChild.length;
+    }
+
+    private final class TopView extends java.util.AbstractList<T> {
+        private final int from;
+        private final int count;
+
+        TopView(int from, int count) {
+            this.from = from;
+            this.count = count;
+        }
+
+        @Override
+        public T get(int index) {
+            if (index < 0 || index >= count) throw new IndexOutOfBoundsException(index);
+            return values.get(top[from + index]);
+        }
+
+        @Override
+        public int size() {
+            return count;
+        }
+    }
+
+    /**
+     * Collects (key, value, score) entries and builds the flattened index.
+     * One value may be registered under several keys (e.g. every word suffix of a name).
+     */
+    static final class Builder<T> {
+        private final int k;
+        private final List<T> values = new ArrayList<>();
+        private final List<Long> scores = new ArrayList<>();
+        private final BuildNode root = new BuildNode();
+
+        Builder(int k) {
+            this.k = k;
+        }
+
+        int addValue(T value, long score) {
+            values.add(value);
+            scores.add(score);
+            return values.size() - 1;
+        }
+
+        void addKey(String normalizedKey, int valueId) {
+            if (normalizedKey.isEmpty()) return;
+            BuildNode node = root;
+            for (int i = 0; i < normalizedKey.length(); i++) {
+                node = node.children.computeIfAbsent(normalizedKey.charAt(i), c -> new BuildNode());
+            }
+            if (!node.terminal.contains(valueId)) node.terminal.add(valueId);
+        }
+
+        PrefixIndex<T> build() {
+            compress(root);
+            computeTop(root);
+
+            // Breadth-first layout so each node's children occupy consecutive ids
+            List<BuildNode> order = new ArrayList<>();
+            Deque<BuildNode> queue = new ArrayDeque<>();
+            queue.add(root);
+            StringBuilder labelChars = new StringBuilder();
+            int topTotal = 0;
+            while (!queue.isEmpty()) {
+                BuildNode n = queue.poll();
+                order.add(n);
+                topTotal += n.top.length;
+                queue.addAll(n.compressed);
+            }
+
+            int size = order.size();
+            int[] labelStart = new int[size];
+            int[] labelLength = new int[size];
+            int[] firstChild = new int[size];
+            int[] childCount = new int[size];
+            int[] topStart = new int[size];
+            int[] topLength = new int[size];
+            int[] top = new int[topTotal];
+            int nextChild = 1;
+            int topPos = 0;
+            for (int id = 0; id < size; id++) {
+                BuildNode n = order.get(id);
+                labelStart[id] = labelChars.length();
+                labelLength[id] = n.label.length();
+                labelChars.append(n.label);
+                firstChild[id] = nextChild;
+                childCount[id] = n.compressed.size();
+                nextChild += n.compressed.size();
+                topStart[id] = topPos;
+                topLength[id] = n.top.length;
+                System.arraycopy(n.top, 0, top, topPos, n.top.length);
+                topPos += n.top.length;
+            }
+            char[] labels = new char[labelChars.length()];
+            labelChars.getChars(0, labels.length, labels, 0);
+            return new PrefixIndex<>(labels, labelStart, labelLength, firstChild, childCount,
+                    topStart, topLength, top, List.copyOf(values));
+        }
+
+        // Merge single-child chains into one edge; result children are label-sorted
+        private void compress(BuildNode node) {
+            for (var e : node.children.entrySet()) {
+                BuildNode child = e.getValue();
+                StringBuilder label = new StringBuilder().append(e.getKey());
+                while (child.children.size() == 1 && child.terminal.isEmpty()) {
+                    var only = child.children.firstEntry();
+                    label.append(only.getKey());
+                    child = only.getValue();
+                }
+                child.label = label.toString();
+                compress(child);
+                node.compressed.add(child);
+            }
+            node.children = null;
+        }
+
+        private void computeTop(BuildNode node) {
+            List<Integer> candidates = new ArrayList<>(node.terminal);
+            for (BuildNode child : node.compressed) {
+                computeTop(child);
+                for (int v : child.top) candidates.add(v);
+            }
+            int[] best = candidates.stream().distinct()
+                    .sorted((a, b) -> Long.compare(scores.get(b), scores.get(a)))
+                    .limit(k)
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+            node.top = best;
+            node.terminal = null;
+        }
+    }
+
+    private static final class BuildNode {
+        TreeMap<Character, BuildNode> children = new TreeMap<>();
+        List<Integer> terminal = new ArrayList<>(1);
+        List<BuildNode> compressed = new ArrayList<>();
+        String label = "";
+        int[] top = new int[0];
+    }
+
+    @Override
+    public String toString() {
+        return "PrefixIndex[nodes=" + firstChild.length + ", labelChars=" + labels.length
+                + ", topEntries=" + top.length + ", values=" + values.size() + "]";
+    }
+}
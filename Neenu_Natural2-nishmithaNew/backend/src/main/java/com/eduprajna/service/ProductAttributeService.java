@@ -0,0 +1,144 @@
+package com.eduprajna.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.eduprajna.entity.Product;
+import com.eduprajna.entity.ProductAttribute;
+import com.eduprajna.entity.ProductAttribute.Kind;
+import com.eduprajna.repository.ProductAttributeRepository;
+import com.eduprajna.repository.ProductRepository;
+
+/**
+ * Keeps Product.attributes in step with the comma-separated ingredients/benefits strings.
+ * The strings remain what the API reads and writes; the attribute rows exist so that
+ * "products containing X" is an index lookup instead of a scan with string splitting.
+ */
+@Service
+public class ProductAttributeService {
+    private static final Logger logger = LoggerFactory.getLogger(ProductAttributeService.class);
+    private static final int CHUNK_SIZE = 500;
+
+    private final ProductAttributeRepository attributeRepository;
+    private final ProductRepository productRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    public ProductAttributeService(ProductAttributeRepository attributeRepository, ProductRepository productRepository,
+                                   TransactionTemplate transactionTemplate) {
+        this.attributeRepository = attributeRepository;
+        this.productRepository = productRepository;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    /**
+     * Lookup key for an attribute: trimmed, lower-case, inner whitespace collapsed
+     * @return Normalized name, or null when nothing is left
+     */
+    public static String normalize(String name) {
+        if (name == null) return null;
+        String n = name.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+        return n.isEmpty() ? null : n;
+    }
+
+    /**
+     * Recompute the attribute set of products that are about to be saved (caller's transaction).
+     * Names are resolved for all products together, one query per kind.
+     */
+    public void syncAttributes(Collection<Product> products) {
+        Map<Kind, Map<String, String>> wanted = new EnumMap<>(Kind.class);
+        for (Kind kind : Kind.values()) wanted.put(kind, new LinkedHashMap<>());
+        for (Product p : products) {
+            collect(p.getIngredients(), wanted.get(Kind.INGREDIENT));
+            collect(p.getBenefits(), wanted.get(Kind.BENEFIT));
+        }
+
+        Map<Kind, Map<String, ProductAttribute>> resolved = new EnumMap<>(Kind.class);
+        for (Kind kind : Kind.values()) {
+            Map<String, String> names = wanted.get(kind);
+            Map<String, ProductAttribute> byName = new HashMap<>();
+            if (!names.isEmpty()) {
+                for (ProductAttribute a : attributeRepository.findByKindAndNameIn(kind, names.keySet())) {
+                    byName.put(a.getName(), a);
+                }
+                List<ProductAttribute> created = new ArrayList<>();
+                names.forEach((name, label) -> {
+                    if (!byName.containsKey(name)) created.add(new ProductAttribute(kind, name, label));
+                });
+                for (ProductAttribute a : attributeRepository.saveAll(created)) byName.put(a.getName(), a);
+            }
+            resolved.put(kind, byName);
+        }
+
+        for (Product p : products) {
+            Set<ProductAttribute> attributes = new HashSet<>();
+            addResolved(p.getIngredients(), resolved.get(Kind.INGREDIENT), attributes);
+            addResolved(p.getBenefits(), resolved.get(Kind.BENEFIT), attributes);
+            if (p.getAttributes() == null) {
+                p.setAttributes(attributes);
+            } else {
+                // Keep the managed collection instance so Hibernate only diffs the join rows
+                p.getAttributes().retainAll(attributes);
+                p.getAttributes().addAll(attributes);
+            }
+        }
+    }
+
+    /**
+     * Re-derive attributes for products whose strings were written outside JPA (bulk import)
+     * @return Number of products processed
+     */
+    public int resync(List<Long> productIds) {
+        int done = 0;
+        for (int from = 0; from < productIds.size(); from += CHUNK_SIZE) {
+            List<Long> chunk = productIds.subList(from, Math.min(from + CHUNK_SIZE, productIds.size()));
+            done += transactionTemplate.execute(status -> {
+                List<Product> products = productRepository.findAllById(chunk);
+                syncAttributes(products);
+                return products.size();
+            });
+        }
+        return done;
+    }
+
+    /**
+     * Derive attributes for every product that has ingredient/benefit text but no attribute rows
+     * @return Number of products processed
+     */
+    public int backfillMissing() {
+        List<Long> ids = productRepository.findIdsMissingAttributes();
+        if (ids.isEmpty()) return 0;
+        long start = System.currentTimeMillis();
+        int done = resync(ids);
+        logger.info("Derived ingredient/benefit attributes for {} products in {} ms", done, System.currentTimeMillis() - start);
+        return done;
+    }
+
+    private static void collect(String csv, Map<String, String> into) {
+        if (csv == null) return;
+        for (String part : csv.split(",")) {
+            String name = normalize(part);
+            if (name != null && name.length() <= 255) into.putIfAbsent(name, part.trim().replaceAll("\\s+", " "));
+        }
+    }
+
+    private static void addResolved(String csv, Map<String, ProductAttribute> byName, Set<ProductAttribute> into) {
+        if (csv == null) return;
+        for (String part : csv.split(",")) {
+            ProductAttribute a = byName.get(normalize(part));
+            if (a != null) into.add(a);
+        }
+    }
+}
@@ -0,0 +1,465 @@
+package com.eduprajna.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.eduprajna.dto.ImportReportDTO;
+import com.eduprajna.dto.ProductDeltaDTO;
+import com.eduprajna.dto.StockSyncReportDTO;
+import com.eduprajna.event.ProductChangedEvent;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Bulk writes to the product table that bypass per-entity JPA saves.
+ *
+ * Imports are parsed as a stream (CSV or NDJSON), validated row by row, and written in
+ * JDBC batches of catalog.import.batch-size rows, one transaction per batch. Rows with an
+ * id update that product; rows without one are inserted. A failing row is reported and
+ * skipped; it never aborts the rest of the file.
+ *
+ * Price/stock syncs update only those columns, locking one sorted chunk of rows at a time.
+ * Stock figures in both are units on hand; what carts hold is subtracted before writing.
+ */
+@Service
+public class ProductBulkService {
+    private static final Logger logger = LoggerFactory.getLogger(ProductBulkService.class);
+
+    public static final String FORMAT_CSV = "csv";
+    public static final String FORMAT_NDJSON = "ndjson";
+
+    private static final String INSERT_SQL =
+        "INSERT INTO product (name, description, price, original_price, category, subcategory, image_url, weight, "
+        + "stock_quantity, ingredients, benefits, in_stock, is_active) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String UPDATE_SQL =
+        "UPDATE product SET name = ?, description = ?, price = ?, original_price = ?, category = ?, subcategory = ?, "
+        + "image_url = ?, weight = ?, stock_quantity = ?, ingredients = ?, benefits = ?, in_stock = ?, is_active = ?, "
+        + "category_id = NULL WHERE id = ?";
+    private static final String DELTA_UPDATE_SQL =
+        "UPDATE product SET price = ?, stock_quantity = ?, in_stock = ? WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ProductAttributeService attributeService;
+    private final CategoryService categoryService;
+    private final InventoryService inventoryService;
+    private final int batchSize;
+    private final int maxReportedErrors;
+
+    public ProductBulkService(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                              ObjectMapper objectMapper, ApplicationEventPublisher eventPublisher,
+                              ProductAttributeService attributeService, CategoryService categoryService,
+                              InventoryService inventoryService,
+                              @Value("${catalog.import.batch-size:500}") int batchSize,
+                              @Value("${catalog.import.max-reported-errors:1000}") int maxReportedErrors) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.eventPublisher = eventPublisher;
+        this.attributeService = attributeService;
+        this.categoryService = categoryService;
+        this.inventoryService = inventoryService;
+        this.batchSize = batchSize;
+        this.maxReportedErrors = maxReportedErrors;
+    }
+
+    /**
+     * Import products from a CSV (with header row) or NDJSON stream
+     * @param in Request body; read once, never buffered whole
+     * @param format FORMAT_CSV or FORMAT_NDJSON
+     * @return Counts plus per-row validation and write errors
+     */
+    public ImportReportDTO importProducts(InputStream in, String format) throws IOException {
+        long start = System.currentTimeMillis();
+        ImportReportDTO report = new ImportReportDTO();
+        List<ProductRow> chunk = new ArrayList<>(batchSize);
+        List<Long> updatedIds = new ArrayList<>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+
+        if (FORMAT_NDJSON.equals(format)) {
+            MappingIterator<Map<String, Object>> it = objectMapper.readerForMapOf(Object.class).readValues(reader);
+            while (true) {
+                Map<String, Object> record;
+                try {
+                    if (!it.hasNextValue()) break;
+                    record = it.nextValue();
+                } catch (IOException e) {
+                    // A malformed line cannot be resynchronised reliably; stop and report
+                    addError(report, report.totalRows + 1, "Invalid JSON: " + e.getMessage());
+                    report.failed++;
+                    break;
+                }
+                Map<String, String> values = new HashMap<>();
+                record.forEach((k, v) -> values.put(k, v == null ? null : String.valueOf(v)));
+                acceptRow(values, report, chunk, updatedIds);
+            }
+        } else {
+            CsvReader csv = new CsvReader(reader);
+            List<String> header = csv.next();
+            if (header == null) return report;
+            header = header.stream().map(String::trim).collect(Collectors.toList());
+            while (true) {
+                List<String> fields;
+                try {
+                    fields = csv.next();
+                } catch (IOException e) {
+                    addError(report, report.totalRows + 1, "Invalid CSV: " + e.getMessage());
+                    report.failed++;
+                    break;
+                }
+                if (fields == null) break;
+                Map<String, String> values = new HashMap<>();
+                for (int i = 0; i < header.size() && i < fields.size(); i++) {
+                    values.put(header.get(i), fields.get(i));
+                }
+                acceptRow(values, report, chunk, updatedIds);
+            }
+        }
+        if (!chunk.isEmpty()) writeChunk(chunk, report, updatedIds);
+
+        if (report.inserted + report.updated > 0) {
+            // Rows were written with plain JDBC, so derive their normalized attributes and
+            // category links here (updates cleared category_id so they are relinked too)
+            attributeService.resync(updatedIds);
+            attributeService.backfillMissing();
+            categoryService.linkUnassignedProducts();
+            eventPublisher.publishEvent(ProductChangedEvent.allProducts());
+        }
+        logger.info("Product import ({}) finished in {} ms: rows={} inserted={} updated={} failed={}", format,
+                System.currentTimeMillis() - start, report.totalRows, report.inserted, report.updated, report.failed);
+        return report;
+    }
+
+    /**
+     * Apply price/stock deltas from the warehouse feed
+     * @param deltas Null fields are left unchanged; a later entry for the same id wins
+     * @return Before/after values of every row that changed
+     */
+    public StockSyncReportDTO applyDeltas(List<ProductDeltaDTO> deltas) {
+        long start = System.currentTimeMillis();
+        StockSyncReportDTO report = new StockSyncReportDTO();
+        report.received = deltas.size();
+
+        // Sorted by id so concurrent syncs lock rows in the same order
+        TreeMap<Long, ProductDeltaDTO> byId = new TreeMap<>();
+        for (ProductDeltaDTO d : deltas) {
+            if (d == null || d.id == null) {
+                report.errors.add("Entry without id skipped");
+            } else if (d.price != null && (d.price < 0 || d.price.isNaN() || d.price.isInfinite())) {
+                report.errors.add("Product " + d.id + ": price must be a non-negative number");
+            } else if (d.stockQuantity != null && d.stockQuantity < 0) {
+                report.errors.add("Product " + d.id + ": stockQuantity must not be negative");
+            } else {
+                byId.put(d.id, d);
+            }
+        }
+
+        Set<Long> changedIds = new LinkedHashSet<>();
+        List<ProductDeltaDTO> chunk = new ArrayList<>(batchSize);
+        for (ProductDeltaDTO d : byId.values()) {
+            chunk.add(d);
+            if (chunk.size() >= batchSize) {
+                applyDeltaChunk(chunk, report, changedIds);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) applyDeltaChunk(chunk, report, changedIds);
+
+        if (!changedIds.isEmpty()) {
+            eventPublisher.publishEvent(ProductChangedEvent.stockOf(changedIds));
+        }
+        logger.info("Stock sync finished in {} ms: received={} updated={} unchanged={} notFound={}",
+                System.currentTimeMillis() - start, report.received, report.updated, report.unchanged, report.notFound.size());
+        return report;
+    }
+
+    private void applyDeltaChunk(List<ProductDeltaDTO> chunk, StockSyncReportDTO report, Set<Long> changedIds) {
+        List<StockSyncReportDTO.Change> changes = new ArrayList<>();
+        List<Long> missing = new ArrayList<>();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                Map<Long, Object[]> current = new HashMap<>();
+                namedJdbcTemplate.query(
+                        "SELECT id, price, stock_quantity, in_stock FROM product WHERE id IN (:ids) ORDER BY id FOR UPDATE",
+                        new MapSqlParameterSource("ids", chunk.stream().map(d -> d.id).collect(Collectors.toList())),
+                        rs -> {
+                            current.put(rs.getLong(1), new Object[] {
+                                rs.getObject(2) == null ? null : rs.getDouble(2),
+                                rs.getObject(3) == null ? null : rs.getInt(3),
+                                rs.getObject(4) == null ? null : rs.getBoolean(4) });
+                        });
+                Map<Long, Integer> held = inventoryService.heldUnits(current.keySet());
+                for (ProductDeltaDTO d : chunk) {
+                    Object[] row = current.get(d.id);
+                    if (row == null) {
+                        missing.add(d.id);
+                        continue;
+                    }
+                    StockSyncReportDTO.Change c = new StockSyncReportDTO.Change();
+                    c.id = d.id;
+                    c.oldPrice = (Double) row[0];
+                    c.oldStockQuantity = (Integer) row[1];
+                    c.oldInStock = (Boolean) row[2];
+                    c.newPrice = d.price != null ? d.price : c.oldPrice;
+                    c.newStockQuantity = d.stockQuantity != null
+                            ? InventoryService.onShelf(d.stockQuantity, held, d.id) : c.oldStockQuantity;
+                    // A known quantity decides availability; the flag only matters for untracked stock
+                    if (c.newStockQuantity != null) {
+                        c.newInStock = c.newStockQuantity > 0;
+                    } else {
+                        c.newInStock = d.inStock != null ? d.inStock : c.oldInStock;
+                    }
+                    if (Objects.equals(c.oldPrice, c.newPrice)
+                            && Objects.equals(c.oldStockQuantity, c.newStockQuantity)
+                            && Objects.equals(c.oldInStock, c.newInStock)) {
+                        continue;
+                    }
+                    changes.add(c);
+                }
+                if (!changes.isEmpty()) {
+                    jdbcTemplate.batchUpdate(DELTA_UPDATE_SQL, changes, changes.size(), (ps, c) -> {
+                        if (c.newPrice == null) ps.setNull(1, Types.DOUBLE); else ps.setDouble(1, c.newPrice);
+                        if (c.newStockQuantity == null) ps.setNull(2, Types.INTEGER); else ps.setInt(2, c.newStockQuantity);
+                        if (c.newInStock == null) ps.setNull(3, Types.BOOLEAN); else ps.setBoolean(3, c.newInStock);
+                        ps.setLong(4, c.id);
+                    });
+                }
+            });
+        } catch (RuntimeException e) {
+            logger.warn("Stock sync batch of {} rows failed: {}", chunk.size(), e.getMessage());
+            report.errors.add("Batch of products " + chunk.get(0).id + ".." + chunk.get(chunk.size() - 1).id
+                    + " failed: " + rootMessage(e));
+            return;
+        }
+        report.notFound.addAll(missing);
+        report.updated += changes.size();
+        report.unchanged += chunk.size() - missing.size() - changes.size();
+        report.changes.addAll(changes);
+        for (StockSyncReportDTO.Change c : changes) changedIds.add(c.id);
+    }
+
+    private void acceptRow(Map<String, String> values, ImportReportDTO report, List<ProductRow> chunk,
+                           List<Long> updatedIds) {
+        long rowNumber = ++report.totalRows;
+        try {
+            chunk.add(ProductRow.parse(rowNumber, values));
+        } catch (IllegalArgumentException e) {
+            report.failed++;
+            addError(report, rowNumber, e.getMessage());
+            return;
+        }
+        if (chunk.size() >= batchSize) {
+            writeChunk(chunk, report, updatedIds);
+            chunk.clear();
+        }
+    }
+
+    private void writeChunk(List<ProductRow> chunk, ImportReportDTO report, List<Long> updatedIds) {
+        List<ProductRow> inserts = new ArrayList<>();
+        List<ProductRow> updates = new ArrayList<>();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                Set<Long> requestedIds = chunk.stream()
+                        .filter(r -> r.id != null).map(r -> r.id).collect(Collectors.toSet());
+                // Locked so the holds read below stay put until the rows are written
+                Set<Long> existing = requestedIds.isEmpty() ? Set.of() : new HashSet<>(namedJdbcTemplate.queryForList(
+                        "SELECT id FROM product WHERE id IN (:ids) ORDER BY id FOR UPDATE",
+                        new MapSqlParameterSource("ids", requestedIds), Long.class));
+                for (ProductRow row : chunk) {
+                    if (row.id == null) {
+                        inserts.add(row);
+                    } else if (existing.contains(row.id)) {
+                        updates.add(row);
+                    } else {
+                        report.failed++;
+                        addError(report, row.rowNumber, "Product id " + row.id + " does not exist");
+                    }
+                }
+                if (!inserts.isEmpty()) {
+                    jdbcTemplate.batchUpdate(INSERT_SQL, inserts, inserts.size(), (ps, row) -> row.bind(ps, false, row.stockQuantity));
+                }
+                if (!updates.isEmpty()) {
+                    Map<Long, Integer> held = inventoryService.heldUnits(existing);
+                    jdbcTemplate.batchUpdate(UPDATE_SQL, updates, updates.size(),
+                            (ps, row) -> row.bind(ps, true, InventoryService.onShelf(row.stockQuantity, held, row.id)));
+                }
+            });
+            report.inserted += inserts.size();
+            report.updated += updates.size();
+            for (ProductRow row : updates) updatedIds.add(row.id);
+        } catch (RuntimeException e) {
+            // The whole chunk rolled back; report every row in it so the caller can resubmit them
+            logger.warn("Import batch of {} rows failed: {}", chunk.size(), e.getMessage());
+            for (ProductRow row : inserts) {
+                report.failed++;
+                addError(report, row.rowNumber, "Batch write failed: " + rootMessage(e));
+            }
+            for (ProductRow row : updates) {
+                report.failed++;
+                addError(report, row.rowNumber, "Batch write failed: " + rootMessage(e));
+            }
+        }
+    }
+
+    private void addError(ImportReportDTO report, long row, String message) {
+        if (report.errors.size() < maxReportedErrors) {
+            report.errors.add(new ImportReportDTO.RowError(row, message));
+        } else {
+            report.errorsTruncated = true;
+        }
+    }
+
+    private static String rootMessage(Throwable e) {
+        Throwable t = e;
+        while (t.getCause() != null) t = t.getCause();
+        return t.getMessage();
+    }
+
+    /** One validated import row, with the same limits as the Product entity columns */
+    private static final class ProductRow {
+        long rowNumber;
+        Long id;
+        String name;
+        String description;
+        Double price;
+        Double originalPrice;
+        String category;
+        String subcategory;
+        String imageUrl;
+        String weight;
+        Integer stockQuantity;
+        String ingredients;
+        String benefits;
+        Boolean inStock;
+        boolean isActive;
+
+        static ProductRow parse(long rowNumber, Map<String, String> v) {
+            ProductRow r = new ProductRow();
+            r.rowNumber = rowNumber;
+            r.id = parseLong(v, "id");
+            r.name = text(v, "name", 255);
+            if (r.name == null) throw new IllegalArgumentException("name is required");
+            r.description = text(v, "description", 1000);
+            r.price = parseAmount(v, "price");
+            r.originalPrice = parseAmount(v, "originalPrice");
+            r.category = text(v, "category", 100);
+            r.subcategory = text(v, "subcategory", 100);
+            r.imageUrl = text(v, "imageUrl", 500);
+            r.weight = text(v, "weight", 50);
+            Long stock = parseLong(v, "stockQuantity");
+            if (stock != null && (stock < 0 || stock > Integer.MAX_VALUE)) {
+                throw new IllegalArgumentException("stockQuantity must be between 0 and " + Integer.MAX_VALUE);
+            }
+            r.stockQuantity = stock == null ? null : stock.intValue();
+            r.ingredients = text(v, "ingredients", 1000);
+            r.benefits = text(v, "benefits", 1000);
+            r.inStock = parseBoolean(v, "inStock");
+            if (r.inStock == null && r.stockQuantity != null) r.inStock = r.stockQuantity > 0;
+            Boolean active = parseBoolean(v, "isActive");
+            r.isActive = active == null || active;
+            return r;
+        }
+
+        // stock: the stock_quantity to write, which for updates is net of held units
+        void bind(PreparedStatement ps, boolean withId, Integer stock) throws SQLException {
+            int i = 1;
+            ps.setString(i++, name);
+            setString(ps, i++, description);
+            setDouble(ps, i++, price);
+            setDouble(ps, i++, originalPrice);
+            setString(ps, i++, category);
+            setString(ps, i++, subcategory);
+            setString(ps, i++, imageUrl);
+            setString(ps, i++, weight);
+            if (stock == null) ps.setNull(i++, Types.INTEGER); else ps.setInt(i++, stock);
+            setString(ps, i++, ingredients);
+            setString(ps, i++, benefits);
+            if (inStock == null) ps.setNull(i++, Types.BOOLEAN); else ps.setBoolean(i++, inStock);
+            ps.setBoolean(i++, isActive);
+            if (withId) ps.setLong(i, id);
+        }
+
+        private static void setString(PreparedStatement ps, int index, String value) throws SQLException {
+            if (value == null) ps.setNull(index, Types.VARCHAR); else ps.setString(index, value);
+        }
+
+        private static void setDouble(PreparedStatement ps, int index, Double value) throws SQLException {
+            if (value == null) ps.setNull(index, Types.DOUBLE); else ps.setDouble(index, value);
+        }
+
+        private static String text(Map<String, String> v, String key, int maxLength) {
+            String value = v.get(key);
+            if (value == null || value.trim().isEmpty()) return null;
+            value = value.trim();
+            if (value.length() > maxLength) {
+                throw new IllegalArgumentException(key + " exceeds " + maxLength + " characters");
+            }
+            return value;
+        }
+
+        private static Long parseLong(Map<String, String> v, String key) {
+            String value = v.get(key);
+            if (value == null || value.trim().isEmpty()) return null;
+            try {
+                return Long.parseLong(value.trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException(key + " is not a whole number: " + value);
+            }
+        }
+
+        private static Double parseAmount(Map<String, String> v, String key) {
+            String value = v.get(key);
+            if (value == null || value.trim().isEmpty()) return null;
+            try {
+                double d = Double.parseDouble(value.trim());
+                if (d < 0 || Double.isNaN(d) || Double.isInfinite(d)) {
+                    throw new IllegalArgumentException(key + " must be a non-negative number");
+                }
+                return d;
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException(key + " is not a number: " + value);
+            }
+        }
+
+        private static Boolean parseBoolean(Map<String, String> v, String key) {
+            String value = v.get(key);
+            if (value == null || value.trim().isEmpty()) return null;
+            switch (value.trim().toLowerCase(Locale.ROOT)) {
+                case "true": case "1": case "yes": return Boolean.TRUE;
+                case "false": case "0": case "no": return Boolean.FALSE;
+                default: throw new IllegalArgumentException(key + " is not a boolean: " + value);
+            }
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.eduprajna.service;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.eduprajna.entity.Product;
+import com.eduprajna.event.ProductChangedEvent;
+import com.eduprajna.repository.ProductRepository;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Read-through cache of Product snapshots, keyed by id, plus cached product lists
+ * (the whole catalog and one list per category).
+ *
+ * Cached products are detached copies shared between callers and must be treated as read-only.
+ * For products the inventory ledger covers, the copy's stockQuantity also counts the unsold
+ * units in ledger escrow; reads that bypass the cache take it from shownStock.
+ * Entries are invalidated synchronously on every ProductChangedEvent, and once more when the
+ * surrounding transaction completes so a concurrent reader cannot re-cache pre-commit data.
+ */
+@Service
+public class ProductCatalogCache {
+    private static final Logger logger = LoggerFactory.getLogger(ProductCatalogCache.class);
+
+    private static final String ALL_PRODUCTS_KEY = "*";
+
+    private final ProductRepository productRepository;
+    private final InventoryLedger ledger;
+    private final BoundedCache<Long, Product> byId;
+    private final BoundedCache<String, List<Product>> lists;
+
+    public ProductCatalogCache(ProductRepository productRepository, InventoryLedger ledger,
+                               MeterRegistry meterRegistry,
+                               @Value("${catalog.cache.max-products:10000}") int maxProducts,
+                               @Value("${catalog.cache.max-lists:256}") int maxLists,
+                               @Value("${catalog.cache.ttl-seconds:300}") long ttlSeconds) {
+        this.productRepository = productRepository;
+        this.ledger = ledger;
+        this.byId = new BoundedCache<>(maxProducts, ttlSeconds * 1000);
+        this.lists = new BoundedCache<>(maxLists, ttlSeconds * 1000);
+        registerMetrics(meterRegistry, "product", byId);
+        registerMetrics(meterRegistry, "list", lists);
+    }
+
+    public Optional<Product> findById(Long id) {
+        if (id == null) return Optional.empty();
+        return Optional.ofNullable(byId.get(id, key -> productRepository.findById(key).map(this::snapshot).orElse(null)));
+    }
+
+    public List<Product> findAll() {
+        return lists.get(ALL_PRODUCTS_KEY, key -> snapshots(productRepository.findAll()));
+    }
+
+    public List<Product> findByCategory(String category) {
+        return lists.get("category:" + category, key -> snapshots(productRepository.findByCategory(category)));
+    }
+
+    /**
+     * Stock to show for a product read without this cache
+     * @param stockQuantity product.stock_quantity as read
+     */
+    public Integer shownStock(Long id, Integer stockQuantity) {
+        if (!ledger.covers(id)) return stockQuantity;
+        return findById(id).map(Product::getStockQuantity).orElse(stockQuantity);
+    }
+
+    @EventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        evict(event);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    evict(event);
+                }
+            });
+        }
+    }
+
+    private void evict(ProductChangedEvent event) {
+        if (event.isAllProducts()) {
+            byId.invalidateAll();
+        } else {
+            event.getProductIds().forEach(byId::invalidate);
+        }
+        // A product can move between categories, so every cached list is suspect
+        lists.invalidateAll();
+        logger.debug("Catalog cache invalidated for products {}", event.isAllProducts() ? "*" : event.getProductIds());
+    }
+
+    private List<Product> snapshots(List<Product> products) {
+        Map<Long, Integer> escrowed = escrowedUnits(products);
+        return Collections.unmodifiableList(products.stream()
+                .map(p -> snapshot(p, escrowed))
+                .collect(Collectors.toList()));
+    }
+
+    private Product snapshot(Product p) {
+        return snapshot(p, escrowedUnits(List.of(p)));
+    }
+
+    // Only ledger-covered products can have escrow worth showing, so others skip the query
+    private Map<Long, Integer> escrowedUnits(List<Product> products) {
+        List<Long> ids = products.stream().map(Product::getId).filter(ledger::covers).collect(Collectors.toList());
+        return ids.isEmpty() ? Map.of() : ledger.escrowedUnits(ids);
+    }
+
+    // Copy so the cached value is independent of the persistence context it was loaded in
+    private static Product snapshot(Product p, Map<Long, Integer> escrowed) {
+        Product copy = new Product();
+        copy.setId(p.getId());
+        copy.setName(p.getName());
+        copy.setDescription(p.getDescription());
+        copy.setPrice(p.getPrice());
+        copy.setOriginalPrice(p.getOriginalPrice());
+        copy.setCategory(p.getCategory());
+        copy.setSubcategory(p.getSubcategory());
+        copy.setImageUrl(p.getImageUrl());
+        copy.setWeight(p.getWeight());
+        Integer stock = p.getStockQuantity();
+        copy.setStockQuantity(stock == null ? null : stock + escrowed.getOrDefault(p.getId(), 0));
+        copy.setIngredients(p.getIngredients());
+        copy.setBenefits(p.getBenefits());
+        copy.setInStock(p.getInStock());
+        copy.setIsActive(p.getIsActive());
+        return copy;
+    }
+
+    private static void registerMetrics(MeterRegistry registry, String cacheName, BoundedCache<?, ?> cache) {
+        FunctionCounter.builder("catalog.cache.gets", cache, BoundedCache::hitCount)
+                .tag("cache", cacheName).tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("catalog.cache.gets", cache, BoundedCache::missCount)
+                .tag("cache", cacheName).tag("result", "miss")
+                .register(registry);
+        FunctionCounter.builder("catalog.cache.evictions", cache, BoundedCache::evictionCount)
+                .tag("cache", cacheName)
+                .register(registry);
+        Gauge.builder("catalog.cache.size", cache, BoundedCache::size)
+                .tag("cache", cacheName)
+                .register(registry);
+    }
+}
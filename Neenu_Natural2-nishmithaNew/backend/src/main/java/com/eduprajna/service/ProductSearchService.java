@@ -0,0 +1,432 @@
+package com.eduprajna.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.eduprajna.entity.Product;
+import com.eduprajna.event.ProductChangedEvent;
+import com.eduprajna.repository.ProductRepository;
+
+/**
+ * In-memory full-text search over active products.
+ *
+ * Products get a dense int ordinal; each term keeps a postings list of (ordinal, weighted tf)
+ * in primitive int arrays, appended in ordinal order. Updates tombstone the old ordinal and
+ * append a new one, and the arrays are compacted once tombstones outnumber live documents.
+ * Ranking is BM25 over a single weighted field (name counts 3x, ingredients/benefits 2x,
+ * description 1x). Query terms missing from the dictionary are expanded to dictionary terms
+ * within one edit (insert, delete, substitute or transpose) using a deletion-neighbourhood index.
+ */
+@Service
+public class ProductSearchService {
+    private static final Logger logger = LoggerFactory.getLogger(ProductSearchService.class);
+
+    private static final int NAME_WEIGHT = 3;
+    private static final int ATTRIBUTE_WEIGHT = 2;
+    private static final int DESCRIPTION_WEIGHT = 1;
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+    private static final int MIN_TOKEN_LENGTH = 2;
+    private static final int MIN_FUZZY_LENGTH = 4;
+    private static final float FUZZY_BOOST = 0.6f;
+    private static final Set<String> STOP_WORDS = Set.of(
+        "a", "an", "and", "are", "as", "at", "by", "for", "from", "in", "is", "it", "of", "on", "or", "the", "to", "with");
+
+    /** Growable postings list for one term */
+    private static final class Postings {
+        int[] docs = new int[4];
+        int[] freqs = new int[4];
+        int size;
+        int liveDocFreq;
+
+        void add(int doc, int freq) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                freqs = Arrays.copyOf(freqs, size * 2);
+            }
+            docs[size] = doc;
+            freqs[size] = freq;
+            size++;
+            liveDocFreq++;
+        }
+    }
+
+    /** Reusable per-thread score accumulator so queries do not allocate per document */
+    private static final class ScoreBuffer {
+        float[] scores = new float[0];
+        int[] touched = new int[0];
+        int touchedCount;
+
+        void ensure(int docCapacity) {
+            if (scores.length < docCapacity) {
+                scores = new float[docCapacity];
+                touched = new int[docCapacity];
+            }
+        }
+    }
+
+    private final ProductRepository productRepository;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ThreadLocal<ScoreBuffer> scoreBuffers = ThreadLocal.withInitial(ScoreBuffer::new);
+
+    // Term dictionary
+    private final Map<String, Integer> termIds = new HashMap<>();
+    private final List<String> terms = new ArrayList<>();
+    private final List<Postings> postings = new ArrayList<>();
+    // Deletion variant (or the term itself) -> ids of terms that produce it
+    private final Map<String, int[]> fuzzyIndex = new HashMap<>();
+
+    // Documents, by ordinal
+    private long[] productIds = new long[1024];
+    private int[] docLengths = new int[1024];
+    private int[][] docTermIds = new int[1024][];
+    private BitSet live = new BitSet();
+    private final Map<Long, Integer> ordinals = new HashMap<>();
+    private int docCount;
+    private int liveCount;
+    private long liveLength;
+
+    public ProductSearchService(ProductRepository productRepository) {
+        this.productRepository = productRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildIndex() {
+        long start = System.currentTimeMillis();
+        List<Product> all = productRepository.findAll();
+        lock.writeLock().lock();
+        try {
+            clear();
+            for (Product p : all) {
+                index(p);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.info("Search index built: {} products, {} terms in {} ms",
+                liveCount, terms.size(), System.currentTimeMillis() - start);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        if (event.isAllProducts()) {
+            buildIndex();
+            return;
+        }
+        List<Product> changed = productRepository.findAllById(event.getProductIds());
+        lock.writeLock().lock();
+        try {
+            Set<Long> found = new HashSet<>();
+            for (Product p : changed) {
+                found.add(p.getId());
+                remove(p.getId());
+                index(p);
+            }
+            for (Long id : event.getProductIds()) {
+                if (!found.contains(id)) remove(id);
+            }
+            if (docCount - liveCount > Math.max(1024, liveCount)) {
+                compact();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Rank products against a free-text query
+     * @param query User query; tokenized like the indexed text
+     * @param limit Maximum number of results
+     * @return Product ids, best match first
+     */
+    public List<Long> search(String query, int limit) {
+        List<String> queryTerms = tokenize(query);
+        if (queryTerms.isEmpty() || limit <= 0) return List.of();
+
+        lock.readLock().lock();
+        try {
+            if (liveCount == 0) return List.of();
+            ScoreBuffer buf = scoreBuffers.get();
+            buf.ensure(docCount);
+            buf.touchedCount = 0;
+            float avgLength = (float) liveLength / liveCount;
+
+            for (String term : queryTerms) {
+                Integer exact = termIds.get(term);
+                if (exact != null) {
+                    accumulate(buf, postings.get(exact), 1f, avgLength);
+                } else if (term.length() >= MIN_FUZZY_LENGTH) {
+                    for (int fuzzyId : fuzzyMatches(term)) {
+                        accumulate(buf, postings.get(fuzzyId), FUZZY_BOOST, avgLength);
+                    }
+                }
+            }
+            return topK(buf, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void accumulate(ScoreBuffer buf, Postings list, float boost, float avgLength) {
+        if (list.liveDocFreq == 0) return;
+        float idf = (float) Math.log(1 + (liveCount - list.liveDocFreq + 0.5) / (list.liveDocFreq + 0.5));
+        for (int i = 0; i < list.size; i++) {
+            int doc = list.docs[i];
+            if (!live.get(doc)) continue;
+            float tf = list.freqs[i];
+            float norm = K1 * (1 - B + B * docLengths[doc] / avgLength);
+            if (buf.scores[doc] == 0f) {
+                buf.touched[buf.touchedCount++] = doc;
+            }
+            buf.scores[doc] += boost * idf * (tf * (K1 + 1)) / (tf + norm);
+        }
+    }
+
+    // Small insertion-sorted selection; limit is a page size so this stays cheap
+    private List<Long> topK(ScoreBuffer buf, int limit) {
+        int k = Math.min(limit, buf.touchedCount);
+        int[] best = new int[k];
+        int filled = 0;
+        for (int t = 0; t < buf.touchedCount; t++) {
+            int doc = buf.touched[t];
+            float score = buf.scores[doc];
+            if (filled == k && score <= buf.scores[best[k - 1]]) continue;
+            int pos = filled < k ? filled++ : k - 1;
+            while (pos > 0 && buf.scores[best[pos - 1]] < score) {
+                best[pos] = best[pos - 1];
+                pos--;
+            }
+            best[pos] = doc;
+        }
+        List<Long> result = new ArrayList<>(filled);
+        for (int i = 0; i < filled; i++) {
+            result.add(productIds[best[i]]);
+        }
+        for (int t = 0; t < buf.touchedCount; t++) {
+            buf.scores[buf.touched[t]] = 0f;
+        }
+        return result;
+    }
+
+    private Set<Integer> fuzzyMatches(String term) {
+        Set<Integer> candidates = new HashSet<>();
+        addCandidates(candidates, fuzzyIndex.get(term));
+        for (String variant : deletionVariants(term)) {
+            addCandidates(candidates, fuzzyIndex.get(variant));
+        }
+        candidates.removeIf(id -> !withinOneEdit(term, terms.get(id)));
+        return candidates;
+    }
+
+    private static void addCandidates(Set<Integer> into, int[] ids) {
+        if (ids == null) return;
+        for (int id : ids) into.add(id);
+    }
+
+    // ---- index maintenance (callers hold the write lock) ----
+
+    private void index(Product p) {
+        if (p.getId() == null || Boolean.FALSE.equals(p.getIsActive())) return;
+
+        Map<String, Integer> freqs = new HashMap<>();
+        addField(freqs, p.getName(), NAME_WEIGHT);
+        addField(freqs, p.getDescription(), DESCRIPTION_WEIGHT);
+        addListField(freqs, p.getIngredients(), ATTRIBUTE_WEIGHT);
+        addListField(freqs, p.getBenefits(), ATTRIBUTE_WEIGHT);
+        if (freqs.isEmpty()) return;
+
+        int doc = docCount++;
+        ensureDocCapacity(docCount);
+        int length = 0;
+        int[] docTerms = new int[freqs.size()];
+        int n = 0;
+        for (Map.Entry<String, Integer> e : freqs.entrySet()) {
+            int termId = termId(e.getKey());
+            postings.get(termId).add(doc, e.getValue());
+            docTerms[n++] = termId;
+            length += e.getValue();
+        }
+        productIds[doc] = p.getId();
+        docLengths[doc] = length;
+        docTermIds[doc] = docTerms;
+        live.set(doc);
+        ordinals.put(p.getId(), doc);
+        liveCount++;
+        liveLength += length;
+    }
+
+    private void remove(Long productId) {
+        Integer doc = ordinals.remove(productId);
+        if (doc == null) return;
+        live.clear(doc);
+        liveCount--;
+        liveLength -= docLengths[doc];
+        for (int termId : docTermIds[doc]) {
+            postings.get(termId).liveDocFreq--;
+        }
+        docTermIds[doc] = null;
+    }
+
+    private int termId(String term) {
+        Integer id = termIds.get(term);
+        if (id != null) return id;
+        int newId = terms.size();
+        termIds.put(term, newId);
+        terms.add(term);
+        postings.add(new Postings());
+        if (term.length() >= MIN_FUZZY_LENGTH) {
+            addFuzzyKey(term, newId);
+            for (String variant : deletionVariants(term)) {
+                addFuzzyKey(variant, newId);
+            }
+        }
+        return newId;
+    }
+
+    private void addFuzzyKey(String key, int termId) {
+        int[] existing = fuzzyIndex.get(key);
+        if (existing == null) {
+            fuzzyIndex.put(key, new int[] { termId });
+        } else {
+            int[] grown = Arrays.copyOf(existing, existing.length + 1);
+            grown[existing.length] = termId;
+            fuzzyIndex.put(key, grown);
+        }
+    }
+
+    // Drop tombstoned ordinals and renumber the live ones; term ids stay stable
+    private void compact() {
+        int[] remap = new int[docCount];
+        int next = 0;
+        for (int doc = 0; doc < docCount; doc++) {
+            remap[doc] = live.get(doc) ? next++ : -1;
+        }
+        for (Postings list : postings) {
+            int kept = 0;
+            for (int i = 0; i < list.size; i++) {
+                int mapped = remap[list.docs[i]];
+                if (mapped < 0) continue;
+                list.docs[kept] = mapped;
+                list.freqs[kept] = list.freqs[i];
+                kept++;
+            }
+            list.size = kept;
+        }
+        long[] newIds = new long[Math.max(1024, next)];
+        int[] newLengths = new int[newIds.length];
+        int[][] newDocTerms = new int[newIds.length][];
+        BitSet newLive = new BitSet(next);
+        for (int doc = 0; doc < docCount; doc++) {
+            int mapped = remap[doc];
+            if (mapped < 0) continue;
+            newIds[mapped] = productIds[doc];
+            newLengths[mapped] = docLengths[doc];
+            newDocTerms[mapped] = docTermIds[doc];
+            newLive.set(mapped);
+            ordinals.put(productIds[doc], mapped);
+        }
+        productIds = newIds;
+        docLengths = newLengths;
+        docTermIds = newDocTerms;
+        live = newLive;
+        docCount = next;
+        logger.debug("Search index compacted to {} documents", next);
+    }
+
+    private void ensureDocCapacity(int capacity) {
+        if (capacity <= productIds.length) return;
+        int grown = Math.max(capacity, productIds.length * 2);
+        productIds = Arrays.copyOf(productIds, grown);
+        docLengths = Arrays.copyOf(docLengths, grown);
+        docTermIds = Arrays.copyOf(docTermIds, grown);
+    }
+
+    private void clear() {
+        termIds.clear();
+        terms.clear();
+        postings.clear();
+        fuzzyIndex.clear();
+        ordinals.clear();
+        productIds = new long[1024];
+        docLengths = new int[1024];
+        docTermIds = new int[1024][];
+        live = new BitSet();
+        docCount = 0;
+        liveCount = 0;
+        liveLength = 0;
+    }
+
+    // ---- analysis ----
+
+    private static void addField(Map<String, Integer> freqs, String text, int weight) {
+        for (String token : tokenize(text)) {
+            freqs.merge(token, weight, Integer::sum);
+        }
+    }
+
+    // Ingredients and benefits are comma-separated lists ("Turmeric, Aloe Vera, Neem")
+    private static void addListField(Map<String, Integer> freqs, String text, int weight) {
+        if (text == null) return;
+        for (String item : text.split(",")) {
+            addField(freqs, item, weight);
+        }
+    }
+
+    static List<String> tokenize(String text) {
+        if (text == null || text.isEmpty()) return List.of();
+        List<String> tokens = new ArrayList<>();
+        String lower = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= lower.length(); i++) {
+            boolean wordChar = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                String token = lower.substring(start, i);
+                if (token.length() >= MIN_TOKEN_LENGTH && !STOP_WORDS.contains(token)) {
+                    tokens.add(token);
+                }
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    private static List<String> deletionVariants(String term) {
+        List<String> variants = new ArrayList<>(term.length());
+        for (int i = 0; i < term.length(); i++) {
+            variants.add(term.substring(0, i) + term.substring(i + 1));
+        }
+        return variants;
+    }
+
+    // Optimal string alignment distance <= 1 (one insert, delete, substitution or adjacent swap)
+    private static boolean withinOneEdit(String a, String b) {
+        int la = a.length(), lb = b.length();
+        if (Math.abs(la - lb) > 1) return false;
+        int i = 0;
+        while (i < Math.min(la, lb) && a.charAt(i) == b.charAt(i)) i++;
+        if (i == la && i == lb) return true;
+        if (la == lb) {
+            if (a.regionMatches(i + 1, b, i + 1, la - i - 1)) return true;
+            return i + 1 < la && a.charAt(i) == b.charAt(i + 1) && a.charAt(i + 1) == b.charAt(i)
+                    && a.regionMatches(i + 2, b, i + 2, la - i - 2);
+        }
+        return la > lb ? a.regionMatches(i + 1, b, i, lb - i) : b.regionMatches(i + 1, a, i, la - i);
+    }
+}
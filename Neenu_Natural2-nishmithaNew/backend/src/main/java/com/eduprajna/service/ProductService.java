@@ -1,12 +1,18 @@
 package com.eduprajna.service;
 
 import java.util.List;
+import java.util.Map;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.eduprajna.dto.CatalogFilter;
+import com.eduprajna.dto.CatalogPageDTO;
+import com.eduprajna.dto.ProductSummaryDTO;
 import com.eduprajna.entity.Product;
+import com.eduprajna.event.ProductChangedEvent;
 import com.eduprajna.repository.CartItemRepository;
 import com.eduprajna.repository.OrderItemRepository;
 import com.eduprajna.repository.ProductRepository;
@@ -26,10 +32,56 @@ public class ProductService {
     
     @Autowired
     private WishlistItemRepository wishlistItemRepository;
+
+    @Autowired
+    private ProductCatalogCache catalogCache;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private ProductAttributeService attributeService;
+
+    @Autowired
+    private CategoryService categoryService;
+
+    @Autowired
+    private ImageReferenceService imageReferenceService;
+
+    @Autowired
+    private InventoryService inventoryService;
     
-    public List<Product> getAll() { return productRepository.findAll(); }
-    public Product save(Product p) { return productRepository.save(p); }
+    public List<Product> getAll() { return catalogCache.findAll(); }
+    public List<Product> getByCategory(String category) { return catalogCache.findByCategory(category); }
+
+    @Transactional
+    public Product save(Product p) {
+        if (p.getId() != null) applyStockCount(p);
+        attributeService.syncAttributes(List.of(p));
+        p.setCategoryRef(categoryService.resolveOrCreate(p.getCategory(), p.getSubcategory()));
+        String previousImageUrl = p.getId() != null ? productRepository.findImageUrlById(p.getId()) : null;
+        Product saved = productRepository.save(p);
+        imageReferenceService.replace(previousImageUrl, saved.getImageUrl());
+        eventPublisher.publishEvent(ProductChangedEvent.of(saved.getId()));
+        return saved;
+    }
     
+    /**
+     * A stock figure the admin typed in is a count of units on hand, so units held for carts
+     * come off it. One left as the form showed it keeps the current row value.
+     */
+    private void applyStockCount(Product p) {
+        Integer current = productRepository.lockStockQuantity(p.getId());
+        Integer entered = p.getStockQuantity();
+        if (entered == null || current == null) return;
+        if (entered.equals(current) || entered.equals(catalogCache.shownStock(p.getId(), current))) {
+            p.setStockQuantity(current);
+            return;
+        }
+        Map<Long, Integer> held = inventoryService.heldUnits(List.of(p.getId()));
+        p.setStockQuantity(InventoryService.onShelf(entered, held, p.getId()));
+    }
+
     @Transactional
     public void delete(Long id) { 
         // First find the product
@@ -42,9 +94,33 @@ public class ProductService {
             
             // Now delete the product itself
             productRepository.deleteById(id);
+            // Removes the image file too once no other product uses it
+            imageReferenceService.release(product.getImageUrl());
+            eventPublisher.publishEvent(ProductChangedEvent.of(id));
         }
     }
     
-    public Product getById(Long id) { return productRepository.findById(id).orElse(null); }
+    public Product getById(Long id) { return catalogCache.findById(id).orElse(null); }
+
+    /**
+     * Read one keyset page of the catalog.
+     * Cost depends only on the page size, not on how deep into the catalog the cursor is.
+     */
+    @Transactional(readOnly = true)
+    public CatalogPageDTO getCatalogPage(CatalogFilter filter) {
+        List<ProductSummaryDTO> rows = productRepository.findCatalogPage(filter);
+        CatalogPageDTO page = new CatalogPageDTO();
+        page.hasMore = rows.size() > filter.limit;
+        page.items = page.hasMore ? rows.subList(0, filter.limit) : rows;
+        page.items.forEach(item -> item.stockQuantity = catalogCache.shownStock(item.id, item.stockQuantity));
+        if (page.hasMore) {
+            ProductSummaryDTO last = page.items.get(page.items.size() - 1);
+            page.nextAfterId = last.id;
+            if (!CatalogFilter.SORT_ID.equals(filter.sort)) {
+                page.nextAfterPrice = last.price;
+            }
+        }
+        return page;
+    }
     
 }
\ No newline at end of file
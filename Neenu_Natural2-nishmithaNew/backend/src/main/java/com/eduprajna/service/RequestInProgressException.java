@@ -0,0 +1,13 @@
+package com.eduprajna.service;
+
+/**
+ * A repeat of an idempotent request arrived while the first run was still going, and it did
+ * not finish within the wait time
+ */
+public class RequestInProgressException extends IllegalStateException {
+    private static final long serialVersionUID = 1L;
+
+    public RequestInProgressException() {
+        super("A request with this Idempotency-Key is still in progress");
+    }
+}
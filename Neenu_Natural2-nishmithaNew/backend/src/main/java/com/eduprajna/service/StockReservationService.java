@@ -0,0 +1,274 @@
+package com.eduprajna.service;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.eduprajna.dto.CartItemDTO;
+import com.eduprajna.entity.User;
+import com.eduprajna.event.ProductChangedEvent;
+
+/**
+ * Time-limited stock reservations from checkout review to order placement.
+ *
+ * POST /api/checkout/reserve takes the cart's stock with the usual guarded decrement and
+ * records it in stock_reservations, so the units disappear from the catalog's available stock
+ * at once and nobody else can buy them while the customer decides. The customer's own cart
+ * still counts them: its stock checks join stock_reservations, and the write-behind cart store
+ * is told of every change (CartWriteBehindStore.setHeld). Placing the order keeps the reserved units (only differences
+ * against the cart are decremented or given back); otherwise they are given back when the
+ * reservation expires.
+ *
+ * Expiry is driven by an in-memory hashed timing wheel keyed by user, not by polling the
+ * table: the wheel is filled from the table at startup and advanced once per tick. Releasing
+ * is guarded by expires_at under a lock on the user row, so a reservation extended meanwhile,
+ * or released by another node, is left alone. Reservations made on a node that has gone away
+ * are in no wheel; a low-frequency sweep releases whatever is overdue.
+ */
+@Service
+public class StockReservationService {
+    private static final Logger logger = LoggerFactory.getLogger(StockReservationService.class);
+
+    private static final long RETRY_MS = 60_000;
+    // How long past its deadline a reservation must be before the sweep takes it on; the
+    // wheel of the node that made it normally releases it well before
+    private static final long SWEEP_GRACE_MS = 2 * RETRY_MS;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final InventoryService inventoryService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CartWriteBehindStore memoryStore;
+    private final long ttlMs;
+    private final HashedTimingWheel<Long> wheel;
+
+    public StockReservationService(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                                   InventoryService inventoryService, ApplicationEventPublisher eventPublisher,
+                                   CartWriteBehindStore memoryStore,
+                                   @Value("${checkout.reservation.ttl-seconds:600}") long ttlSeconds,
+                                   @Value("${checkout.reservation.tick-ms:1000}") long tickMs,
+                                   @Value("${checkout.reservation.wheel-size:512}") int wheelSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.inventoryService = inventoryService;
+        this.eventPublisher = eventPublisher;
+        this.memoryStore = memoryStore;
+        this.ttlMs = ttlSeconds * 1000L;
+        this.wheel = new HashedTimingWheel<>(tickMs, wheelSize, System.currentTimeMillis());
+    }
+
+    /**
+     * Hold the stock for the given cart lines, replacing (and extending) the user's previous
+     * reservation; only the differences touch the product rows
+     * @return When the reservation lapses
+     * @throws IllegalStateException when a product does not have enough stock; nothing is held then
+     */
+    public Instant reserve(User user, List<CartItemDTO> items) {
+        Map<Long, Integer> wanted = new HashMap<>();
+        Map<Long, String> names = new HashMap<>();
+        for (CartItemDTO item : items) {
+            wanted.merge(item.productId, item.quantity != null ? item.quantity : 0, Integer::sum);
+            names.put(item.productId, item.name);
+        }
+        Instant expiresAt = Instant.now().plusMillis(ttlMs);
+        transactionTemplate.executeWithoutResult(status -> {
+            lockUser(user.getId());
+            Map<Long, Integer> held = findHeld(user.getId());
+            List<Long> failed = adjust(held, wanted);
+            if (!failed.isEmpty()) {
+                throw new IllegalStateException("Insufficient stock for product: "
+                        + failed.stream().map(names::get).collect(Collectors.joining(", ")));
+            }
+
+            List<Object[]> updates = new ArrayList<>();
+            List<Object[]> inserts = new ArrayList<>();
+            List<Object[]> deletes = new ArrayList<>();
+            Timestamp until = Timestamp.from(expiresAt);
+            for (Map.Entry<Long, Integer> e : wanted.entrySet()) {
+                Object[] row = { e.getValue(), until, user.getId(), e.getKey() };
+                (held.containsKey(e.getKey()) ? updates : inserts).add(row);
+            }
+            for (Long productId : held.keySet()) {
+                if (!wanted.containsKey(productId)) deletes.add(new Object[] { user.getId(), productId });
+            }
+            if (!updates.isEmpty()) {
+                jdbcTemplate.batchUpdate("UPDATE stock_reservations SET quantity = ?, expires_at = ? WHERE user_id = ? AND product_id = ?", updates);
+            }
+            if (!inserts.isEmpty()) {
+                jdbcTemplate.batchUpdate("INSERT INTO stock_reservations (quantity, expires_at, user_id, product_id) VALUES (?, ?, ?, ?)", inserts);
+            }
+            if (!deletes.isEmpty()) {
+                jdbcTemplate.batchUpdate("DELETE FROM stock_reservations WHERE user_id = ? AND product_id = ?", deletes);
+            }
+        });
+        memoryStore.setHeld(user.getId(), wanted);
+        wheel.schedule(user.getId(), expiresAt.toEpochMilli());
+        return expiresAt;
+    }
+
+    /**
+     * Turn the user's reservation into the order's stock decrement. Runs inside the order
+     * transaction: if the order rolls back, the reservation is still there and expires as usual.
+     * @param quantities productId -> quantity of the order, repeated products already summed
+     * @return Ids whose stock was insufficient beyond what was reserved; empty on success
+     */
+    public List<Long> consume(User user, Map<Long, Integer> quantities) {
+        lockUser(user.getId());
+        Map<Long, Integer> held = findHeld(user.getId());
+        List<Long> failed = adjust(held, quantities);
+        if (!failed.isEmpty()) return failed;
+        if (!held.isEmpty()) {
+            jdbcTemplate.update("DELETE FROM stock_reservations WHERE user_id = ?", user.getId());
+        }
+
+        Long userId = user.getId();
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            wheel.cancel(userId);
+            memoryStore.setHeld(userId, Map.of());
+            return failed;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                wheel.cancel(userId);
+                memoryStore.setHeld(userId, Map.of());
+            }
+        });
+        return failed;
+    }
+
+    @Scheduled(fixedDelayString = "${checkout.reservation.tick-ms:1000}")
+    public void releaseExpired() {
+        for (Long userId : wheel.advance(System.currentTimeMillis())) {
+            try {
+                release(userId);
+            } catch (RuntimeException e) {
+                logger.warn("Could not release stock reservation of user {}, will retry: {}", userId, e.getMessage());
+                wheel.schedule(userId, System.currentTimeMillis() + RETRY_MS);
+            }
+        }
+    }
+
+    /**
+     * Releases reservations that are overdue but in no wheel, e.g. made by a node that has
+     * since gone away. Releasing is idempotent, so nodes sweeping at once do no harm.
+     */
+    @Scheduled(fixedDelayString = "${checkout.reservation.sweep-ms:300000}",
+               initialDelayString = "${checkout.reservation.sweep-ms:300000}")
+    public void sweepOverdue() {
+        List<Long> userIds = jdbcTemplate.queryForList(
+                "SELECT DISTINCT user_id FROM stock_reservations WHERE expires_at < ?", Long.class,
+                Timestamp.from(Instant.now().minusMillis(SWEEP_GRACE_MS)));
+        for (Long userId : userIds) {
+            try {
+                release(userId);
+            } catch (RuntimeException e) {
+                logger.warn("Could not release overdue stock reservation of user {}, will retry: {}", userId, e.getMessage());
+            }
+        }
+        if (!userIds.isEmpty()) logger.info("Released overdue stock reservations of {} users", userIds.size());
+    }
+
+    // Reservations left by a previous run (or other nodes) get a place in this node's wheel;
+    // ones already past their deadline are released on the first tick
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadReservations() {
+        List<Object[]> rows = jdbcTemplate.query(
+                "SELECT user_id, MIN(expires_at) FROM stock_reservations GROUP BY user_id",
+                (rs, i) -> new Object[] { rs.getLong(1), rs.getTimestamp(2) });
+        for (Object[] row : rows) {
+            wheel.schedule((Long) row[0], ((Timestamp) row[1]).getTime());
+        }
+        if (!rows.isEmpty()) logger.info("Tracking stock reservations of {} users", rows.size());
+    }
+
+    private void release(Long userId) {
+        Map<Long, Integer> remaining = transactionTemplate.execute(status -> {
+            lockUser(userId);
+            Timestamp now = Timestamp.from(Instant.now());
+            Map<Long, Integer> expired = new HashMap<>();
+            Map<Long, Integer> kept = new HashMap<>();
+            Timestamp next = null;
+            for (Object[] row : jdbcTemplate.query(
+                    "SELECT product_id, quantity, expires_at FROM stock_reservations WHERE user_id = ?",
+                    (rs, i) -> new Object[] { rs.getLong(1), rs.getInt(2), rs.getTimestamp(3) }, userId)) {
+                Timestamp until = (Timestamp) row[2];
+                if (!until.after(now)) {
+                    expired.put((Long) row[0], (Integer) row[1]);
+                } else {
+                    kept.put((Long) row[0], (Integer) row[1]);
+                    if (next == null || until.before(next)) next = until;
+                }
+            }
+            if (!expired.isEmpty()) {
+                inventoryService.restoreStock(expired);
+                jdbcTemplate.update("DELETE FROM stock_reservations WHERE user_id = ? AND expires_at <= ?", userId, now);
+                eventPublisher.publishEvent(ProductChangedEvent.stockOf(expired.keySet()));
+                logger.debug("Released expired stock reservation of user {} ({} products)", userId, expired.size());
+            }
+            // Extended in the meantime (possibly by another node): wait for the new deadline
+            if (next != null) wheel.schedule(userId, next.getTime());
+            return kept;
+        });
+        if (remaining != null) memoryStore.setHeld(userId, remaining);
+    }
+
+    /**
+     * Move the product rows from what is held to what is wanted: extra units are taken with
+     * the guarded decrement, surplus units are given back
+     * @return Ids short of stock; nothing was given back then, and the caller must roll back
+     */
+    private List<Long> adjust(Map<Long, Integer> held, Map<Long, Integer> wanted) {
+        Map<Long, Integer> more = new HashMap<>();
+        Map<Long, Integer> less = new HashMap<>();
+        Set<Long> ids = new HashSet<>(held.keySet());
+        ids.addAll(wanted.keySet());
+        for (Long id : ids) {
+            int diff = wanted.getOrDefault(id, 0) - held.getOrDefault(id, 0);
+            if (diff > 0) more.put(id, diff);
+            else if (diff < 0) less.put(id, -diff);
+        }
+        if (!more.isEmpty()) {
+            List<Long> failed = inventoryService.decrementStock(more);
+            if (!failed.isEmpty()) return failed;
+        }
+        if (!less.isEmpty()) inventoryService.restoreStock(less);
+        if (!more.isEmpty() || !less.isEmpty()) {
+            Set<Long> changed = new HashSet<>(more.keySet());
+            changed.addAll(less.keySet());
+            eventPublisher.publishEvent(ProductChangedEvent.stockOf(changed));
+        }
+        return List.of();
+    }
+
+    // Serializes reserve, consume and release for one user
+    private void lockUser(Long userId) {
+        jdbcTemplate.queryForList("SELECT id FROM users WHERE id = ? FOR UPDATE", Long.class, userId);
+    }
+
+    private Map<Long, Integer> findHeld(Long userId) {
+        Map<Long, Integer> held = new HashMap<>();
+        jdbcTemplate.query("SELECT product_id, quantity FROM stock_reservations WHERE user_id = ?",
+                rs -> { held.put(rs.getLong(1), rs.getInt(2)); }, userId);
+        return held;
+    }
+}
@@ -1,83 +1,160 @@
 package com.eduprajna.service;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.ArrayList;
-import java.util.List;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.regex.Pattern;
 
-import org.springframework.core.io.InputStreamResource;
-import org.springframework.core.io.Resource;
-import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 import org.springframework.web.multipart.MultipartFile;
 
+/**
+ * Image files on local disk.
+ *
+ * New uploads are content-addressed: the name is the SHA-256 of the bytes plus the original
+ * extension, so re-uploading an image yields the same file and the same URL, and a URL's
+ * content can never change. Files live in two levels of shard directories taken from the
+ * hash (ab/cd/abcd...) while the URL keeps the flat name. Older uploads named
+ * {millis}_{originalName} stay in the root directory and are still served.
+ */
 @Service
 public class StorageService {
     // This should match the value in application.properties
     private static final String UPLOAD_DIR = "C:/Users/nishm/uploads";
 
+    public static final String IMAGE_URL_PREFIX = "/admin/products/images/";
+    private static final Pattern CONTENT_ADDRESSED = Pattern.compile("[0-9a-f]{64}(\\.[a-z0-9]{1,5})?");
+    private static final Pattern EXTENSION = Pattern.compile("[a-z0-9]{1,5}");
+    // Off-heap copy buffer, one per request thread, so large uploads never pass through the heap in one piece
+    private static final ThreadLocal<ByteBuffer> TRANSFER_BUFFER =
+            ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(64 * 1024));
+
     public String store(MultipartFile file) throws IOException {
-        String filename = System.currentTimeMillis() + "_" + StringUtils.cleanPath(file.getOriginalFilename());
-        File dir = new File(UPLOAD_DIR);
-        if (!dir.exists()) dir.mkdirs();
-        File dest = new File(dir, filename); // Always use the upload dir
-        file.transferTo(dest);
-        // Return an API-served relative path for DB so frontend can fetch via baseURL
-        return "/admin/products/images/" + filename; // served by ProductController
+        try (InputStream in = file.getInputStream()) {
+            return store(in, file.getOriginalFilename(), Long.MAX_VALUE);
+        }
     }
 
-    public Resource loadAsResource(String filename) throws IOException {
-        Path filePath = Paths.get(UPLOAD_DIR).resolve(filename).normalize();
-        if (!Files.exists(filePath)) {
-            throw new IOException("File not found: " + filename);
-        }
-        return new InputStreamResource(new FileInputStream(filePath.toFile())) {
-            @Override
-            public String getFilename() {
-                return filePath.getFileName().toString();
+    /**
+     * Stream an upload to disk, hashing it on the way, and move it to its content-addressed name
+     * @return API-served relative URL of the stored file
+     * @throws UploadTooLargeException when more than maxBytes arrive (nothing is kept)
+     */
+    public String store(InputStream in, String originalName, long maxBytes) throws IOException {
+        Path root = getUploadRoot();
+        Files.createDirectories(root);
+        Path tmp = Files.createTempFile(root, ".upload-", ".tmp");
+        try {
+            // Hash while copying so the bytes are read only once
+            MessageDigest digest = sha256();
+            try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                transfer(in, out, digest, maxBytes);
             }
+            String filename = HexFormat.of().formatHex(digest.digest()) + extensionOf(originalName);
+            moveIntoPlace(tmp, filename);
+            // Return an API-served relative path for DB so frontend can fetch via baseURL
+            return IMAGE_URL_PREFIX + filename; // served by ProductController
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
 
-            @Override
-            public long contentLength() throws IOException {
-                return Files.size(filePath);
-            }
-        };
+    /**
+     * Copy in to out through a per-thread direct buffer, feeding the digest with the same bytes.
+     * The input stream is not closed.
+     * @return Bytes copied
+     */
+    static long transfer(InputStream in, FileChannel out, MessageDigest digest, long maxBytes) throws IOException {
+        ReadableByteChannel src = Channels.newChannel(in);
+        ByteBuffer buffer = TRANSFER_BUFFER.get();
+        long total = 0;
+        buffer.clear();
+        while (src.read(buffer) >= 0) {
+            buffer.flip();
+            total += buffer.remaining();
+            if (total > maxBytes) throw new UploadTooLargeException("File", maxBytes);
+            int start = buffer.position();
+            digest.update(buffer);
+            buffer.position(start);
+            while (buffer.hasRemaining()) out.write(buffer);
+            buffer.clear();
+        }
+        return total;
     }
 
-    public MediaType probeMediaType(String filename) {
+    /**
+     * Move a fully written temp file to its content-addressed location. If identical content
+     * is already stored the temp file is simply dropped, and the stored file's modification
+     * time is refreshed so the image GC treats it as a fresh upload within its grace period.
+     */
+    void moveIntoPlace(Path tmp, String filename) throws IOException {
+        Path target = resolvePath(filename);
+        if (Files.exists(target) && touch(target)) return;
+        Files.createDirectories(target.getParent());
         try {
-            Path filePath = Paths.get(UPLOAD_DIR).resolve(filename).normalize();
-            String type = Files.probeContentType(filePath);
-            if (type != null) return MediaType.parseMediaType(type);
-        } catch (Exception ignored) {}
-        return MediaType.APPLICATION_OCTET_STREAM;
+            Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileAlreadyExistsException e) {
+            // A concurrent upload of the same bytes won the race; the content is identical
+            touch(target);
+        }
     }
 
-    public List<String> listAll() {
-        List<String> files = new ArrayList<>();
-        File dir = new File(UPLOAD_DIR);
-        if (dir.exists() && dir.isDirectory()) {
-            File[] list = dir.listFiles();
-            if (list != null) {
-                for (File f : list) {
-                    if (f.isFile()) {
-                        files.add(f.getName());
-                    }
-                }
-            }
+    // false when the file is gone (swept by the GC meanwhile)
+    private static boolean touch(Path file) throws IOException {
+        try {
+            Files.setLastModifiedTime(file, FileTime.from(Instant.now()));
+            return true;
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+    }
+
+    public Path getUploadRoot() {
+        return Paths.get(UPLOAD_DIR);
+    }
+
+    /**
+     * Location of a stored file: sharded for content-addressed names, root directory for older uploads
+     */
+    public Path resolvePath(String filename) {
+        Path root = Paths.get(UPLOAD_DIR);
+        if (isContentAddressed(filename)) {
+            return shardDir(root, filename).resolve(filename);
         }
-        return files;
+        return root.resolve(filename).normalize();
+    }
+
+    /** ab/cd below base for a content-addressed name */
+    public static Path shardDir(Path base, String filename) {
+        return base.resolve(filename.substring(0, 2)).resolve(filename.substring(2, 4));
+    }
+
+    public static boolean isContentAddressed(String filename) {
+        return filename != null && CONTENT_ADDRESSED.matcher(filename).matches();
     }
 
     // Delete a stored file by its filename, returns true if deleted or not present
     public boolean delete(String filename) {
         if (filename == null || filename.isEmpty()) return false;
-        File f = Paths.get(UPLOAD_DIR).resolve(filename).normalize().toFile();
+        File f = resolvePath(filename).toFile();
         if (!f.exists()) return true; // already gone
         return f.delete();
     }
@@ -89,4 +166,21 @@ public class StorageService {
         if (idx <= 0 || idx >= url.length()) return null;
         return url.substring(idx);
     }
+
+    static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // ".jpg" style suffix from the client's file name, or "" when it is missing or unusual
+    static String extensionOf(String originalName) {
+        String ext = StringUtils.getFilenameExtension(StringUtils.cleanPath(originalName == null ? "" : originalName));
+        if (ext == null) return "";
+        ext = ext.toLowerCase(Locale.ROOT);
+        if ("jpeg".equals(ext)) ext = "jpg";
+        return EXTENSION.matcher(ext).matches() ? "." + ext : "";
+    }
 }
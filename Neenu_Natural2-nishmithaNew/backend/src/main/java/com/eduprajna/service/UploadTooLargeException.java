@@ -0,0 +1,21 @@
+package com.eduprajna.service;
+
+import java.io.IOException;
+
+/**
+ * An upload went past the configured per-file or per-request size limit
+ */
+public class UploadTooLargeException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    private final long limit;
+
+    public UploadTooLargeException(String what, long limit) {
+        super(what + " exceeds the limit of " + limit + " bytes");
+        this.limit = limit;
+    }
+
+    public long getLimit() {
+        return limit;
+    }
+}
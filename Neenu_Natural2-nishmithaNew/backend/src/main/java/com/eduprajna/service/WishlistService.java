@@ -20,9 +20,13 @@ public class WishlistService {
     private final WishlistItemRepository wishlistRepo;
     private final ProductRepository productRepo;
 
-    public WishlistService(WishlistItemRepository wishlistRepo, ProductRepository productRepo) {
+    private final ProductCatalogCache catalogCache;
+
+    public WishlistService(WishlistItemRepository wishlistRepo, ProductRepository productRepo,
+                           ProductCatalogCache catalogCache) {
         this.wishlistRepo = wishlistRepo;
         this.productRepo = productRepo;
+        this.catalogCache = catalogCache;
     }
 
     public List<WishlistItemDTO> getWishlist(User user) {
@@ -33,7 +37,7 @@ public class WishlistService {
     }
 
     public WishlistItemDTO addToWishlist(User user, Long productId) {
-        Product product = productRepo.findById(productId).orElseThrow();
+        Product product = catalogCache.findById(productId).orElseThrow();
         WishlistItem item = wishlistRepo.findByUserAndProduct(user, product).orElseGet(() -> {
             WishlistItem wi = new WishlistItem();
             wi.setUser(user);
@@ -73,7 +77,7 @@ public class WishlistService {
         dto.productPrice = p.getPrice();
         dto.createdAt = item.getCreatedAt();
         // Stock flags: if explicit inStock=false, respect; if stockQuantity provided and <=0, false; if null, treat as available
-        Integer stockQty = p.getStockQuantity();
+        Integer stockQty = catalogCache.shownStock(p.getId(), p.getStockQuantity());
         Boolean explicit = p.getInStock();
         dto.stockQuantity = stockQty;
         dto.inStock = (explicit != null) ? explicit : (stockQty == null || stockQty > 0);
@@ -0,0 +1,61 @@
+package com.eduprajna.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.eduprajna.dto.CartItemDTO;
+import com.eduprajna.entity.CartItem;
+import com.eduprajna.entity.Product;
+import com.eduprajna.entity.User;
+
+import jakarta.persistence.EntityManager;
+
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Transactional
+class CartViewQueryCountTests {
+
+	@Autowired
+	private CartService cartService;
+
+	@Autowired
+	private EntityManager em;
+
+	@Test
+	void cartViewIsOneStatementRegardlessOfCartSize() {
+		assertEquals(1, statementsForCartOf(1));
+		assertEquals(1, statementsForCartOf(12));
+	}
+
+	private long statementsForCartOf(int lines) {
+		User user = new User("Query Count", "query-count-" + System.nanoTime() + "@example.com", "x", null);
+		em.persist(user);
+		for (int i = 0; i < lines; i++) {
+			Product product = new Product();
+			product.setName("Query count product " + i);
+			product.setPrice(10.0 + i);
+			em.persist(product);
+			CartItem item = new CartItem();
+			item.setUser(user);
+			item.setProduct(product);
+			item.setQuantity(1);
+			item.setPriceAtAdd(product.getPrice());
+			em.persist(item);
+		}
+		em.flush();
+		em.clear();
+
+		Statistics statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+		List<CartItemDTO> view = cartService.getCartView(user);
+		assertEquals(lines, view.size());
+		return statistics.getPrepareStatementCount();
+	}
+}
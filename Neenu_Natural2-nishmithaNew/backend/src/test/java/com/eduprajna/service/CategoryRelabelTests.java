@@ -0,0 +1,65 @@
+package com.eduprajna.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.eduprajna.entity.Category;
+import com.eduprajna.entity.Product;
+
+import jakarta.persistence.EntityManager;
+
+@SpringBootTest
+@Transactional
+class CategoryRelabelTests {
+
+	@Autowired
+	private CategoryService categoryService;
+
+	@Autowired
+	private EntityManager em;
+
+	@Test
+	void renamingRootKeepsSubcategoryOfRootLinkedProducts() {
+		String suffix = Long.toString(System.nanoTime());
+		Category root = categoryService.create("Relabel root " + suffix, null);
+		Category child = categoryService.create("Relabel child " + suffix, root.getId());
+		Category grandchild = categoryService.create("Relabel grandchild " + suffix, child.getId());
+
+		// Linked at the root although its subcategory text names a category filed elsewhere
+		Product atRoot = product(root, "Relabel root " + suffix, "Filed elsewhere " + suffix);
+		Product atChild = product(child, "Relabel root " + suffix, "Relabel child " + suffix);
+		Product atGrandchild = product(grandchild, "Relabel root " + suffix, "Relabel grandchild " + suffix);
+		em.flush();
+
+		categoryService.update(root.getId(), "Renamed root " + suffix, null);
+		em.flush();
+		em.clear();
+
+		Product a = em.find(Product.class, atRoot.getId());
+		assertEquals("Renamed root " + suffix, a.getCategory());
+		assertEquals("Filed elsewhere " + suffix, a.getSubcategory());
+
+		Product b = em.find(Product.class, atChild.getId());
+		assertEquals("Renamed root " + suffix, b.getCategory());
+		assertEquals("Relabel child " + suffix, b.getSubcategory());
+
+		Product c = em.find(Product.class, atGrandchild.getId());
+		assertEquals("Renamed root " + suffix, c.getCategory());
+		assertEquals("Relabel grandchild " + suffix, c.getSubcategory());
+	}
+
+	private Product product(Category ref, String category, String subcategory) {
+		Product p = new Product();
+		p.setName("Relabel product " + System.nanoTime());
+		p.setPrice(10.0);
+		p.setCategory(category);
+		p.setSubcategory(subcategory);
+		p.setCategoryRef(em.getReference(Category.class, ref.getId()));
+		em.persist(p);
+		return p;
+	}
+}
@@ -0,0 +1,42 @@
+// Writes .br and .gz siblings next to compressible build output so the backend can serve them
+// as-is (see StaticAssetManifest). Runs automatically after `npm run build`.
+import { readdir, readFile, stat, writeFile } from "node:fs/promises";
+import { join, extname } from "node:path";
+import { brotliCompressSync, gzipSync, constants } from "node:zlib";
+
+const root = process.argv[2] || "build";
+const COMPRESSIBLE = new Set([".html", ".js", ".mjs", ".css", ".svg", ".json", ".txt", ".xml", ".ico", ".map", ".webmanifest"]);
+const MIN_BYTES = 1024;
+
+async function* walk(dir) {
+  for (const entry of await readdir(dir, { withFileTypes: true })) {
+    const path = join(dir, entry.name);
+    if (entry.isDirectory()) yield* walk(path);
+    else yield path;
+  }
+}
+
+let files = 0;
+let saved = 0;
+for await (const path of walk(root)) {
+  if (!COMPRESSIBLE.has(extname(path).toLowerCase())) continue;
+  if ((await stat(path)).size < MIN_BYTES) continue;
+  const source = await readFile(path);
+  const variants = {
+    ".br": brotliCompressSync(source, {
+      params: {
+        [constants.BROTLI_PARAM_QUALITY]: constants.BROTLI_MAX_QUALITY,
+        [constants.BROTLI_PARAM_SIZE_HINT]: source.length,
+      },
+    }),
+    ".gz": gzipSync(source, { level: constants.Z_BEST_COMPRESSION }),
+  };
+  for (const [suffix, data] of Object.entries(variants)) {
+    // Only keep variants that are actually smaller
+    if (data.length >= source.length) continue;
+    await writeFile(path + suffix, data);
+    saved += source.length - data.length;
+  }
+  files++;
+}
+console.log(`precompress: ${files} files in ${root}, ${(saved / 1024).toFixed(1)} KiB saved across variants`);
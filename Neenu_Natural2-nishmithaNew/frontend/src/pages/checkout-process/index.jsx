@@ -1,4 +1,4 @@
-import React, { useState, useEffect } from 'react';
+import React, { useState, useEffect, useRef } from 'react';
 import { useNavigate } from 'react-router-dom';
 import { useCart } from '../../contexts/CartContext';
 import { useAuth } from '../../contexts/AuthContext';
@@ -17,6 +17,23 @@ import TrustSignals from './components/TrustSignals';
 import Button from '../../components/ui/Button';
 import Icon from '../../components/AppIcon';
 
+// crypto.randomUUID only exists in secure contexts (HTTPS or localhost); getRandomValues works everywhere
+const newIdempotencyKey = () => {
+  if (typeof crypto !== 'undefined' && typeof crypto.randomUUID === 'function') {
+    return crypto.randomUUID();
+  }
+  const bytes = new Uint8Array(16);
+  if (typeof crypto !== 'undefined' && typeof crypto.getRandomValues === 'function') {
+    crypto.getRandomValues(bytes);
+  } else {
+    for (let i = 0; i < bytes.length; i++) bytes[i] = Math.floor(Math.random() * 256);
+  }
+  bytes[6] = (bytes[6] & 0x0f) | 0x40;
+  bytes[8] = (bytes[8] & 0x3f) | 0x80;
+  const hex = Array.from(bytes, (b) => b.toString(16).padStart(2, '0')).join('');
+  return `${hex.slice(0, 8)}-${hex.slice(8, 12)}-${hex.slice(12, 16)}-${hex.slice(16, 20)}-${hex.slice(20)}`;
+};
+
 /**
  * Multi-Step Checkout Process Component
  * 
@@ -42,6 +59,8 @@ const CheckoutProcess = () => {
   const [currentLocation, setCurrentLocation] = useState(null);
   const [error, setError] = useState(null);
   const [orderReviewData, setOrderReviewData] = useState(null);
+  // One key per order attempt, kept across retries until the order goes through
+  const orderKeyRef = useRef(null);
 
   // Form data states for each step
   const [shippingData, setShippingData] = useState(null);
@@ -241,9 +260,10 @@ const CheckoutProcess = () => {
 
         case 3: // Order Review
           setPaymentData(stepData);
-          // Load order review data from backend
+          // Load order review data from backend and hold the cart's stock while the customer decides
           if (user?.email) {
             const reviewData = await checkoutApi.review(user.email);
+            await checkoutApi.reserve(user.email);
             setOrderReviewData(reviewData);
             console.log('Order review data loaded:', reviewData);
           }
@@ -288,7 +308,11 @@ const CheckoutProcess = () => {
       }
 
       // Place order through backend API
-      const savedOrder = await checkoutApi.placeOrder(user.email);
+      if (!orderKeyRef.current) {
+        orderKeyRef.current = newIdempotencyKey();
+      }
+      const savedOrder = await checkoutApi.placeOrder(user.email, orderKeyRef.current);
+      orderKeyRef.current = null;
       console.log('Order placed successfully:', savedOrder);
 
       // Get order review data for WhatsApp message
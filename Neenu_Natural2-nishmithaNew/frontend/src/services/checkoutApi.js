@@ -9,8 +9,15 @@ const checkoutApi = {
     const res = await apiClient.get('/checkout/review', { params: { email } });
     return res.data;
   },
-  async placeOrder(email) {
-    const res = await apiClient.post('/checkout/place-order', {}, { params: { email } });
+  // Holds the cart's stock for a while; returns { reservedUntil }
+  async reserve(email) {
+    const res = await apiClient.post('/checkout/reserve', {}, { params: { email } });
+    return res.data;
+  },
+  // Retries of one attempt must reuse its idempotencyKey so the order is placed only once
+  async placeOrder(email, idempotencyKey) {
+    const headers = idempotencyKey ? { 'Idempotency-Key': idempotencyKey } : undefined;
+    const res = await apiClient.post('/checkout/place-order', {}, { params: { email }, headers });
     return res.data;
   }
 };